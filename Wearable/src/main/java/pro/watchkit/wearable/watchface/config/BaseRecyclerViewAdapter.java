@@ -34,8 +34,6 @@
 
 package pro.watchkit.wearable.watchface.config;
 
-import static android.support.wearable.complications.ComplicationData.TYPE_NOT_CONFIGURED;
-import static android.support.wearable.complications.ComplicationData.TYPE_SHORT_TEXT;
 import static pro.watchkit.wearable.watchface.config.ColorSelectionActivity.INTENT_EXTRA_COLOR;
 import static pro.watchkit.wearable.watchface.config.ColorSelectionActivity.INTENT_EXTRA_COLOR_LABEL;
 import static pro.watchkit.wearable.watchface.config.ConfigActivity.CONFIG_DATA;
@@ -54,7 +52,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
@@ -64,10 +61,8 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
-import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
 import android.support.wearable.complications.ComplicationProviderInfo;
-import android.support.wearable.complications.ComplicationText;
 import android.support.wearable.complications.ProviderInfoRetriever;
 import android.text.Html;
 import android.view.MotionEvent;
@@ -86,22 +81,28 @@ import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.TimeZone;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import pro.watchkit.wearable.watchface.BuildConfig;
 import pro.watchkit.wearable.watchface.R;
 import pro.watchkit.wearable.watchface.model.BytePackable;
 import pro.watchkit.wearable.watchface.model.ComplicationHolder;
 import pro.watchkit.wearable.watchface.model.ConfigData;
+import pro.watchkit.wearable.watchface.model.PackedStates;
 import pro.watchkit.wearable.watchface.model.PaintBox;
+import pro.watchkit.wearable.watchface.model.PermutationBenchmark;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 import pro.watchkit.wearable.watchface.util.SharedPref;
 import pro.watchkit.wearable.watchface.util.Toaster;
+import pro.watchkit.wearable.watchface.watchface.DecompositionSimulator;
+import pro.watchkit.wearable.watchface.watchface.HandBenchmark;
+import pro.watchkit.wearable.watchface.watchface.IconExporter;
+import pro.watchkit.wearable.watchface.watchface.PipBenchmark;
 import pro.watchkit.wearable.watchface.watchface.ProWatchFaceService;
 import pro.watchkit.wearable.watchface.watchface.WatchFaceGlobalDeferredDrawable;
 import pro.watchkit.wearable.watchface.watchface.WatchFaceGlobalDrawable;
@@ -174,6 +175,10 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
             mTitleLabel = R.string.watch_face_service_label_a;
             mSubActivityIntent = "pro.watchkit.wearable.watchface.CONFIG_WATCH_KIT_PRO_A";
         }
+
+        // Our watch face names and the gallery come from the gallery index, which is built in
+        // the background. Until it is, they come out as custom; so rebind when it's ready.
+        mCurrentWatchFaceState.whenGalleryReady(this::notifyDataSetChanged);
     }
 
     @Override
@@ -258,6 +263,35 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
         }
     }
 
+    /**
+     * Set up "w" to preview the given watch face. Our WatchFaceDrawableViewHolder and our
+     * PreviewPrefetcher both go through here, so they draw exactly the same thing (and so
+     * agree on what goes in our ThumbnailCache).
+     *
+     * @param w                    The WatchFaceState to set up
+     * @param watchFaceStateString The watch face to preview, or null to leave it be
+     * @param swatch               Index of the swatch material to preview, or -1 for none
+     * @param context              Context for initialising complications
+     */
+    static void setPreviewState(
+            @NonNull WatchFaceState w, @Nullable String watchFaceStateString, int swatch,
+            @NonNull Context context) {
+        if (watchFaceStateString != null) {
+            w.setString(watchFaceStateString);
+            // Sanity check on the value of swatch.
+            if (swatch >= BytePackable.Material.finalValues.length || swatch < -1) {
+                swatch = -1;
+            }
+            w.setSwatchMaterial(
+                    swatch == -1 ? null : BytePackable.Material.finalValues[swatch]);
+        }
+        w.setNotifications(0, 0);
+        w.setAmbient(false);
+
+        // Initialise complications, just enough to be able to draw rings.
+        w.initializeComplications(context, false);
+    }
+
     class WatchFaceDrawableViewHolder extends RecyclerView.ViewHolder
             implements WatchFaceStateListener, ComplicationProviderInfoListener {
 
@@ -304,21 +338,8 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
                 mWatchFaceGlobalDrawable.cancelBackgroundTasks();
             }
             WatchFaceState w = mWatchFaceGlobalDrawable.getWatchFaceState();
-            if (watchFaceStateString != null) {
-                w.setString(watchFaceStateString);
-                // Sanity check on the value of swatch.
-                if (swatch >= BytePackable.Material.finalValues.length || swatch < -1) {
-                    swatch = -1;
-                }
-                w.setSwatchMaterial(
-                        swatch == -1 ? null : BytePackable.Material.finalValues[swatch]);
-            }
-            w.setNotifications(0, 0);
-            w.setAmbient(false);
+            setPreviewState(w, watchFaceStateString, swatch, mImageView.getContext());
             mComplicationTextColor = w.getComplicationTextColor();
-
-            // Initialise complications, just enough to be able to draw rings.
-            w.initializeComplications(mImageView.getContext(), false);
         }
 
         void setPreset(@Nullable String watchFaceStateString) {
@@ -529,109 +550,89 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
 
         @Override
         public void onClick(@NonNull View view) {
-            // Temporary code to generate an icon?
+            // Generate icon files for every gallery preset in every colorway.
             if (mConfigItem.getLabelResourceId() == R.string.config_generate_icon_files &&
                     BuildConfig.DEBUG) {
                 Context context = itemView.getContext();
                 SharedPref.mWriteLayersToDisk = false;
 
-                // Create our foreground drawable.
-                int count = 0;
-                for (Map.Entry<String, String> g :
-                        mCurrentWatchFaceState.getGalleryEntries().entrySet()) {
-                    for (Map.Entry<String, Integer> cw :
-                            mCurrentWatchFaceState.getPaintBox().getOriginalColorways().entrySet()) {
-                        int flags = WatchFaceGlobalDrawable.PART_BACKGROUND |
-                                WatchFaceGlobalDrawable.PART_PIPS |
-                                WatchFaceGlobalDrawable.PART_HANDS |
-                                WatchFaceGlobalDrawable.PART_RINGS_ACTIVE;
-
-                        WatchFaceGlobalDrawable drawable =
-                                new WatchFaceGlobalDrawable(context, flags);
-
-                        WatchFaceState watchFaceState = drawable.getWatchFaceState();
-
-                        // Quick-and-dirty code to get complication IDs.
-                        ProWatchFaceService p;
-                        if (count % 4 == 0) {
-                            watchFaceState.setString("04941b40ef006610846065dcc6f81411~" +
-                                    "16e1cf096cc000000000000000000001~0");
-                            p = new ProWatchFaceService.A();
-                        } else if (count % 4 == 1) {
-                            watchFaceState.setString("0cd71a20ef007c2008e2212a68384c01~" +
-                                    "1b434f0963c000000000000000000001~0");
-                            p = new ProWatchFaceService.B();
-                        } else if (count % 4 == 2) {
-                            watchFaceState.setString("155b4120e0004274fb8601d8cfb81001~" +
-                                    "1fe4ef0eba0000000000000000000001~0");
-                            p = new ProWatchFaceService.C();
-                        } else {
-                            watchFaceState.setString("1d404b6a6f0066f6b4aae8c459bf4ca0~" +
-                                    "13308f05084000000000000000000000~0");
-                            p = new ProWatchFaceService.D();
-                        }
-                        watchFaceState.setWatchFacePresetString(g.getValue());
-                        watchFaceState.setColorway(cw.getValue());
-                        watchFaceState.setCurrentTime(1570365309000L); // 2019-10-06T23:35:09.000+1100
-                        watchFaceState.setNotifications(0, 0);
-                        watchFaceState.setAmbient(false);
-                        drawable.setBounds(0, 0, 960, 960);
-
-                        // Initialise complications, just enough to be able to draw rings.
-                        watchFaceState.initializeComplications(context, false);
-
-                        // A dummy complication that won't be displayed.
-                        ComplicationData.Builder cb =
-                                new ComplicationData.Builder(TYPE_SHORT_TEXT);
-                        cb.setShortText(ComplicationText.plainText("x"));
-                        ComplicationData c = cb.build();
-
-                        // Get our complication IDs and default providers.
-                        int[] complicationIds = watchFaceState.getComplicationIds();
-                        int[][] defaultComplicationProviders =
-                                p.getDefaultSystemComplicationProviders();
-
-                        for (int i = 0; i < complicationIds.length; i++) {
-                            // For each active complication, check for a corresponding default complication.
-                            // If it's there, set the system default complication provider accordingly.
-                            if (i < defaultComplicationProviders.length) {
-                                int[] complicationProvider = defaultComplicationProviders[i];
-                                if (complicationProvider.length >= 2 &&
-                                        complicationProvider[1] != TYPE_NOT_CONFIGURED) {
-                                    // Activate one ring per active complication.
-                                    // Activate them with a dummy complication that won't be displayed.
-                                    watchFaceState.onComplicationDataUpdate(complicationIds[i], c, null);
-                                }
-                            }
-                        }
-
-                        // Create our canvas...
-                        Bitmap bitmap =
-                                Bitmap.createBitmap(960, 960, Bitmap.Config.ARGB_8888);
-                        Canvas canvas = new Canvas(bitmap);
-
-                        // Draw to the canvas!
-                        drawable.draw(canvas);
-
-                        // Export as PNG
+                // Render on half our cores, encode on the other half.
+                IconExporter exporter = new IconExporter(context,
+                        Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+                Map<String, Integer> colorways =
+                        mCurrentWatchFaceState.getPaintBox().getOriginalColorways();
+                // We need the whole gallery, so start once it's ready (probably right away).
+                mCurrentWatchFaceState.whenGalleryReady(() -> {
+                    Map<String, String> gallery = mCurrentWatchFaceState.getGalleryEntries();
+                    if (gallery == null) {
+                        return; // Couldn't happen.
+                    }
+                    Toaster.makeText(context, "Exporting " + gallery.size() * colorways.size() +
+                            " icons...", Toaster.LENGTH_LONG);
+                    new Thread(() -> {
                         try {
-                            String n = g.getKey()
-                                    .replace("🅰", "AA")
-                                    .replace("🅱", "AB")
-                                    .replace("🅲", "AC")
-                                    .replace("🅳", "AD");
-                            FileOutputStream out = watchFaceState.openFileOutput(
-                                    n + " x " + cw.getKey() + ".png");
-                            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-                            out.close();
-                        } catch (IOException e) {
-                            e.printStackTrace();
+                            IconExporter.Report report = exporter.export(
+                                    gallery, colorways, IconExporter.toPrivateFiles(context));
+                            itemView.post(() -> Toaster.makeText(
+                                    context, report.toString(), Toaster.LENGTH_LONG));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
                         }
-                    }
-                    count++;
-                }
-
-                SharedPref.mWriteLayersToDisk = false;
+                    }, "IconExporter").start();
+                });
+                return;
+            }
+            // Simulate a day in decomposable mode, for testing and benchmarking offload.
+            if (mConfigItem.getLabelResourceId() == R.string.config_simulate_decomposition &&
+                    BuildConfig.DEBUG) {
+                Context context = itemView.getContext();
+                String watchFaceString = mCurrentWatchFaceState.getString();
+                // Start from midnight today, and compare against ambient every hour.
+                long now = System.currentTimeMillis();
+                long midnight = now - (now + TimeZone.getDefault().getOffset(now)) %
+                        TimeUnit.DAYS.toMillis(1);
+                // A day's worth of frames takes a while, so keep it off the UI thread.
+                new Thread(() -> {
+                    DecompositionSimulator simulator =
+                            new DecompositionSimulator(context, watchFaceString, 400, 400);
+                    DecompositionSimulator.Report report =
+                            simulator.simulateDay(midnight, false, 60);
+                    itemView.post(() -> Toaster.makeText(
+                            context, report.toString(), Toaster.LENGTH_LONG));
+                }, "DecompositionSimulator").start();
+                return;
+            }
+            // Benchmark building pip rings for every pip shape and size.
+            if (mConfigItem.getLabelResourceId() == R.string.config_benchmark_pips &&
+                    BuildConfig.DEBUG) {
+                Context context = itemView.getContext();
+                String watchFaceString = mCurrentWatchFaceState.getString();
+                new Thread(() -> {
+                    String result = PipBenchmark.run(context, watchFaceString, 400, 400);
+                    itemView.post(() -> Toaster.makeText(context, result, Toaster.LENGTH_LONG));
+                }, "PipBenchmark").start();
+                return;
+            }
+            // Benchmark drawing hands, as vectors and as sprites.
+            if (mConfigItem.getLabelResourceId() == R.string.config_benchmark_hands &&
+                    BuildConfig.DEBUG) {
+                Context context = itemView.getContext();
+                String watchFaceString = mCurrentWatchFaceState.getString();
+                new Thread(() -> {
+                    String result = HandBenchmark.run(context, watchFaceString);
+                    itemView.post(() -> Toaster.makeText(context, result, Toaster.LENGTH_LONG));
+                }, "HandBenchmark").start();
+                return;
+            }
+            // Benchmark generating permutations, by cloning and by packed bytes.
+            if (mConfigItem.getLabelResourceId() == R.string.config_benchmark_permutations &&
+                    BuildConfig.DEBUG) {
+                Context context = itemView.getContext();
+                String watchFaceString = mCurrentWatchFaceState.getString();
+                new Thread(() -> {
+                    String result = PermutationBenchmark.run(context, watchFaceString);
+                    itemView.post(() -> Toaster.makeText(context, result, Toaster.LENGTH_LONG));
+                }, "PermutationBenchmark").start();
                 return;
             }
             if (mCurrentWatchFaceState.isDeveloperMode()) {
@@ -996,9 +997,11 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
             // Append mNameResourceId of current setting.
             mExtra.append(name);
 
+            // Compare packed bytes, so we don't make a string for every permutation.
+            byte[] current = mCurrentWatchFaceState.getPacked();
             ConfigData.Permutation activePermutation = Arrays.stream(
                     mConfigItem.getPermutations(mCurrentWatchFaceState, itemView.getContext()))
-                    .filter(s -> mCurrentWatchFaceState.mostlyEquals(s.getValue()))
+                    .filter(s -> s.mostlyEquals(current))
                     .findFirst().orElse(null);
             if (activePermutation != null) {
                 mExtra.append("<br/><small>")
@@ -1131,8 +1134,8 @@ abstract class BaseRecyclerViewAdapter extends RecyclerView.Adapter<RecyclerView
                 ConfigData.Permutation[] permutations = mConfigItem.getPermutations(
                         mCurrentWatchFaceState, itemView.getContext());
 
-                String[] permutationValues = Arrays.stream(permutations)
-                        .map(ConfigData.Permutation::getValue).toArray(String[]::new);
+                // Pass them packed; the strings are made as each one is shown.
+                byte[] permutationValues = PackedStates.of(permutations).getPacked();
                 String[] permutationNames = Arrays.stream(permutations)
                         .map(ConfigData.Permutation::getName).toArray(String[]::new);
                 int[] permutationSwatches = Arrays.stream(permutations)
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.config;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pro.watchkit.wearable.watchface.R;
+import pro.watchkit.wearable.watchface.model.PackedStates;
+import pro.watchkit.wearable.watchface.watchface.WatchFaceGlobalDeferredDrawable;
+import pro.watchkit.wearable.watchface.watchface.WatchFaceGlobalDrawable;
+
+/**
+ * Renders the previews that are about to scroll into view, before they do.
+ * <p>
+ * Attach us to a RecyclerView of watch face previews (i.e. permutations). As it scrolls, we
+ * look one screenful ahead in the direction of scrolling, and render those previews in the
+ * background, behind anything that's on screen. They go into our ThumbnailCache; when they
+ * scroll into view, they're already there.
+ * <p>
+ * We render with a small pool of our own drawables, sized to fit in a memory budget. We
+ * only hand a drawable a new preview once it's finished its last one. If they're all busy,
+ * we're getting ahead of ourselves; we'll catch up on the next scroll.
+ */
+final class PreviewPrefetcher extends RecyclerView.OnScrollListener {
+    /**
+     * How much memory we'll spend on our drawables' cache bitmaps.
+     */
+    private static final long BUDGET_BYTES = 8L * 1024L * 1024L;
+
+    @NonNull
+    private final Context mContext;
+    @NonNull
+    private final PackedStates mWatchFaceStates;
+    @NonNull
+    private final int[] mWatchFaceStateSwatches;
+    private final int mFlags;
+
+    /**
+     * The adapter position of our first watch face (after any headers).
+     */
+    private final int mFirstPosition;
+
+    /**
+     * Our pool of drawables for rendering previews.
+     */
+    @NonNull
+    private final List<WatchFaceGlobalDeferredDrawable> mDrawables = new ArrayList<>();
+
+    /**
+     * The most drawables our budget allows, for our current preview size.
+     */
+    private int mMaxDrawables = 0;
+
+    private int mWidth = 0, mHeight = 0;
+
+    /**
+     * The RecyclerView we're attached to.
+     */
+    @Nullable
+    private RecyclerView mParentView;
+
+    /**
+     * The adapter position we last looked ahead from, and in which direction.
+     */
+    private int mPreviousPosition = RecyclerView.NO_POSITION;
+    private boolean mPreviousForwards = true;
+
+    PreviewPrefetcher(
+            @NonNull Context context, @NonNull PackedStates watchFaceStates,
+            @NonNull int[] watchFaceStateSwatches, int flags, int firstPosition) {
+        mContext = context;
+        mWatchFaceStates = watchFaceStates;
+        mWatchFaceStateSwatches = watchFaceStateSwatches;
+        // Always set PART_CLIP, just like our WatchFaceDrawableViewHolder does.
+        mFlags = flags | WatchFaceGlobalDrawable.PART_CLIP;
+        mFirstPosition = firstPosition;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        super.onScrolled(recyclerView, dx, dy);
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // How big are our previews? Find one that's on screen and measure it.
+        if (!measurePreviews(layoutManager, first, last)) {
+            return;
+        }
+
+        // Which way are we going? (If we're not, it's our first layout; look forwards.)
+        boolean forwards = dy >= 0;
+        int position = forwards ? last : first;
+        if (position == mPreviousPosition && forwards == mPreviousForwards) {
+            return; // We've already looked ahead from here.
+        }
+        mPreviousPosition = position;
+        mPreviousForwards = forwards;
+
+        // Look ahead one screenful.
+        int screenful = last - first + 1;
+        for (int i = 1; i <= screenful; i++) {
+            int index = (forwards ? position + i : position - i) - mFirstPosition;
+            if (index < 0 || index >= mWatchFaceStates.size()) {
+                break;
+            }
+            WatchFaceGlobalDeferredDrawable d = getIdleDrawable();
+            if (d == null) {
+                break; // We've spent our budget. Try again on our next scroll.
+            }
+            BaseRecyclerViewAdapter.setPreviewState(d.getWatchFaceState(),
+                    mWatchFaceStates.get(index), mWatchFaceStateSwatches[index], mContext);
+            d.setBounds(0, 0, mWidth, mHeight);
+            d.prefetch();
+        }
+    }
+
+    /**
+     * Find a preview that's on screen and note its size, and how many drawables of that size
+     * fit in our budget. If our previews have changed size, start our pool over.
+     *
+     * @param layoutManager Our RecyclerView's LayoutManager
+     * @param first         First visible adapter position
+     * @param last          Last visible adapter position
+     * @return Whether we found a preview to measure
+     */
+    private boolean measurePreviews(
+            @NonNull LinearLayoutManager layoutManager, int first, int last) {
+        for (int i = first; i <= last; i++) {
+            View item = layoutManager.findViewByPosition(i);
+            View preview = item == null ? null : item.findViewById(R.id.watch_face_preset);
+            if (preview == null || preview.getWidth() <= 0 || preview.getHeight() <= 0) {
+                continue;
+            }
+            int width = preview.getWidth() - preview.getPaddingLeft() - preview.getPaddingRight();
+            int height = preview.getHeight() - preview.getPaddingTop() - preview.getPaddingBottom();
+            if (width <= 0 || height <= 0) {
+                continue;
+            }
+            if (width != mWidth || height != mHeight) {
+                cancel();
+                mWidth = width;
+                mHeight = height;
+                // Our cache bitmap, plus our draft bitmap at a quarter of the size.
+                long bytesPerDrawable = (long) width * (long) height * 4L * 5L / 4L;
+                mMaxDrawables = (int) Math.max(1L, BUDGET_BYTES / bytesPerDrawable);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get a drawable from our pool that isn't busy, making a new one if our budget allows.
+     *
+     * @return An idle drawable, or null if they're all busy
+     */
+    @Nullable
+    private WatchFaceGlobalDeferredDrawable getIdleDrawable() {
+        for (WatchFaceGlobalDeferredDrawable d : mDrawables) {
+            if (d.isIdle()) {
+                return d;
+            }
+        }
+        if (mDrawables.size() < mMaxDrawables && mParentView != null) {
+            WatchFaceGlobalDeferredDrawable d =
+                    new WatchFaceGlobalDeferredDrawable(mContext, mFlags, mParentView);
+            mDrawables.add(d);
+            return d;
+        }
+        return null;
+    }
+
+    /**
+     * Attach to "recyclerView" and start prefetching as it scrolls.
+     *
+     * @param recyclerView RecyclerView to attach to
+     */
+    void attach(@NonNull RecyclerView recyclerView) {
+        mParentView = recyclerView;
+        recyclerView.addOnScrollListener(this);
+    }
+
+    /**
+     * Detach from "recyclerView", cancel everything we're prefetching, and let our pool go.
+     *
+     * @param recyclerView RecyclerView to detach from
+     */
+    void detach(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(this);
+        cancel();
+        mParentView = null;
+    }
+
+    /**
+     * Cancel everything we're prefetching, and let our pool go.
+     */
+    private void cancel() {
+        for (WatchFaceGlobalDeferredDrawable d : mDrawables) {
+            d.releaseSnapshots();
+        }
+        mDrawables.clear();
+        mPreviousPosition = RecyclerView.NO_POSITION;
+    }
+}
@@ -46,7 +46,7 @@ import androidx.recyclerview.widget.SnapHelper;
 import androidx.wear.widget.WearableRecyclerView;
 
 import pro.watchkit.wearable.watchface.R;
-import pro.watchkit.wearable.watchface.model.WatchFaceState;
+import pro.watchkit.wearable.watchface.model.PackedStates;
 import pro.watchkit.wearable.watchface.util.SharedPref;
 import pro.watchkit.wearable.watchface.util.Toaster;
 import pro.watchkit.wearable.watchface.watchface.ProWatchFaceService;
@@ -77,10 +77,9 @@ public class WatchFaceSelectionActivity extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_watch_face_selection);
 
-        String[] watchFaceStateStrings = getIntent().getStringArrayExtra(INTENT_EXTRA_STATES);
-        if (watchFaceStateStrings == null) {
-            watchFaceStateStrings = new String[]{};
-        }
+        byte[] packedStates = getIntent().getByteArrayExtra(INTENT_EXTRA_STATES);
+        PackedStates watchFaceStates = new PackedStates(
+                packedStates == null ? new byte[0] : packedStates);
         int flags = getIntent().getIntExtra(
                 INTENT_EXTRA_FLAGS, WatchFaceGlobalDrawable.PART_BACKGROUND);
         int nameResourceId = getIntent().getIntExtra(
@@ -105,12 +104,12 @@ public class WatchFaceSelectionActivity extends Activity {
         String[] extraNames = getIntent().getStringArrayExtra(INTENT_EXTRA_EXTRA_NAMES);
         int[] extraSwatches = getIntent().getIntArrayExtra(INTENT_EXTRA_EXTRA_SWATCHES);
         if (extraSwatches == null) {
-            extraSwatches = new int[watchFaceStateStrings.length];
+            extraSwatches = new int[watchFaceStates.size()];
         }
 
         WatchFaceSelectionRecyclerViewAdapter recyclerViewAdapter =
                 new WatchFaceSelectionRecyclerViewAdapter(this, watchFaceServiceClass,
-                        watchFaceStateStrings, extraSwatches, flags, nameResourceId);
+                        watchFaceStates, extraSwatches, flags, nameResourceId);
 
         WearableRecyclerView view = findViewById(R.id.wearable_recycler_view);
 
@@ -174,17 +173,15 @@ public class WatchFaceSelectionActivity extends Activity {
         SharedPref sharedPref = new SharedPref(this, watchFaceServiceClass);
         String currentWatchFaceState = sharedPref.getWatchFaceStateString();
 
-        // Go through our state strings and find the one that's equal to our current selection.
+        // Go through our states and find the one that's equal to our current selection.
         if (currentWatchFaceState != null) {
-            for (int i = 0; i < watchFaceStateStrings.length; i++) {
-                if (WatchFaceState.mostlyEquals(watchFaceStateStrings[i], currentWatchFaceState)) {
-                    // We found it! Scroll to this item.
-                    // "scrollToPosition" gets us into the vicinity.
-                    layoutManager.scrollToPosition(i);
-                    // "smoothScrollToPosition" gets us to the exact place and pops up the toast.
-                    layoutManager.smoothScrollToPosition(view, null, i + 1);
-                    break;
-                }
+            int i = watchFaceStates.indexOf(currentWatchFaceState);
+            if (i >= 0) {
+                // We found it! Scroll to this item.
+                // "scrollToPosition" gets us into the vicinity.
+                layoutManager.scrollToPosition(i);
+                // "smoothScrollToPosition" gets us to the exact place and pops up the toast.
+                layoutManager.smoothScrollToPosition(view, null, i + 1);
             }
         }
     }
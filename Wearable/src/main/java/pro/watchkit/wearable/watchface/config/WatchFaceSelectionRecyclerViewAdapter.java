@@ -26,11 +26,13 @@ import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.recyclerview.widget.RecyclerView.ViewHolder;
 
 import pro.watchkit.wearable.watchface.R;
 import pro.watchkit.wearable.watchface.model.ConfigData.HeadingLabelConfigItem;
 import pro.watchkit.wearable.watchface.model.ConfigData.LabelConfigItem;
+import pro.watchkit.wearable.watchface.model.PackedStates;
 import pro.watchkit.wearable.watchface.watchface.ProWatchFaceService;
 
 /**
@@ -42,26 +44,47 @@ import pro.watchkit.wearable.watchface.watchface.ProWatchFaceService;
 
 public class WatchFaceSelectionRecyclerViewAdapter extends BaseRecyclerViewAdapter {
     @NonNull
-    final private String[] mWatchFaceStateStrings;
+    final private PackedStates mWatchFaceStates;
     @NonNull
     final private int[] mWatchFaceStateSwatches;
     private final int mFlags;
     @StringRes
     private final int mNameResourceId;
 
+    /**
+     * Renders the previews that are about to scroll into view, so they're ready when they do.
+     */
+    @NonNull
+    private final PreviewPrefetcher mPreviewPrefetcher;
+
     private static final int TYPE_WATCH_FACE_DRAWABLE_CONFIG = 0;
     private static final int TYPE_LABEL_CONFIG = 1;
 
     WatchFaceSelectionRecyclerViewAdapter(
             @NonNull Context context,
             @NonNull Class<? extends ProWatchFaceService> watchFaceServiceClass,
-            @NonNull String[] watchFaceStateStrings,
+            @NonNull PackedStates watchFaceStates,
             @NonNull int[] watchFaceStateSwatches, int flags, @StringRes int nameResourceId) {
         super(context, watchFaceServiceClass);
-        mWatchFaceStateStrings = watchFaceStateStrings;
+        mWatchFaceStates = watchFaceStates;
         mWatchFaceStateSwatches = watchFaceStateSwatches;
         mFlags = flags;
         mNameResourceId = nameResourceId;
+        // Our first watch face is at position 1, after our label.
+        mPreviewPrefetcher = new PreviewPrefetcher(
+                context, watchFaceStates, watchFaceStateSwatches, flags, 1);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mPreviewPrefetcher.attach(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mPreviewPrefetcher.detach(recyclerView);
+        super.onDetachedFromRecyclerView(recyclerView);
     }
 
     @Override
@@ -94,8 +117,8 @@ public class WatchFaceSelectionRecyclerViewAdapter extends BaseRecyclerViewAdapt
             labelViewHolder.bind(labelConfigItem);
             return;
         }
-        String watchFaceStateString = mWatchFaceStateStrings.length > position - 1 ?
-                mWatchFaceStateStrings[position - 1] : null;
+        String watchFaceStateString = mWatchFaceStates.size() > position - 1 ?
+                mWatchFaceStates.get(position - 1) : null;
         int swatch = watchFaceStateString == null ? -1 : mWatchFaceStateSwatches[position - 1];
 
         WatchFacePresetSelectionViewHolder holder = (WatchFacePresetSelectionViewHolder) viewHolder;
@@ -110,6 +133,6 @@ public class WatchFaceSelectionRecyclerViewAdapter extends BaseRecyclerViewAdapt
 
     @Override
     public int getItemCount() {
-        return 1 + mWatchFaceStateStrings.length;
+        return 1 + mWatchFaceStates.size();
     }
 }
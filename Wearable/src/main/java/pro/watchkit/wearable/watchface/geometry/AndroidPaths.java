@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.geometry;
+
+import android.graphics.Path;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Our adapter from VectorPath to android.graphics.Path, for when it's time to draw. This is
+ * the only part of our geometry that needs Android.
+ */
+public final class AndroidPaths {
+    private AndroidPaths() {
+    }
+
+    /**
+     * Add "src" to "dst", exactly: lines as lines, curves as curves.
+     *
+     * @param src The VectorPath to add
+     * @param dst The android.graphics.Path to add it to
+     */
+    public static void addTo(@NonNull VectorPath src, @NonNull Path dst) {
+        final float[] points = src.getPoints();
+        int p = 0;
+        for (int i = 0; i < src.getVerbCount(); i++) {
+            switch (src.getVerb(i)) {
+                case VectorPath.VERB_MOVE: {
+                    dst.moveTo(points[p], points[p + 1]);
+                    p += 2;
+                    break;
+                }
+                case VectorPath.VERB_LINE: {
+                    dst.lineTo(points[p], points[p + 1]);
+                    p += 2;
+                    break;
+                }
+                case VectorPath.VERB_CUBIC: {
+                    dst.cubicTo(points[p], points[p + 1], points[p + 2], points[p + 3],
+                            points[p + 4], points[p + 5]);
+                    p += 6;
+                    break;
+                }
+                case VectorPath.VERB_CLOSE: {
+                    dst.close();
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.geometry;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Our shape primitives: rectangles, round rects, ellipses, diamonds and triangles, built into
+ * a VectorPath.
+ * <p>
+ * Every shape is drawn into the given bounds at scale 1.0f. At scales less than 1.0f each
+ * shape is inset into its "1.0f shape" in such a way that each edge is a constant distance
+ * from the "1.0f shape", and at the same time, such that the shape's area is "scale" the
+ * size of the "1.0f shape". At scales greater than 1.0f, it works the same way, except the
+ * shape drawn will be correspondingly larger (and outside of the bounds).
+ * <p>
+ * Some shapes can be cut down to a horizontal slice of themselves, with "offsetTop" (the
+ * proportion from the top to start drawing) and "offsetBottom" (the proportion to the bottom
+ * to finish drawing). Pass 0.0f for both to draw the whole shape.
+ */
+public final class Shapes {
+    private Shapes() {
+    }
+
+    /**
+     * Inset calculation:
+     * xy = ((x - n)(y - n)) / scale
+     * n = (x + y − √( x² + y² + (4 * scale - 2)xy)) / 2
+     * And then...
+     * offset = n / 2
+     *
+     * @param x     Width of the "1.0f shape"
+     * @param y     Height of the "1.0f shape"
+     * @param scale Scale of the shape
+     * @return The offset to inset each edge by
+     */
+    private static float getInset(float x, float y, float scale) {
+        final float n =
+                (x + y - (float) Math.sqrt(x * x + y * y + (4f * scale - 2f) * x * y)) * 0.5f;
+        return n / 2f;
+    }
+
+    /**
+     * Draw a rectangle into "path".
+     *
+     * @param path         The path to draw into
+     * @param left         Left bound
+     * @param top          Top bound
+     * @param right        Right bound
+     * @param bottom       Bottom bound
+     * @param scale        Scale of the shape
+     * @param offsetTop    Percentage from top to start drawing; 0.0f for no offset
+     * @param offsetBottom Percentage to bottom to finish drawing; 0.0f for no offset
+     * @param clockwise    Whether to wind clockwise
+     */
+    public static void rect(@NonNull VectorPath path, float left, float top, float right,
+                            float bottom, float scale, float offsetTop, float offsetBottom,
+                            boolean clockwise) {
+        final float offset = getInset(right - left, bottom - top, scale);
+
+        path.addRect(left + offset, top + offset,
+                right - offset, bottom - offset, clockwise);
+
+        // Top and bottom halves
+        if (offsetTop != 0f || offsetBottom != 0f) {
+            float t = top + offset; // Top of inner shape
+            float b = bottom - offset; // Bottom of inner shape
+            float h2 = b - t; // Height of inner shape
+
+            // Apply the offsets. No curves, so no tolerance needed.
+            path.intersectBand(t + h2 * offsetTop, b - h2 * offsetBottom, 1f);
+        }
+    }
+
+    /**
+     * Draw a round rect into "path".
+     *
+     * @param path         The path to draw into
+     * @param left         Left bound
+     * @param top          Top bound
+     * @param right        Right bound
+     * @param bottom       Bottom bound
+     * @param cornerRadius Corner radius of round rect
+     * @param scale        Scale of the shape
+     * @param offsetTop    Percentage from top to start drawing; 0.0f for no offset
+     * @param offsetBottom Percentage to bottom to finish drawing; 0.0f for no offset
+     * @param clockwise    Whether to wind clockwise
+     * @param tolerance    If we cut the shape down, how closely to follow its curves
+     */
+    public static void roundRect(@NonNull VectorPath path, float left, float top, float right,
+                                 float bottom, float cornerRadius, float scale,
+                                 float offsetTop, float offsetBottom, boolean clockwise,
+                                 float tolerance) {
+        final float offset = getInset(right - left, bottom - top, scale);
+        final float v = cornerRadius * scale;
+
+        path.addRoundRect(left + offset, top + offset,
+                right - offset, bottom - offset, v, clockwise);
+
+        // Top and bottom halves
+        if (offsetTop != 0f || offsetBottom != 0f) {
+            float t = top + offset; // Top of inner shape
+            float b = bottom - offset; // Bottom of inner shape
+            float h2 = b - t; // Height of inner shape
+
+            // Apply the offsets.
+            path.intersectBand(t + h2 * offsetTop, b - h2 * offsetBottom, tolerance);
+        }
+    }
+
+    /**
+     * Draw an ellipse into "path".
+     * <p>
+     * Scales other than 1.0f likely only work well for circles. For non-circle ellipses this will
+     * be inaccurate because we need to draw an oval with some curve I can't be bothered deriving.
+     *
+     * @param path      The path to draw into
+     * @param left      Left bound
+     * @param top       Top bound
+     * @param right     Right bound
+     * @param bottom    Bottom bound
+     * @param scale     Scale of the shape
+     * @param clockwise Whether to wind clockwise
+     */
+    public static void ellipse(@NonNull VectorPath path, float left, float top, float right,
+                               float bottom, float scale, boolean clockwise) {
+        final float offset = getInset(right - left, bottom - top, scale);
+
+        path.addOval(left + offset, top + offset,
+                right - offset, bottom - offset, clockwise);
+    }
+
+    /**
+     * Draw a diamond into "path". Its top and bottom points are at "centerX".
+     * <p>
+     * The vertical midpoint of the diamond is given by "midpoint". It ranges between 0.0f (the
+     * top) and 1.0f (the bottom). Pass 0.5f for the vertical centre.
+     *
+     * @param path         The path to draw into
+     * @param left         Left bound
+     * @param top          Top bound
+     * @param right        Right bound
+     * @param bottom       Bottom bound
+     * @param centerX      Horizontal position of the top and bottom points
+     * @param scale        Scale of the shape
+     * @param midpoint     The vertical midpoint of the diamond
+     * @param offsetTop    Percentage from top to start drawing; 0.0f for no offset
+     * @param offsetBottom Percentage to bottom to finish drawing; 0.0f for no offset
+     * @param clockwise    Whether to wind clockwise
+     */
+    public static void diamond(@NonNull VectorPath path, float left, float top, float right,
+                               float bottom, float centerX, float scale, float midpoint,
+                               float offsetTop, float offsetBottom, boolean clockwise) {
+        final float diamondMidpoint = (top * midpoint) + (bottom * (1f - midpoint));
+
+        // Scale factor. Ignored if scale == 1.0f
+        final float x0 = (right - left) * 0.5f * (1f - scale);
+        final float y1 = (diamondMidpoint - top) * (1f - scale);
+        final float y2 = (bottom - diamondMidpoint) * (1f - scale);
+
+        final float leftX = left + x0;
+        final float rightX = right - x0;
+        final float bottomY = bottom - y2;
+        final float topY = top + y1;
+
+        // Bottom: extend past the hub
+        if (clockwise) {
+            path.moveTo(leftX, diamondMidpoint); // Left
+            path.lineTo(centerX, topY); // Top
+            path.lineTo(rightX, diamondMidpoint); // Right
+        } else {
+            path.moveTo(rightX, diamondMidpoint); // Right
+            path.lineTo(centerX, topY); // Top
+            path.lineTo(leftX, diamondMidpoint); // Left
+        }
+        path.lineTo(centerX, bottomY); // Bottom: extend past the hub
+        path.close();
+
+        applyTriangularOffsets(path, topY, bottomY, offsetTop, offsetBottom);
+    }
+
+    /**
+     * Draw a triangle into "path". Its point is at "centerX".
+     * <p>
+     * If "top" is above "bottom" (the usual way) then the triangle is drawn pointing up. If "top"
+     * is below "bottom" then the triangle is drawn pointing down.
+     *
+     * @param path         The path to draw into
+     * @param left         Left bound
+     * @param top          Top bound
+     * @param right        Right bound
+     * @param bottom       Bottom bound
+     * @param centerX      Horizontal position of the point
+     * @param scale        Scale of the shape
+     * @param offsetTop    Percentage from top to start drawing; 0.0f for no offset
+     * @param offsetBottom Percentage to bottom to finish drawing; 0.0f for no offset
+     * @param clockwise    Whether to wind clockwise
+     */
+    public static void triangle(@NonNull VectorPath path, float left, float top, float right,
+                                float bottom, float centerX, float scale, float offsetTop,
+                                float offsetBottom, boolean clockwise) {
+        // If bottom is above top, invert the triangle!
+        final boolean invert = bottom < top;
+        // Scale factor. Ignored if scale == 0f
+        final double h = invert ? top - bottom : bottom - top;
+        final double w = (double) (right - left) * 0.5d;
+        final double w1 = w - (w * Math.sqrt(scale));
+        final double z = Math.sin(Math.atan(h / w) / 2d) * w1;
+        final double z1 = h - (h * Math.sqrt(scale)) - z;
+
+        final float leftX = left + (float) w1;
+        final float rightX = right - (float) w1;
+        final float bottomY = invert ? bottom + (float) z : bottom - (float) z;
+        final float topY = invert ? top - (float) z1 : top + (float) z1;
+
+        if (clockwise) {
+            path.moveTo(leftX, bottomY); // Left
+            path.lineTo(centerX, topY); // Top
+            path.lineTo(rightX, bottomY); // Right
+        } else {
+            path.moveTo(rightX, bottomY); // Right
+            path.lineTo(centerX, topY); // Top
+            path.lineTo(leftX, bottomY); // Left
+        }
+        path.close();
+
+        applyTriangularOffsets(path, topY, bottomY, offsetTop, offsetBottom);
+    }
+
+    /**
+     * Cut a diamond or triangle down to a horizontal slice of itself.
+     *
+     * @param path         The path to cut down
+     * @param topY         The y coordinate of one point of the shape
+     * @param bottomY      The y coordinate of the opposite point of the shape
+     * @param offsetTop    Percentage from top to start drawing; 0.0f for no offset
+     * @param offsetBottom Percentage to bottom to finish drawing; 0.0f for no offset
+     */
+    private static void applyTriangularOffsets(@NonNull VectorPath path, float topY,
+                                               float bottomY, float offsetTop,
+                                               float offsetBottom) {
+        // Top and bottom halves
+        if (offsetTop != 0f || offsetBottom != 0f) {
+            float t = Math.min(topY, bottomY); // Top of inner shape
+            float b = Math.max(topY, bottomY); // Bottom of inner shape
+            float h2 = b - t; // Height of inner shape
+
+            // Apply the offsets. Because this is a triangle, apply the square root
+            // so that we keep the proportions of the triangle
+            t += h2 * (float) Math.sqrt(offsetTop);
+            b -= h2 * (1f - (float) Math.sqrt(1f - offsetBottom));
+
+            // No curves, so no tolerance needed.
+            path.intersectBand(t, b, 1f);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.geometry;
+
+import androidx.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A path of lines and cubic curves, in plain Java. It's like android.graphics.Path, but
+ * without the Android: so we can build, measure, cache and serialize our geometry anywhere,
+ * including on the JVM, and only turn it into an android.graphics.Path (see AndroidPaths)
+ * when we want to draw it.
+ * <p>
+ * Every contour is treated as closed for filling, like android.graphics.Path does.
+ * <p>
+ * There are no general boolean ops here. If we need to clip, we flatten to polygons at a
+ * known tolerance first (see "flatten" and "intersectBand").
+ */
+public final class VectorPath {
+    public static final byte VERB_MOVE = 0;
+    public static final byte VERB_LINE = 1;
+    public static final byte VERB_CUBIC = 2;
+    public static final byte VERB_CLOSE = 3;
+
+    /**
+     * The magic number for approximating a quarter circle with a cubic Bézier curve:
+     * 4/3 * (√2 - 1). Accurate to within 0.03% of the radius.
+     */
+    private static final float KAPPA = 0.5522847498f;
+
+    @NonNull
+    private byte[] mVerbs = new byte[16];
+    private int mVerbCount = 0;
+    @NonNull
+    private float[] mPoints = new float[32];
+    private int mPointCount = 0; // In floats, not points
+
+    public VectorPath() {
+    }
+
+    public VectorPath(@NonNull VectorPath src) {
+        set(src);
+    }
+
+    public void reset() {
+        mVerbCount = 0;
+        mPointCount = 0;
+    }
+
+    public void set(@NonNull VectorPath src) {
+        mVerbs = Arrays.copyOf(src.mVerbs, Math.max(src.mVerbCount, 16));
+        mVerbCount = src.mVerbCount;
+        mPoints = Arrays.copyOf(src.mPoints, Math.max(src.mPointCount, 32));
+        mPointCount = src.mPointCount;
+    }
+
+    public boolean isEmpty() {
+        return mVerbCount == 0;
+    }
+
+    public int getVerbCount() {
+        return mVerbCount;
+    }
+
+    public byte getVerb(int i) {
+        return mVerbs[i];
+    }
+
+    /**
+     * Get our points, as x and y pairs, in order: one pair for each move and line, three for
+     * each cubic, none for each close. Don't modify it!
+     *
+     * @return Our points; only the first "getPointCount" are valid
+     */
+    @NonNull
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * @return The number of valid floats (not points!) in "getPoints"
+     */
+    public int getPointCount() {
+        return mPointCount;
+    }
+
+    private void addVerb(byte verb, int floats) {
+        if (mVerbCount == mVerbs.length) {
+            mVerbs = Arrays.copyOf(mVerbs, mVerbs.length * 2);
+        }
+        mVerbs[mVerbCount++] = verb;
+        if (mPointCount + floats > mPoints.length) {
+            mPoints = Arrays.copyOf(mPoints, Math.max(mPoints.length * 2, mPointCount + floats));
+        }
+    }
+
+    public void moveTo(float x, float y) {
+        addVerb(VERB_MOVE, 2);
+        mPoints[mPointCount++] = x;
+        mPoints[mPointCount++] = y;
+    }
+
+    public void lineTo(float x, float y) {
+        addVerb(VERB_LINE, 2);
+        mPoints[mPointCount++] = x;
+        mPoints[mPointCount++] = y;
+    }
+
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        addVerb(VERB_CUBIC, 6);
+        mPoints[mPointCount++] = x1;
+        mPoints[mPointCount++] = y1;
+        mPoints[mPointCount++] = x2;
+        mPoints[mPointCount++] = y2;
+        mPoints[mPointCount++] = x3;
+        mPoints[mPointCount++] = y3;
+    }
+
+    public void close() {
+        addVerb(VERB_CLOSE, 0);
+    }
+
+    /**
+     * Add a rectangle. Clockwise (on screen, where y points down) starts at the top left and
+     * heads right, the same as android.graphics.Path.
+     *
+     * @param left      Left bound
+     * @param top       Top bound
+     * @param right     Right bound
+     * @param bottom    Bottom bound
+     * @param clockwise Whether to wind clockwise
+     */
+    public void addRect(float left, float top, float right, float bottom, boolean clockwise) {
+        moveTo(left, top);
+        if (clockwise) {
+            lineTo(right, top);
+            lineTo(right, bottom);
+            lineTo(left, bottom);
+        } else {
+            lineTo(left, bottom);
+            lineTo(right, bottom);
+            lineTo(right, top);
+        }
+        close();
+    }
+
+    /**
+     * Add a rectangle with rounded corners. The radius is clamped to half the width or height.
+     *
+     * @param left      Left bound
+     * @param top       Top bound
+     * @param right     Right bound
+     * @param bottom    Bottom bound
+     * @param radius    Corner radius
+     * @param clockwise Whether to wind clockwise
+     */
+    public void addRoundRect(float left, float top, float right, float bottom, float radius,
+                             boolean clockwise) {
+        final float r = Math.min(radius,
+                Math.min(Math.abs(right - left), Math.abs(bottom - top)) / 2f);
+        if (r <= 0f) {
+            addRect(left, top, right, bottom, clockwise);
+            return;
+        }
+        final float k = r * (1f - KAPPA);
+        // Build it clockwise; for anticlockwise, reflect it top to bottom, which reverses it.
+        final float t = clockwise ? top : bottom;
+        final float b = clockwise ? bottom : top;
+        final float s = clockwise ? r : -r; // Vertical radius, signed
+        final float sk = clockwise ? k : -k;
+
+        moveTo(left + r, t);
+        lineTo(right - r, t);
+        cubicTo(right - k, t, right, t + sk, right, t + s);
+        lineTo(right, b - s);
+        cubicTo(right, b - sk, right - k, b, right - r, b);
+        lineTo(left + r, b);
+        cubicTo(left + k, b, left, b - sk, left, b - s);
+        lineTo(left, t + s);
+        cubicTo(left, t + sk, left + k, t, left + r, t);
+        close();
+    }
+
+    /**
+     * Add an ellipse that fits inside the given bounds.
+     *
+     * @param left      Left bound
+     * @param top       Top bound
+     * @param right     Right bound
+     * @param bottom    Bottom bound
+     * @param clockwise Whether to wind clockwise
+     */
+    public void addOval(float left, float top, float right, float bottom, boolean clockwise) {
+        final float cx = (left + right) / 2f;
+        final float cy = (top + bottom) / 2f;
+        final float a = (right - left) / 2f;
+        final float b = clockwise ? (bottom - top) / 2f : (top - bottom) / 2f; // Signed
+        final float ka = a * KAPPA;
+        final float kb = b * KAPPA;
+
+        moveTo(cx + a, cy);
+        cubicTo(cx + a, cy + kb, cx + ka, cy + b, cx, cy + b);
+        cubicTo(cx - ka, cy + b, cx - a, cy + kb, cx - a, cy);
+        cubicTo(cx - a, cy - kb, cx - ka, cy - b, cx, cy - b);
+        cubicTo(cx + ka, cy - b, cx + a, cy - kb, cx + a, cy);
+        close();
+    }
+
+    public void addCircle(float cx, float cy, float radius, boolean clockwise) {
+        addOval(cx - radius, cy - radius, cx + radius, cy + radius, clockwise);
+    }
+
+    /**
+     * Get the bounds of our control points, which contain our path.
+     *
+     * @param bounds Array of at least 4 floats to put left, top, right and bottom into
+     */
+    public void computeBounds(@NonNull float[] bounds) {
+        if (mPointCount == 0) {
+            Arrays.fill(bounds, 0, 4, 0f);
+            return;
+        }
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < mPointCount; i += 2) {
+            left = Math.min(left, mPoints[i]);
+            right = Math.max(right, mPoints[i]);
+            top = Math.min(top, mPoints[i + 1]);
+            bottom = Math.max(bottom, mPoints[i + 1]);
+        }
+        bounds[0] = left;
+        bounds[1] = top;
+        bounds[2] = right;
+        bounds[3] = bottom;
+    }
+
+    /**
+     * Flatten our path into polygons, one per contour, such that no point on our curves is
+     * further than "tolerance" from the polygon.
+     *
+     * @param tolerance The maximum distance between our curves and their polygons
+     * @return Our polygons, each as x and y pairs; each is implicitly closed
+     */
+    @NonNull
+    public List<float[]> flatten(float tolerance) {
+        List<float[]> polygons = new ArrayList<>();
+        float[] polygon = new float[16];
+        int n = 0;
+        int p = 0;
+        float x = 0f, y = 0f;
+        for (int i = 0; i < mVerbCount; i++) {
+            switch (mVerbs[i]) {
+                case VERB_MOVE: {
+                    if (n > 2) {
+                        polygons.add(Arrays.copyOf(polygon, n));
+                    }
+                    n = 0;
+                    // Fall through: start our new polygon.
+                }
+                case VERB_LINE: {
+                    x = mPoints[p++];
+                    y = mPoints[p++];
+                    polygon = append(polygon, n, x, y);
+                    n += 2;
+                    break;
+                }
+                case VERB_CUBIC: {
+                    final float x1 = mPoints[p++], y1 = mPoints[p++];
+                    final float x2 = mPoints[p++], y2 = mPoints[p++];
+                    final float x3 = mPoints[p++], y3 = mPoints[p++];
+                    // Wang's formula: enough segments to keep us within "tolerance".
+                    final double ddx = Math.max(
+                            Math.abs(x - 2f * x1 + x2), Math.abs(x1 - 2f * x2 + x3));
+                    final double ddy = Math.max(
+                            Math.abs(y - 2f * y1 + y2), Math.abs(y1 - 2f * y2 + y3));
+                    final int segments = Math.max(1, (int) Math.ceil(
+                            Math.sqrt(0.75d * Math.hypot(ddx, ddy) / tolerance)));
+                    for (int j = 1; j <= segments; j++) {
+                        final float t = (float) j / (float) segments;
+                        final float u = 1f - t;
+                        final float a = u * u * u, b = 3f * u * u * t;
+                        final float c = 3f * u * t * t, d = t * t * t;
+                        polygon = append(polygon, n,
+                                a * x + b * x1 + c * x2 + d * x3,
+                                a * y + b * y1 + c * y2 + d * y3);
+                        n += 2;
+                    }
+                    x = x3;
+                    y = y3;
+                    break;
+                }
+                case VERB_CLOSE:
+                default: {
+                    break;
+                }
+            }
+        }
+        if (n > 2) {
+            polygons.add(Arrays.copyOf(polygon, n));
+        }
+        return polygons;
+    }
+
+    @NonNull
+    private static float[] append(@NonNull float[] polygon, int n, float x, float y) {
+        if (n + 2 > polygon.length) {
+            polygon = Arrays.copyOf(polygon, polygon.length * 2);
+        }
+        polygon[n] = x;
+        polygon[n + 1] = y;
+        return polygon;
+    }
+
+    /**
+     * Intersect our path with the horizontal band between "top" and "bottom", which extends
+     * infinitely left and right. Curves are flattened to polygons first.
+     *
+     * @param top       Top of the band
+     * @param bottom    Bottom of the band
+     * @param tolerance The maximum distance between our curves and their polygons
+     */
+    public void intersectBand(float top, float bottom, float tolerance) {
+        List<float[]> polygons = flatten(tolerance);
+        reset();
+        for (float[] polygon : polygons) {
+            float[] clipped = clipY(polygon, polygon.length, top, true);
+            clipped = clipY(clipped, clipped.length, bottom, false);
+            if (clipped.length < 6) {
+                // Less than a triangle left. Nothing to see here!
+                continue;
+            }
+            moveTo(clipped[0], clipped[1]);
+            for (int i = 2; i < clipped.length; i += 2) {
+                lineTo(clipped[i], clipped[i + 1]);
+            }
+            close();
+        }
+    }
+
+    /**
+     * Clip a polygon to one side of a horizontal line (Sutherland-Hodgman).
+     *
+     * @param polygon The polygon, as x and y pairs
+     * @param n       The number of floats in "polygon"
+     * @param edge    The y coordinate of the line
+     * @param below   Whether to keep what's below the line (y >= edge) or above (y <= edge)
+     * @return The clipped polygon
+     */
+    @NonNull
+    private static float[] clipY(@NonNull float[] polygon, int n, float edge, boolean below) {
+        if (n < 2) {
+            return new float[0];
+        }
+        float[] result = new float[n * 2];
+        int m = 0;
+        float px = polygon[n - 2], py = polygon[n - 1];
+        boolean pIn = below ? py >= edge : py <= edge;
+        for (int i = 0; i < n; i += 2) {
+            final float x = polygon[i], y = polygon[i + 1];
+            final boolean in = below ? y >= edge : y <= edge;
+            if (in != pIn) {
+                // Crossing the line: add the crossing point.
+                final float t = (edge - py) / (y - py);
+                result = append(result, m, px + (x - px) * t, edge);
+                m += 2;
+            }
+            if (in) {
+                result = append(result, m, x, y);
+                m += 2;
+            }
+            px = x;
+            py = y;
+            pIn = in;
+        }
+        return Arrays.copyOf(result, m);
+    }
+
+    /**
+     * Write this path to "out", for caching or precomputing offline.
+     *
+     * @param out Where to write to
+     * @throws IOException If "out" does
+     */
+    public void writeTo(@NonNull DataOutput out) throws IOException {
+        out.writeInt(mVerbCount);
+        out.write(mVerbs, 0, mVerbCount);
+        out.writeInt(mPointCount);
+        for (int i = 0; i < mPointCount; i++) {
+            out.writeFloat(mPoints[i]);
+        }
+    }
+
+    /**
+     * Read a path written by "writeTo".
+     *
+     * @param in Where to read from
+     * @return The path we read
+     * @throws IOException If "in" does
+     */
+    @NonNull
+    public static VectorPath readFrom(@NonNull DataInput in) throws IOException {
+        VectorPath path = new VectorPath();
+        path.mVerbCount = in.readInt();
+        path.mVerbs = new byte[Math.max(path.mVerbCount, 16)];
+        in.readFully(path.mVerbs, 0, path.mVerbCount);
+        path.mPointCount = in.readInt();
+        path.mPoints = new float[Math.max(path.mPointCount, 32)];
+        for (int i = 0; i < path.mPointCount; i++) {
+            path.mPoints[i] = in.readFloat();
+        }
+        return path;
+    }
+}
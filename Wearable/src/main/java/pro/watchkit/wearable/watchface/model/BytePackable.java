@@ -54,6 +54,18 @@ public abstract class BytePackable {
         return mBytePacker.getStringFast();
     }
 
+    /**
+     * Pack ourselves and copy the raw (unencrypted) bytes into "dest" at "offset". That's
+     * BytePacker.LENGTH bytes, the same bytes getString() would have turned into hex.
+     *
+     * @param dest   Array to copy our packed bytes into
+     * @param offset Offset into "dest" to start at
+     */
+    void packInto(@NonNull byte[] dest, int offset) {
+        pack();
+        mBytePacker.copyInto(dest, offset);
+    }
+
     @NonNull
     String getHash() {
         pack();
@@ -771,7 +783,7 @@ public abstract class BytePackable {
      * hashed for transport and packing.
      */
     static final class BytePacker {
-        private static final int LENGTH = 16;
+        static final int LENGTH = 16;
         private byte[] mBytes;
         private int mBytePtr;
         private static Cipher mCipherDecrypt, mCipherEncrypt;
@@ -856,6 +868,33 @@ public abstract class BytePackable {
             return byteArrayToString(mBytes);
         }
 
+        /**
+         * Copy our raw bytes into "dest" at "offset".
+         *
+         * @param dest   Array to copy into; must have room for LENGTH bytes from "offset"
+         * @param offset Offset into "dest" to start at
+         */
+        void copyInto(@NonNull byte[] dest, int offset) {
+            System.arraycopy(mBytes, 0, dest, offset, LENGTH);
+        }
+
+        /**
+         * Append LENGTH raw bytes from "bytes" at "offset" to "sb" as hex, exactly as
+         * getStringFast would have. So we can go from packed bytes to a string without
+         * unpacking them into anything first.
+         *
+         * @param sb     StringBuilder to append to
+         * @param bytes  Raw packed bytes
+         * @param offset Offset into "bytes" to start at
+         */
+        static void appendStringFast(
+                @NonNull StringBuilder sb, @NonNull byte[] bytes, int offset) {
+            for (int j = offset; j < offset + LENGTH; j++) {
+                int v = bytes[j] & 0xFF;
+                sb.append((char) HEX_ARRAY[v >>> 4]).append((char) HEX_ARRAY[v & 0x0F]);
+            }
+        }
+
         void setStringFast(@NonNull String s) {
             if (s.length() < mBytes.length * 2) {
                 throw new Error("Invalid length, expected " + (mBytes.length * 2) +
@@ -17,13 +17,12 @@
 
 package pro.watchkit.wearable.watchface.model;
 
-import static java.util.stream.Collectors.toList;
-
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
 
 import pro.watchkit.wearable.watchface.R;
 import pro.watchkit.wearable.watchface.config.ColorSelectionActivity;
@@ -61,27 +60,29 @@ public class ColorsMaterialsConfigData extends ConfigData {
                                 WatchFaceGlobalDrawable.PART_RINGS_ALL,
                         WatchFaceSelectionActivity.class,
                         w -> {
-                            String originalString = w.getString();
+                            byte[] original = w.getPacked();
                             String originalName = w.getColorwayName();
-                            // Have we found the current colorway in our list of original colorways?
-                            AtomicBoolean found = new AtomicBoolean(false);
                             // Return an array with each permutation of colorway.
                             // Iterate over "originalColorways". Each key is a colorway.
-                            // So for each key, mutate our WatchFaceState and get its string.
-                            List<Permutation> s = w.getPaintBox().getOriginalColorways()
-                                    .entrySet().stream().map(entry -> {
-                                        // Set the colorway with this entry.
-                                        w.setColorway(entry.getValue());
-                                        // Mark "found" if this colorway is our current colorway.
-                                        if (w.mostlyEquals(originalString)) {
-                                            found.set(true);
-                                        }
-                                        return new Permutation(w.getString(), entry.getKey());
-                                    }).collect(toList());
+                            // So for each key, work out the packed bytes with that colorway
+                            // (just the colour bits change) and wrap them up.
+                            Map<String, Integer> colorways =
+                                    w.getPaintBox().getOriginalColorways();
+                            byte[][] packed = PermutationEngine.forColorways(w).permute(w,
+                                    colorways.values().stream().mapToInt(i -> i).toArray());
+                            List<Permutation> s = new ArrayList<>(packed.length + 1);
+                            // Have we found the current colorway in our list of original colorways?
+                            boolean found = false;
+                            int i = 0;
+                            for (String name : colorways.keySet()) {
+                                // Mark "found" if this colorway is our current colorway.
+                                found |= Arrays.equals(packed[i], original);
+                                s.add(new Permutation(packed[i++], name));
+                            }
 
-                            if (!found.get()) {
+                            if (!found) {
                                 // Our current colorway isn't in the list. Put it at the top.
-                                s.add(0, new Permutation(originalString, originalName));
+                                s.add(0, new Permutation(original, originalName));
                             }
 
                             return s.toArray(new Permutation[0]);
@@ -100,18 +101,21 @@ public class ColorsMaterialsConfigData extends ConfigData {
                                 WatchFaceGlobalDrawable.PART_HANDS |
                                 WatchFaceGlobalDrawable.PART_RINGS_ALL,
                         WatchFaceSelectionActivity.class,
-                        w -> Arrays.stream(
-                                // Return an array with each permutation of colorway.
-                                // Iterate over "originalColorway". Each key is a colorway.
-                                // So for each key, mutate our WatchFaceState and get its string.
-                                w.getPaintBox().getColorwayVariants()).mapToObj(
-                                colorway -> {
-                                    // Set the colorway with this entry.
-                                    w.setColorway(colorway);
-
-                                    return new Permutation(
-                                            w.getString(), w.getColorwayName());
-                                }).toArray(Permutation[]::new),
+                        w -> {
+                            // Return an array with each permutation of colorway.
+                            // Iterate over "originalColorway". Each key is a colorway.
+                            // So for each key, work out the packed bytes with that colorway.
+                            int[] variants = w.getPaintBox().getColorwayVariants();
+                            byte[][] packed =
+                                    PermutationEngine.forColorways(w).permute(w, variants);
+                            Permutation[] p = new Permutation[variants.length];
+                            for (int i = 0; i < variants.length; i++) {
+                                // Set the colorway with this entry, just to get its name.
+                                w.setColorway(variants[i]);
+                                p[i] = new Permutation(packed[i], w.getColorwayName());
+                            }
+                            return p;
+                        },
                         w -> w.getColor(PaintBox.ColorType.FILL),
                         w -> w.getColor(PaintBox.ColorType.ACCENT),
                         w -> w.getColor(PaintBox.ColorType.HIGHLIGHT),
@@ -169,7 +173,7 @@ public class ColorsMaterialsConfigData extends ConfigData {
                                 Permutation[] p = new Permutation[SIZE];
 
                                 // Slot 0 is the current selection.
-                                p[0] = new Permutation(clone.getString(), clone.getColorwayName());
+                                p[0] = new Permutation(clone.getPacked(), clone.getColorwayName());
 
                                 int colorTypeShift = r.nextInt(4);
 
@@ -199,7 +203,7 @@ public class ColorsMaterialsConfigData extends ConfigData {
                                             break;
                                     }
 
-                                    p[i] = new Permutation(clone.getString(), name);
+                                    p[i] = new Permutation(clone.getPacked(), name);
                                 }
                                 return p;
                             }
@@ -254,13 +258,13 @@ public class ColorsMaterialsConfigData extends ConfigData {
                                 Permutation[] p = new Permutation[SIZE];
 
                                 // Slot 0 is the current selection.
-                                p[0] = new Permutation(clone.getString(), clone.getWatchFaceName());
+                                p[0] = new Permutation(clone.getPacked(), clone.getWatchFaceName());
 
                                 // Roll the dice and generate a bunch of random watch faces!
                                 for (int i = 1; i < SIZE; i++) {
                                     String name = "Random Materials " + i;
                                     permuteRandomMaterials(clone);
-                                    p[i] = new Permutation(clone.getString(), name);
+                                    p[i] = new Permutation(clone.getPacked(), name);
                                 }
                                 return p;
                             }
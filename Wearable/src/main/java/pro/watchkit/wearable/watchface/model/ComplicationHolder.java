@@ -71,6 +71,19 @@ public final class ComplicationHolder {
         }
     }
 
+    /**
+     * Make a copy of "source", just enough of it to draw rings around: its ID, whether it's
+     * in the foreground and whether it's active. Without a ComplicationDrawable.
+     *
+     * @param source ComplicationHolder to copy
+     */
+    ComplicationHolder(@NonNull ComplicationHolder source) {
+        id = source.id;
+        isForeground = source.isForeground;
+        isActive = source.isActive;
+        mComplicationDrawable = null;
+    }
+
     public void setComplicationDrawableCallback(Drawable.Callback cb) {
         if (mComplicationDrawable != null) {
             mComplicationDrawable.setCallback(cb);
@@ -11,6 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -83,9 +84,21 @@ abstract public class ConfigData {
      */
     public static class Permutation {
         @NonNull
-        private final String mValue, mName;
+        private final String mName;
         private final int mSwatch;
 
+        /**
+         * Our string value, or null if we haven't made it from mPacked yet.
+         */
+        @Nullable
+        private String mValue;
+
+        /**
+         * Our packed bytes (see WatchFaceState.packInto), or null if we were given a string.
+         */
+        @Nullable
+        private final byte[] mPacked;
+
         /**
          * Construct the Permutation with the given string value and name.
          *
@@ -105,6 +118,32 @@ abstract public class ConfigData {
          */
         Permutation(@NonNull String value, @NonNull String name, int swatch) {
             mValue = value;
+            mPacked = null;
+            mName = name;
+            mSwatch = swatch;
+        }
+
+        /**
+         * Construct the Permutation with the given packed bytes and name.
+         *
+         * @param packed Packed bytes as received from WatchFaceState.packInto()
+         * @param name   Name of this Permutation
+         */
+        Permutation(@NonNull byte[] packed, @NonNull String name) {
+            this(packed, name, -1);
+        }
+
+        /**
+         * Construct the Permutation with the given packed bytes and name. We don't make a
+         * string out of the bytes until someone asks for one.
+         *
+         * @param packed Packed bytes as received from WatchFaceState.packInto()
+         * @param name   Name of this Permutation
+         * @param swatch Swatch to display for this Permutation, or -1 if not applicable
+         */
+        Permutation(@NonNull byte[] packed, @NonNull String name, int swatch) {
+            mValue = null;
+            mPacked = packed;
             mName = name;
             mSwatch = swatch;
         }
@@ -116,7 +155,40 @@ abstract public class ConfigData {
          */
         @NonNull
         public String getValue() {
-            return mValue;
+            if (mValue == null && mPacked != null) {
+                mValue = WatchFaceState.getString(mPacked, 0);
+            }
+            return Objects.requireNonNull(mValue);
+        }
+
+        /**
+         * Determines whether this Permutation is mostly equal to the given packed bytes.
+         * See WatchFaceState.mostlyEquals. If we were made from packed bytes, that's a
+         * straight comparison, no strings required.
+         *
+         * @param packed Packed bytes as received from WatchFaceState.getPacked()
+         * @return Whether they're mostly equal
+         */
+        public boolean mostlyEquals(@NonNull byte[] packed) {
+            if (mPacked != null) {
+                return Arrays.equals(mPacked, packed);
+            }
+            return WatchFaceState.mostlyEquals(getValue(), WatchFaceState.getString(packed, 0));
+        }
+
+        /**
+         * Pack this Permutation into "dest" at "offset", as raw bytes. See
+         * WatchFaceState.packInto.
+         *
+         * @param dest   Array to pack into
+         * @param offset Offset into "dest" to start at
+         */
+        void packInto(@NonNull byte[] dest, int offset) {
+            if (mPacked != null) {
+                System.arraycopy(mPacked, 0, dest, offset, mPacked.length);
+            } else {
+                WatchFaceState.packInto(getValue(), dest, offset);
+            }
         }
 
         /**
@@ -410,10 +482,12 @@ abstract public class ConfigData {
          */
         @NonNull
         public Permutation[] getPermutations(@NonNull WatchFaceState clone) {
+            // With only two, a PermutationEngine would check them both the slow way anyway.
+            // So just pack them; at least we needn't make strings until they're asked for.
             mSetter.accept(clone, false);
-            String key0 = clone.getString();
+            byte[] key0 = clone.getPacked();
             mSetter.accept(clone, true);
-            String key1 = clone.getString();
+            byte[] key1 = clone.getPacked();
 
             return new Permutation[]{
                     new Permutation(key0, "false"),
@@ -447,6 +521,18 @@ abstract public class ConfigData {
         @Nullable
         private final BytePackable.Material mSwatchMaterial;
 
+        /**
+         * Our PermutationEngine, made the first time we're asked for permutations.
+         */
+        @Nullable
+        private PermutationEngine mEngine;
+
+        /**
+         * Indices of each of our values, for our PermutationEngine.
+         */
+        @NonNull
+        private final int[] mIndices;
+
         /**
          * Create the given EnumMutator for the E of type Enum.
          *
@@ -469,6 +555,7 @@ abstract public class ConfigData {
             mValues = values;
             mSetter = setter;
             mSwatchMaterial = swatchMaterial;
+            mIndices = PermutationEngine.indices(values.length);
         }
 
         /**
@@ -480,9 +567,22 @@ abstract public class ConfigData {
          */
         @NonNull
         public Permutation[] getPermutations(@NonNull WatchFaceState clone) {
-            return Arrays.stream(mValues).map(h -> {
-                // Call "mSetter" on "clone" with enum value "h".
-                mSetter.accept(clone, h);
+            if (mEngine == null) {
+                mEngine = PermutationEngine.forValues(
+                        clone, mValues.length, (w, i) -> mSetter.accept(w, mValues[i]));
+            }
+            byte[][] packed = mEngine.permute(clone, mIndices);
+
+            // Each of our values is the same Enum, so get their names just the once.
+            String[] names = null;
+            if (mValues.length > 0 && mValues[0] instanceof BytePackable.EnumResourceId) {
+                BytePackable.EnumResourceId f = (BytePackable.EnumResourceId) mValues[0];
+                names = clone.getStringArrayResource(f.getNameResourceId());
+            }
+
+            Permutation[] permutations = new Permutation[mValues.length];
+            for (int i = 0; i < mValues.length; i++) {
+                E h = mValues[i];
 
                 // And, if it's a swatch, set the swatch material.
                 int swatch = -1;
@@ -496,15 +596,15 @@ abstract public class ConfigData {
                 String name;
                 if (h == null) {
                     name = "???";
-                } else if (h instanceof BytePackable.EnumResourceId) {
-                    BytePackable.EnumResourceId f = (BytePackable.EnumResourceId) h;
-                    name = clone.getStringArrayResource(f.getNameResourceId())[h.ordinal()];
+                } else if (names != null) {
+                    name = names[h.ordinal()];
                 } else {
                     name = h.name();
                 }
 
-                return new Permutation(clone.getString(), name, swatch);
-            }).toArray(Permutation[]::new);
+                permutations[i] = new Permutation(packed[i], name, swatch);
+            }
+            return permutations;
         }
     }
 
@@ -152,10 +152,34 @@ public class ConfigurationConfigData extends ConfigData {
                         new BooleanMutator(WatchFaceState::setUseLegacyEffects),
                         WatchFaceState::isDeveloperMode),
 
+                // Data for 'Vector Hands' in settings Activity.
+                new ToggleConfigItem(
+                        R.string.config_vector_hands_label,
+                        R.drawable.ic_settings,
+                        R.drawable.ic_settings,
+                        new BooleanMutator(WatchFaceState::setVectorHands),
+                        WatchFaceState::isDeveloperMode),
+
                 // Generate icon files.
                 new LabelConfigItem(R.string.config_generate_icon_files,
                         watchFaceState -> BuildConfig.DEBUG && watchFaceState.isDeveloperMode()),
 
+                // Simulate a day of decomposable mode.
+                new LabelConfigItem(R.string.config_simulate_decomposition,
+                        watchFaceState -> BuildConfig.DEBUG && watchFaceState.isDeveloperMode()),
+
+                // Benchmark building pip rings.
+                new LabelConfigItem(R.string.config_benchmark_pips,
+                        watchFaceState -> BuildConfig.DEBUG && watchFaceState.isDeveloperMode()),
+
+                // Benchmark drawing hands.
+                new LabelConfigItem(R.string.config_benchmark_hands,
+                        watchFaceState -> BuildConfig.DEBUG && watchFaceState.isDeveloperMode()),
+
+                // Benchmark generating permutations.
+                new LabelConfigItem(R.string.config_benchmark_permutations,
+                        watchFaceState -> BuildConfig.DEBUG && watchFaceState.isDeveloperMode()),
+
                 new PickerConfigItem(
                         R.string.config_factory_reset,
                         R.drawable.ic_settings,
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.model;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import pro.watchkit.wearable.watchface.R;
+
+/**
+ * An index of our gallery of watch face presets. It's built once per process, on its own
+ * thread, and never changes after that. Nobody ever waits for it: until it's built, we're
+ * just not ready, and whoever wants to know when we are can ask with "whenReady".
+ * <p>
+ * We look up presets by their packed bytes (see BytePackable.packInto), so a lookup is just
+ * a pack and a hash, no strings or AES. Each preset is in here twice: once as is, and once
+ * with its colorway bits masked out, so we can recognise a gallery preset in another colorway
+ * without having to zero the colorway of a live WatchFaceState to find out.
+ */
+final class GalleryIndex {
+    private static final String TAG = "GalleryIndex";
+
+    /**
+     * A comparator which sorts the characters 🅰, 🅱, 🅲, 🅳 etc. to the very top.
+     */
+    @NonNull
+    private static final Comparator<String> GALLERY_ORDER = (o1, o2) -> {
+        int c1 = o1.codePointAt(0);
+        int c2 = o2.codePointAt(0);
+        if (c1 > 0x1f000 && c2 > 0x1f000) {
+            return o1.compareTo(o2);
+        } else if (c1 > 0x1F000) {
+            return -1;
+        } else if (c2 > 0x1F000) {
+            return 1;
+        } else {
+            return o1.compareTo(o2);
+        }
+    };
+
+    /**
+     * The task that builds our index. It's started by the first call to "prepare".
+     */
+    @Nullable
+    private static FutureTask<GalleryIndex> sTask;
+
+    /**
+     * Callbacks waiting for our index to be built. Guarded by GalleryIndex.class.
+     */
+    @NonNull
+    private static final List<Runnable> sCallbacks = new ArrayList<>();
+
+    /**
+     * Gallery names to preset strings, in gallery order.
+     */
+    @NonNull
+    private final Map<String, String> mEntries;
+
+    /**
+     * Packed presets to gallery names.
+     */
+    @NonNull
+    private final Map<Key, String> mNames = new HashMap<>();
+
+    /**
+     * Packed presets, with their colorway bits masked out, to gallery names.
+     */
+    @NonNull
+    private final Map<Key, String> mNamesIgnoringColorway = new HashMap<>();
+
+    /**
+     * The bits of a packed preset that hold its colorway.
+     */
+    @NonNull
+    private final byte[] mColorwayMask = new byte[BytePackable.BytePacker.LENGTH];
+
+    /**
+     * Start building our index on its own thread, if we haven't already. Call this as early
+     * as you like; it's cheap after the first time.
+     *
+     * @param context Context to get our gallery resources from
+     */
+    static synchronized void prepare(@NonNull Context context) {
+        if (sTask == null) {
+            Context appContext = context.getApplicationContext() != null ?
+                    context.getApplicationContext() : context;
+            sTask = new FutureTask<GalleryIndex>(
+                    () -> new GalleryIndex(appContext.getResources())) {
+                @Override
+                protected void done() {
+                    List<Runnable> callbacks;
+                    synchronized (GalleryIndex.class) {
+                        callbacks = new ArrayList<>(sCallbacks);
+                        sCallbacks.clear();
+                    }
+                    callbacks.forEach(GalleryIndex::post);
+                }
+            };
+            Thread thread = new Thread(sTask, TAG);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Get our index if it's built, without waiting for it if it isn't.
+     *
+     * @param context Context to get our gallery resources from, if we haven't started yet
+     * @return Our GalleryIndex, or null if it's still being built
+     */
+    @Nullable
+    static GalleryIndex getIfReady(@NonNull Context context) {
+        prepare(context);
+        FutureTask<GalleryIndex> task;
+        synchronized (GalleryIndex.class) {
+            task = sTask;
+        }
+        //noinspection ConstantConditions
+        if (!task.isDone()) {
+            return null;
+        }
+        try {
+            return task.get(); // It's done, so this doesn't wait.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Couldn't build gallery index", e.getCause());
+        }
+    }
+
+    /**
+     * Run "callback" on the main thread once our index is built (which might be right away,
+     * if it already is). Use it to refresh anything drawn whilst we weren't ready.
+     *
+     * @param context  Context to get our gallery resources from, if we haven't started yet
+     * @param callback Runnable to post to the main thread
+     */
+    static void whenReady(@NonNull Context context, @NonNull Runnable callback) {
+        prepare(context);
+        synchronized (GalleryIndex.class) {
+            //noinspection ConstantConditions
+            if (!sTask.isDone()) {
+                // Our task runs this when it's done. (It checks under this same lock.)
+                sCallbacks.add(callback);
+                return;
+            }
+        }
+        post(callback);
+    }
+
+    /**
+     * Post "callback" to the main thread.
+     *
+     * @param callback Runnable to post
+     */
+    private static void post(@NonNull Runnable callback) {
+        new Handler(Looper.getMainLooper()).post(callback);
+    }
+
+    /**
+     * Get the gallery name of the given packed preset, without ever waiting on our index.
+     *
+     * @param context          Context to get our gallery resources from
+     * @param packed           Packed preset, as from WatchFacePreset.packInto
+     * @param ignoringColorway Whether to match the preset in any colorway
+     * @return Its gallery name, or null if it's not in the gallery (or we're not ready yet;
+     * see "whenReady")
+     */
+    @Nullable
+    static String findName(
+            @NonNull Context context, @NonNull byte[] packed, boolean ignoringColorway) {
+        GalleryIndex galleryIndex = getIfReady(context);
+        if (galleryIndex == null) {
+            return null;
+        }
+        return ignoringColorway ?
+                galleryIndex.getNameIgnoringColorway(packed) : galleryIndex.getName(packed);
+    }
+
+    private GalleryIndex(@NonNull Resources resources) {
+        final String[] galleryNames = resources.getStringArray(R.array.gallery_names);
+        final String[] galleryPresets = resources.getStringArray(R.array.gallery_presets);
+
+        Map<String, String> entries = new TreeMap<>(GALLERY_ORDER);
+        WatchFacePreset preset = new WatchFacePreset();
+        byte[] packed = new byte[BytePackable.BytePacker.LENGTH];
+
+        // Loop through each gallery name and preset.
+        for (int i = 0; i < galleryNames.length; i++) {
+            entries.putIfAbsent(galleryNames[i], galleryPresets[i]);
+            // Repack, so older versions of the packed string formats come out up-to-date.
+            preset.setString(galleryPresets[i]);
+            if (i == 0) {
+                findColorwayMask(preset, mColorwayMask);
+            }
+            preset.packInto(packed, 0);
+            mNames.putIfAbsent(new Key(packed, null), galleryNames[i]);
+            mNamesIgnoringColorway.putIfAbsent(new Key(packed, mColorwayMask), galleryNames[i]);
+        }
+
+        mEntries = Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * Work out which packed bits hold the colorway, by packing "preset" with all its colours
+     * zero, then all its colours 63. "preset" gets its colours back afterwards.
+     *
+     * @param preset WatchFacePreset to probe
+     * @param mask   Array to put the colorway bits into
+     */
+    private static void findColorwayMask(@NonNull WatchFacePreset preset, @NonNull byte[] mask) {
+        int fill = preset.mFillSixBitColor, accent = preset.mAccentSixBitColor,
+                highlight = preset.mHighlightSixBitColor, base = preset.mBaseSixBitColor;
+        byte[] zero = new byte[BytePackable.BytePacker.LENGTH];
+
+        preset.mFillSixBitColor = preset.mAccentSixBitColor =
+                preset.mHighlightSixBitColor = preset.mBaseSixBitColor = 0;
+        preset.packInto(zero, 0);
+        preset.mFillSixBitColor = preset.mAccentSixBitColor =
+                preset.mHighlightSixBitColor = preset.mBaseSixBitColor = 63;
+        preset.packInto(mask, 0);
+        for (int k = 0; k < mask.length; k++) {
+            mask[k] ^= zero[k];
+        }
+
+        preset.mFillSixBitColor = fill;
+        preset.mAccentSixBitColor = accent;
+        preset.mHighlightSixBitColor = highlight;
+        preset.mBaseSixBitColor = base;
+    }
+
+    /**
+     * Get our gallery entries: names to preset strings, in gallery order.
+     *
+     * @return Unmodifiable map of gallery entries
+     */
+    @NonNull
+    Map<String, String> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Get the gallery name of the given packed preset.
+     *
+     * @param packed Packed preset, as from WatchFacePreset.packInto
+     * @return Its gallery name, or null if it's not in the gallery
+     */
+    @Nullable
+    String getName(@NonNull byte[] packed) {
+        return mNames.get(new Key(packed, null));
+    }
+
+    /**
+     * Get the gallery name of the given packed preset, in whatever colorway.
+     *
+     * @param packed Packed preset, as from WatchFacePreset.packInto
+     * @return Its gallery name, or null if it's not in the gallery in any colorway
+     */
+    @Nullable
+    String getNameIgnoringColorway(@NonNull byte[] packed) {
+        return mNamesIgnoringColorway.get(new Key(packed, mColorwayMask));
+    }
+
+    /**
+     * A packed preset as a hash key. Our packed presets are 16 bytes, so that's two longs.
+     */
+    private static final class Key {
+        private final long mHigh, mLow;
+
+        /**
+         * Make a Key from "packed", with the bits in "mask" (if non-null) masked out.
+         *
+         * @param packed Packed preset
+         * @param mask   Bits to mask out, or null for none
+         */
+        Key(@NonNull byte[] packed, @Nullable byte[] mask) {
+            long high = 0L, low = 0L;
+            for (int k = 0; k < 8; k++) {
+                high = (high << 8) | ((packed[k] & ~(mask == null ? 0 : mask[k])) & 0xFF);
+                low = (low << 8) | ((packed[k + 8] & ~(mask == null ? 0 : mask[k + 8])) & 0xFF);
+            }
+            mHigh = high;
+            mLow = low;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return mHigh == k.mHigh && mLow == k.mLow;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(mHigh) + Long.hashCode(mLow);
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2018-2019 Terence Tan
+ * Copyright (C) 2018-2022 Terence Tan
  *
  *  This file is free software: you may copy, redistribute and/or modify it
  *  under the terms of the GNU General Public License as published by the
@@ -20,19 +20,61 @@ package pro.watchkit.wearable.watchface.model;
 
 import android.location.Location;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import net.e175.klaus.solarpositioning.DeltaT;
 import net.e175.klaus.solarpositioning.SPA;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
 
 public final class LocationCalculator {
+    /**
+     * How many milliseconds in a day?
+     */
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The interval between samples in our solar altitude curve. The sun moves at most a
+     * quarter of a degree per minute, and smoothly, so linear interpolation between samples
+     * five minutes apart is accurate to a small fraction of a degree. Plenty for dusk and dawn.
+     */
+    private static final long SAMPLE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The number of samples in our curve: one every SAMPLE_INTERVAL_MS, plus one for the
+     * end of the day so we can interpolate right up to midnight.
+     */
+    private static final int SAMPLE_COUNT = (int) (DAY_MS / SAMPLE_INTERVAL_MS) + 1;
+
     private final GregorianCalendar mCalendar;
     @Nullable
     private Location mLocation = null;
-    private long previousSunAltitudeTime = 0;
-    private double previousSunAltitude = 90d;
+
+    /**
+     * Our solar altitude curves, for a day at our current location: the sun's altitude at
+     * "mCurveStartTimes", then every SAMPLE_INTERVAL_MS after that for a day. We calculate
+     * them once with SPA (which is slow) then interpolate (which is fast). We keep two, so
+     * we can look ahead into tomorrow without throwing away today.
+     */
+    @NonNull
+    private final double[][] mCurves = new double[2][SAMPLE_COUNT];
+
+    /**
+     * The start of the day that each of "mCurves" was calculated for, or Long.MIN_VALUE if it
+     * needs to be calculated again (e.g. if our location changed).
+     */
+    @NonNull
+    private final long[] mCurveStartTimes = {Long.MIN_VALUE, Long.MIN_VALUE};
+
+    /**
+     * The index into "mCurves" that we used most recently.
+     */
+    private int mMostRecentCurve = 0;
 
     LocationCalculator(GregorianCalendar mCalendar) {
         this.mCalendar = mCalendar;
@@ -43,11 +85,22 @@ public final class LocationCalculator {
         // If null, preserve previous location.
         if (location != null && !location.equals(mLocation)) {
             mLocation = location;
-            // Invalidate previous sun altitude.
-            previousSunAltitudeTime = 0;
+            // Invalidate our solar altitude curves.
+            mCurveStartTimes[0] = Long.MIN_VALUE;
+            mCurveStartTimes[1] = Long.MIN_VALUE;
         }
     }
 
+    /**
+     * Do we know our location? If not, we assume the sun is directly overhead, and
+     * there's no dusk or dawn.
+     *
+     * @return Whether we have a location
+     */
+    boolean hasLocation() {
+        return mLocation != null;
+    }
+
     /**
      * Get the elevation of the sun, given the current location and date/time.
      * If location is unknown, return 90.
@@ -55,28 +108,68 @@ public final class LocationCalculator {
      * @return Elevation of the sun, between 90 and -90 degrees.
      */
     public double getSunAltitude() {
+        return getSunAltitude(mCalendar.getTimeInMillis());
+    }
+
+    /**
+     * Get the elevation of the sun, given the current location at the given time.
+     * If location is unknown, return 90.
+     *
+     * @param timeMillis Time to calculate for
+     * @return Elevation of the sun, between 90 and -90 degrees.
+     */
+    double getSunAltitude(long timeMillis) {
         if (mLocation == null) {
             // No location. Assume sun is directly overhead!
             return 90d;
         }
 
-        // Regenerate every 900 ms. Calls prior to this return cached value.
-        boolean regenerateSunAltitude =
-                mCalendar.getTimeInMillis() > previousSunAltitudeTime + 900;
-
-        if (regenerateSunAltitude) {
-            previousSunAltitude = 90d - SPA.calculateSolarPosition(
-                    mCalendar.toZonedDateTime(),
-                    mLocation.getLatitude(),
-                    mLocation.getLongitude(),
-                    mLocation.getAltitude(),
-                    DeltaT.estimate(mCalendar.toZonedDateTime().toLocalDate()),
+        // Find the start of our (local) day.
+        long dayStartTime = timeMillis - Math.floorMod(
+                timeMillis + mCalendar.getTimeZone().getOffset(timeMillis), DAY_MS);
+
+        // Find our curve for this day. If it's a new day or a new location, regenerate
+        // whichever curve we didn't use most recently.
+        if (mCurveStartTimes[mMostRecentCurve] != dayStartTime) {
+            mMostRecentCurve = 1 - mMostRecentCurve;
+            if (mCurveStartTimes[mMostRecentCurve] != dayStartTime) {
+                regenerateCurve(mLocation, dayStartTime, mMostRecentCurve);
+            }
+        }
+        double[] curve = mCurves[mMostRecentCurve];
+
+        // Interpolate between the two samples either side of us.
+        double sample = (double) (timeMillis - dayStartTime) / (double) SAMPLE_INTERVAL_MS;
+        int i = Math.min((int) sample, SAMPLE_COUNT - 2);
+        double d = sample - i;
+        return curve[i] * (1d - d) + curve[i + 1] * d;
+    }
+
+    /**
+     * Regenerate "mCurves[index]" for the day starting at "dayStartTime" at "location".
+     *
+     * @param location     Location to calculate for
+     * @param dayStartTime Start of the day to calculate for
+     * @param index        Which of "mCurves" to regenerate
+     */
+    private void regenerateCurve(@NonNull Location location, long dayStartTime, int index) {
+        ZonedDateTime dayStart =
+                ZonedDateTime.ofInstant(Instant.ofEpochMilli(dayStartTime), ZoneOffset.UTC);
+        // Delta T changes by fractions of a second per year, so once per day is fine.
+        double deltaT = DeltaT.estimate(dayStart.toLocalDate());
+
+        double[] curve = mCurves[index];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            curve[i] = 90d - SPA.calculateSolarPosition(
+                    dayStart.plusNanos(TimeUnit.MILLISECONDS.toNanos(i * SAMPLE_INTERVAL_MS)),
+                    location.getLatitude(),
+                    location.getLongitude(),
+                    location.getAltitude(),
+                    deltaT,
                     1000,
                     20).zenithAngle();
-            previousSunAltitudeTime = mCalendar.getTimeInMillis();
         }
-
-        return previousSunAltitude;
+        mCurveStartTimes[index] = dayStartTime;
     }
 
     /**
@@ -86,7 +179,18 @@ public final class LocationCalculator {
      * @return Ambient night tint multiplier
      */
     double getDuskDawnMultiplier() {
-        double altitude = getSunAltitude();
+        return getDuskDawnMultiplier(mCalendar.getTimeInMillis());
+    }
+
+    /**
+     * Get the ambient night tint multiplier at the given time, between 0.0d and 1.0d.
+     * 0.0 means no tint. 1.0 means maximum tint.
+     *
+     * @param timeMillis Time to calculate for
+     * @return Ambient night tint multiplier
+     */
+    double getDuskDawnMultiplier(long timeMillis) {
+        double altitude = getSunAltitude(timeMillis);
         if (altitude < -12d) {
             // Night
             return 1d;
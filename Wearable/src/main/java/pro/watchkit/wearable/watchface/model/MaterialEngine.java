@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package pro.watchkit.wearable.watchface.model;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.Type;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A RenderScript context and our "mapBitmap" script, for generating materials, along with
+ * the scratch allocations that go with them.
+ * <p>
+ * Every PaintBox used to create its own RenderScript context. And every WatchFaceState has a
+ * PaintBox, and every watch face preview in the config UI has a WatchFaceState. So scrolling
+ * a list of previews spun up a context per row. Instead, we keep a small pool of engines,
+ * shared by every PaintBox in the process, handed out round-robin. Synchronize on an
+ * engine whilst using it; its script has state, so it can only do one thing at a time.
+ * <p>
+ * We also keep the materials we've generated, keyed by their content (colors, gradient,
+ * texture and size). Lots of previews share the same materials, so most are never
+ * generated at all.
+ * <p>
+ * Where there's no RenderScript (on the JVM under Robolectric, say), an engine has no
+ * context or script, and PaintBox generates its materials in plain Java instead. See
+ * "hasRenderScript".
+ */
+final class MaterialEngine {
+    private static final String TAG = "MaterialEngine";
+
+    /**
+     * How many engines we keep. A handful is plenty; generating a material takes a few ms.
+     */
+    private static final int POOL_SIZE =
+            Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() / 2));
+
+    @NonNull
+    private static final MaterialEngine[] sPool = new MaterialEngine[POOL_SIZE];
+
+    /**
+     * The engine we hand out next.
+     */
+    private static int sNext = 0;
+
+    /**
+     * The most memory our generated materials can take up, in bytes. A material is a
+     * full-screen ARGB_8888 bitmap, so this is a few dozen of them.
+     */
+    private static final long MAX_MATERIAL_BYTES = 24L * 1024L * 1024L;
+
+    /**
+     * Our generated materials, keyed by their content, least-recently-used first.
+     */
+    @NonNull
+    private static final LinkedHashMap<List<Object>, Bitmap> sMaterials =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long sMaterialBytes = 0L;
+    private static int sHits = 0;
+    private static int sMisses = 0;
+
+    /**
+     * Our RenderScript context and script, or null if we couldn't get RenderScript here.
+     */
+    @Nullable
+    final RenderScript mRenderScript;
+    @Nullable
+    final ScriptC_mapBitmap mScriptC_mapBitmap;
+
+    /**
+     * Whether we've set our sparkle mappings into "mScriptC_mapBitmap" yet.
+     */
+    boolean mIsSparkleEffectSetup = false;
+
+    @Nullable
+    private Allocation mOklabPaletteAllocation;
+    @Nullable
+    private Allocation mOutputAllocation;
+    @Nullable
+    private Bitmap mOutputBitmap;
+
+    private MaterialEngine(@NonNull Context context) {
+        RenderScript renderScript = null;
+        ScriptC_mapBitmap script = null;
+        try {
+            renderScript = RenderScript.create(context);
+            if (renderScript != null) {
+                script = new ScriptC_mapBitmap(renderScript);
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // No RenderScript library, or it won't start. We'll do without.
+            Log.w(TAG, "RenderScript unavailable; generating materials in Java", e);
+            if (renderScript != null) {
+                renderScript.destroy();
+            }
+            renderScript = null;
+            script = null;
+        }
+        mRenderScript = script != null ? renderScript : null;
+        mScriptC_mapBitmap = script;
+    }
+
+    /**
+     * Whether this engine has RenderScript. If not, generate materials without it.
+     *
+     * @return Whether "mRenderScript" and "mScriptC_mapBitmap" are usable
+     */
+    boolean hasRenderScript() {
+        return mScriptC_mapBitmap != null;
+    }
+
+    /**
+     * Get an engine from our pool, creating it if it's not already there.
+     *
+     * @param context Context, of which we only keep the application context
+     * @return An engine, which may be shared with other PaintBoxes
+     */
+    @NonNull
+    static synchronized MaterialEngine acquire(@NonNull Context context) {
+        int i = sNext;
+        sNext = (sNext + 1) % POOL_SIZE;
+        if (sPool[i] == null) {
+            sPool[i] = new MaterialEngine(context.getApplicationContext());
+        }
+        return sPool[i];
+    }
+
+    /**
+     * Get our Oklab palette allocation, creating it if necessary. Synchronize on this engine.
+     *
+     * @return Our Oklab palette allocation
+     */
+    @NonNull
+    Allocation getOklabPaletteAllocation() {
+        assert mRenderScript != null;
+        if (mOklabPaletteAllocation == null) {
+            // Create with uchar4 elements, size 64x32.
+            mOklabPaletteAllocation = Allocation.createTyped(mRenderScript,
+                    Type.createXY(mRenderScript, Element.U8_4(mRenderScript), 64, 32));
+        }
+        return mOklabPaletteAllocation;
+    }
+
+    /**
+     * Get our output allocation, creating it if necessary, or if it's the wrong size.
+     * It's backed by "getOutputBitmap". Synchronize on this engine.
+     *
+     * @param width  Width of the output
+     * @param height Height of the output
+     * @return Our output allocation
+     */
+    @NonNull
+    Allocation getOutputAllocation(int width, int height) {
+        assert mRenderScript != null;
+        if (mOutputAllocation == null || mOutputBitmap == null ||
+                mOutputBitmap.getWidth() != width || mOutputBitmap.getHeight() != height) {
+            mOutputBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            PaintBox.destroyAllocation(mOutputAllocation);
+            mOutputAllocation = Allocation.createFromBitmap(mRenderScript, mOutputBitmap);
+        }
+        return mOutputAllocation;
+    }
+
+    /**
+     * Get the bitmap backing our output allocation. We reuse it for every material, so copy
+     * anything you want to keep. Synchronize on this engine.
+     *
+     * @return Our output bitmap
+     */
+    @NonNull
+    Bitmap getOutputBitmap() {
+        assert mOutputBitmap != null;
+        return mOutputBitmap;
+    }
+
+    /**
+     * Make a key for a material out of everything that goes into it.
+     *
+     * @param params Everything the material depends on
+     * @return A key for "getMaterial" and "putMaterial"
+     */
+    @NonNull
+    static List<Object> materialKey(@NonNull Object... params) {
+        return Arrays.asList(params);
+    }
+
+    /**
+     * Look up a material we've generated before.
+     *
+     * @param key The key for the material, from "materialKey"
+     * @return The material's bitmap, which must not be modified, or null if we don't have it
+     */
+    @Nullable
+    static synchronized Bitmap getMaterial(@NonNull List<Object> key) {
+        Bitmap result = sMaterials.get(key);
+        if (result == null) {
+            sMisses++;
+        } else {
+            sHits++;
+        }
+        return result;
+    }
+
+    /**
+     * Keep a material we've just generated, and throw out the oldest ones if we're over
+     * our budget. (We don't recycle those; they may still be in use by a Paint somewhere.)
+     *
+     * @param key      The key for the material, from "materialKey"
+     * @param material The material's bitmap, which must not be modified from here on
+     */
+    static synchronized void putMaterial(@NonNull List<Object> key, @NonNull Bitmap material) {
+        Bitmap previous = sMaterials.put(key, material);
+        if (previous != null) {
+            sMaterialBytes -= previous.getAllocationByteCount();
+        }
+        sMaterialBytes += material.getAllocationByteCount();
+
+        Iterator<Map.Entry<List<Object>, Bitmap>> i = sMaterials.entrySet().iterator();
+        while (sMaterialBytes > MAX_MATERIAL_BYTES && sMaterials.size() > 1 && i.hasNext()) {
+            sMaterialBytes -= i.next().getValue().getAllocationByteCount();
+            i.remove();
+        }
+    }
+
+    static synchronized int getHits() {
+        return sHits;
+    }
+
+    static synchronized int getMisses() {
+        return sMisses;
+    }
+
+    static synchronized int size() {
+        return sMaterials.size();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A list of WatchFaceState strings, kept as packed bytes (see WatchFaceState.packInto) until
+ * each one is asked for. It's how we hand a picker's permutations to the activity that shows
+ * them: the bytes go in the Intent, and each string is only made when its row is bound or
+ * prefetched, rather than all of them up front.
+ */
+public final class PackedStates {
+    /**
+     * Our packed bytes, WatchFaceState.PACKED_LENGTH for each entry, one after the other.
+     */
+    @NonNull
+    private final byte[] mPacked;
+
+    /**
+     * Strings we've made from mPacked so far; null for the ones we haven't.
+     */
+    @NonNull
+    private final String[] mStrings;
+
+    /**
+     * Construct from packed bytes, as from getPacked.
+     *
+     * @param packed Packed bytes, WatchFaceState.PACKED_LENGTH for each entry
+     */
+    public PackedStates(@NonNull byte[] packed) {
+        mPacked = packed;
+        mStrings = new String[packed.length / WatchFaceState.PACKED_LENGTH];
+    }
+
+    /**
+     * Construct from the given permutations, in order.
+     *
+     * @param permutations Permutations to pack
+     * @return PackedStates of each permutation
+     */
+    @NonNull
+    public static PackedStates of(@NonNull ConfigData.Permutation[] permutations) {
+        byte[] packed = new byte[permutations.length * WatchFaceState.PACKED_LENGTH];
+        for (int i = 0; i < permutations.length; i++) {
+            permutations[i].packInto(packed, i * WatchFaceState.PACKED_LENGTH);
+        }
+        return new PackedStates(packed);
+    }
+
+    /**
+     * Get our packed bytes, for putting in an Intent.
+     *
+     * @return Packed bytes, WatchFaceState.PACKED_LENGTH for each entry
+     */
+    @NonNull
+    public byte[] getPacked() {
+        return mPacked;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return mStrings.length;
+    }
+
+    /**
+     * Find the entry that's mostly equal (see WatchFaceState.mostlyEquals) to "s", comparing
+     * packed bytes so we don't make any strings.
+     *
+     * @param s String to look for, as from WatchFaceState.getString
+     * @return Index of the first matching entry, or -1 if there isn't one
+     */
+    public int indexOf(@NonNull String s) {
+        byte[] packed = new byte[WatchFaceState.PACKED_LENGTH];
+        WatchFaceState.packInto(s, packed, 0);
+        for (int i = 0; i < mStrings.length; i++) {
+            int offset = i * WatchFaceState.PACKED_LENGTH;
+            int k = 0;
+            while (k < WatchFaceState.PACKED_LENGTH && mPacked[offset + k] == packed[k]) {
+                k++;
+            }
+            if (k == WatchFaceState.PACKED_LENGTH) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the string of entry "index", making it if we haven't already.
+     *
+     * @param index Entry to get
+     * @return String suitable for WatchFaceState.setString
+     */
+    @NonNull
+    public String get(int index) {
+        if (mStrings[index] == null) {
+            mStrings[index] = WatchFaceState.getString(
+                    mPacked, index * WatchFaceState.PACKED_LENGTH);
+        }
+        return mStrings[index];
+    }
+}
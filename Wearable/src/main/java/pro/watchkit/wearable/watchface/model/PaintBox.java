@@ -23,11 +23,14 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.ComposeShader;
 import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PorterDuff.Mode;
+import android.graphics.PorterDuffColorFilter;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.RadialGradient;
 import android.graphics.Shader;
@@ -35,11 +38,9 @@ import android.graphics.SweepGradient;
 import android.graphics.Typeface;
 import android.graphics.Xfermode;
 import android.renderscript.Allocation;
-import android.renderscript.Element;
 import android.renderscript.RSRuntimeException;
 import android.renderscript.RenderScript;
 import android.renderscript.Short4;
-import android.renderscript.Type;
 import android.util.SparseArray;
 
 import androidx.annotation.ColorInt;
@@ -47,7 +48,9 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
@@ -88,12 +91,21 @@ public final class PaintBox {
     @NonNull
     private final GradientPaint mBaseAccentPaint = new GradientPaint();
     private int mPreviousSerial = -1;
+
+    /**
+     * Are we drafting? When drafting, we generate our materials at half the width and height
+     * (so a quarter of the pixels), for quick low-resolution previews. It's deliberately not
+     * part of our hash code: a draft is the same watch face, just rougher.
+     */
+    private boolean mDraft = false;
     @NonNull
     private final Context mContext;
+    /**
+     * Our RenderScript engine, for generating materials. Shared with other PaintBoxes, so
+     * synchronize on it whilst using it.
+     */
     @NonNull
-    private final RenderScript mRenderScript;
-    @NonNull
-    private final ScriptC_mapBitmap mScriptC_mapBitmap;
+    private final MaterialEngine mEngine;
 
     /**
      * A gradient or a texture. Effectively an 8-bit greyscale mask that is used as a lookup to a
@@ -106,6 +118,11 @@ public final class PaintBox {
          */
         private final SparseArray<Allocation> m8BitAllocations = new SparseArray<>();
 
+        /**
+         * The bitmaps of this GradTex, for when we don't have RenderScript.
+         */
+        private final SparseArray<Bitmap> m8BitBitmaps = new SparseArray<>();
+
         /**
          * Bitmap representation of this GradTex, backed by the Allocation.
          */
@@ -116,6 +133,16 @@ public final class PaintBox {
          */
         Canvas m8BitCanvas;
 
+        /**
+         * A scratch Paint and Path for "generate". Each GradTex has its own, since
+         * "getAllocation" only synchronizes on this GradTex, and other GradTexes may be
+         * generating at the same time on other threads.
+         */
+        @NonNull
+        final Paint mGenerationPaint = new Paint();
+        @NonNull
+        final Path mGenerationPath = new Path();
+
         /**
          * Generate this GradTex. Override and put class-specific drawing code here.
          *
@@ -168,6 +195,37 @@ public final class PaintBox {
 
             return result;
         }
+
+        /**
+         * Get the current Bitmap for compositing a material without RenderScript. Will
+         * internally call "generate" if not already done or if the height/width changed.
+         *
+         * @param height The requested height
+         * @param width  The requested width
+         * @return a Bitmap that can be used to composite a material, or null
+         */
+        @Nullable
+        synchronized Bitmap getBitmap(int height, int width) {
+            if (height <= 0 || width <= 0) {
+                return null;
+            }
+
+            int serial = Objects.hash(height, width);
+            Bitmap result = m8BitBitmaps.get(serial); // Get pre-cached Bitmap.
+            if (result == null) {
+                m8BitBitmap = Bitmap.createBitmap(
+                        width, height, Bitmap.Config.ARGB_8888);
+                m8BitCanvas = new Canvas(m8BitBitmap);
+
+                generate((float) height, (float) width);
+                result = m8BitBitmap;
+
+                // Cache for next time.
+                m8BitBitmaps.put(serial, result);
+            }
+
+            return result;
+        }
     }
 
     /**
@@ -225,10 +283,10 @@ public final class PaintBox {
 
             float mCenterX = width / 2f;
             float mCenterY = height / 2f;
-            mBrushedEffectPaint.reset();
-            mBrushedEffectPaint.setStyle(Paint.Style.FILL);
-            mBrushedEffectPaint.setShader(new SweepGradient(mCenterX, mCenterY, gradient, null));
-            m8BitCanvas.drawPaint(mBrushedEffectPaint);
+            mGenerationPaint.reset();
+            mGenerationPaint.setStyle(Paint.Style.FILL);
+            mGenerationPaint.setShader(new SweepGradient(mCenterX, mCenterY, gradient, null));
+            m8BitCanvas.drawPaint(mGenerationPaint);
             m8BitBitmap.prepareToDraw();
         }
     };
@@ -258,11 +316,11 @@ public final class PaintBox {
 
             float mCenterX = width / 2f;
             float mCenterY = height / 2f;
-            mBrushedEffectPaint.reset();
-            mBrushedEffectPaint.setStyle(Paint.Style.FILL);
-            mBrushedEffectPaint.setShader(new RadialGradient(
+            mGenerationPaint.reset();
+            mGenerationPaint.setStyle(Paint.Style.FILL);
+            mGenerationPaint.setShader(new RadialGradient(
                     mCenterX, mCenterY, mCenterY, gradient, null, Shader.TileMode.CLAMP));
-            m8BitCanvas.drawPaint(mBrushedEffectPaint);
+            m8BitCanvas.drawPaint(mGenerationPaint);
         }
     };
 
@@ -312,13 +370,13 @@ public final class PaintBox {
             Shader gradientC = new RadialGradient(
                     x2, y, radius, gradient, null, Shader.TileMode.CLAMP);
 
-            mBrushedEffectPaint.reset();
-            mBrushedEffectPaint.setShader(new ComposeShader(gradientA, new ComposeShader(
+            mGenerationPaint.reset();
+            mGenerationPaint.setShader(new ComposeShader(gradientA, new ComposeShader(
                     gradientB, gradientC, Mode.OVERLAY), Mode.OVERLAY));
 
             // Draw the gradient to the temp bitmap.
             m8BitCanvas.drawColor(Color.BLACK);
-            m8BitCanvas.drawPaint(mBrushedEffectPaint);
+            m8BitCanvas.drawPaint(mGenerationPaint);
         }
     };
 
@@ -348,27 +406,27 @@ public final class PaintBox {
             float offset = 0.5f * percent;
             float mCenter = Math.min(mCenterX, mCenterY);
 
-            mBrushedEffectPaint.reset();
-            mBrushedEffectPaint.setStyle(Paint.Style.STROKE);
-            mBrushedEffectPaint.setStrokeWidth(offset);
-            mBrushedEffectPaint.setStrokeJoin(Paint.Join.ROUND);
-            mBrushedEffectPaint.setAntiAlias(true);
+            mGenerationPaint.reset();
+            mGenerationPaint.setStyle(Paint.Style.STROKE);
+            mGenerationPaint.setStrokeWidth(offset);
+            mGenerationPaint.setStrokeJoin(Paint.Join.ROUND);
+            mGenerationPaint.setAntiAlias(true);
 
             // Spun metal circles?
             // 71 to cover the entire surface to the corners of a square device.
             float sqrt2 = (float) (Math.sqrt(2d));
             for (float max = 71f, i = max; i > 0f; i--) {
-                mBrushedEffectPath.reset();
-                mBrushedEffectPath.addCircle(mCenterX, mCenterY,
+                mGenerationPath.reset();
+                mGenerationPath.addCircle(mCenterX, mCenterY,
                         mCenter * sqrt2 * (i - 0.5f) / max, Path.Direction.CW);
 
-                mBrushedEffectPath.offset(-offset, -offset);
-                mBrushedEffectPaint.setColor(Color.WHITE);
-                m8BitCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                mGenerationPath.offset(-offset, -offset);
+                mGenerationPaint.setColor(Color.WHITE);
+                m8BitCanvas.drawPath(mGenerationPath, mGenerationPaint);
 
-                mBrushedEffectPath.offset(2f * offset, 2f * offset);
-                mBrushedEffectPaint.setColor(Color.BLACK);
-                m8BitCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                mGenerationPath.offset(2f * offset, 2f * offset);
+                mGenerationPaint.setColor(Color.BLACK);
+                m8BitCanvas.drawPath(mGenerationPath, mGenerationPaint);
             }
         }
     };
@@ -385,27 +443,27 @@ public final class PaintBox {
             float percent = mCenterX / 50f;
             float offset = 0.25f * percent;
 
-            mBrushedEffectPaint.reset();
-            mBrushedEffectPaint.setStyle(Paint.Style.STROKE);
-            mBrushedEffectPaint.setStrokeWidth(offset);
-            mBrushedEffectPaint.setStrokeJoin(Paint.Join.ROUND);
-            mBrushedEffectPaint.setAntiAlias(true);
+            mGenerationPaint.reset();
+            mGenerationPaint.setStyle(Paint.Style.STROKE);
+            mGenerationPaint.setStrokeWidth(offset);
+            mGenerationPaint.setStrokeJoin(Paint.Join.ROUND);
+            mGenerationPaint.setAntiAlias(true);
 
             // Crosshatch!
             for (float y = 0f - width; y <= height; y += height / 75f) {
                 // Draw top left to bottom right
-                mBrushedEffectPath.reset();
-                mBrushedEffectPath.moveTo(0, y);
-                mBrushedEffectPath.lineTo(width, y + width);
-                mBrushedEffectPaint.setColor(Math.random() < 0.5d ? Color.WHITE : Color.BLACK);
-                m8BitCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                mGenerationPath.reset();
+                mGenerationPath.moveTo(0, y);
+                mGenerationPath.lineTo(width, y + width);
+                mGenerationPaint.setColor(Math.random() < 0.5d ? Color.WHITE : Color.BLACK);
+                m8BitCanvas.drawPath(mGenerationPath, mGenerationPaint);
 
                 // Draw top right to bottom left
-                mBrushedEffectPath.reset();
-                mBrushedEffectPath.moveTo(width, y);
-                mBrushedEffectPath.lineTo(0, y + width);
-                mBrushedEffectPaint.setColor(Math.random() < 0.5d ? Color.BLACK : Color.WHITE);
-                m8BitCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                mGenerationPath.reset();
+                mGenerationPath.moveTo(width, y);
+                mGenerationPath.lineTo(0, y + width);
+                mGenerationPaint.setColor(Math.random() < 0.5d ? Color.BLACK : Color.WHITE);
+                m8BitCanvas.drawPath(mGenerationPath, mGenerationPaint);
             }
         }
     };
@@ -415,7 +473,7 @@ public final class PaintBox {
      *
      * @param allocation Allocation to destroy
      */
-    private static void destroyAllocation(@Nullable Allocation allocation) {
+    static void destroyAllocation(@Nullable Allocation allocation) {
         if (allocation != null) {
             try {
                 allocation.destroy();
@@ -440,9 +498,8 @@ public final class PaintBox {
         mShadowPaint = newDefaultPaint();
         mShadowPaint.setStyle(Paint.Style.FILL);
 
-        // Initialise RenderScript access objects.
-        mRenderScript = RenderScript.create(mContext);
-        mScriptC_mapBitmap = new ScriptC_mapBitmap(mRenderScript);
+        // Get a RenderScript engine from our pool.
+        mEngine = MaterialEngine.acquire(mContext);
     }
 
     /**
@@ -544,6 +601,47 @@ public final class PaintBox {
                 (int) Oklab[0], (int) (var_R * 255d), (int) (var_G * 255d), (int) (var_B * 255d));
     }
 
+    /**
+     * Generate a 64x32 Oklab palette between two colors, in plain Java. It's the same as
+     * "generateOklabPalette" in mapBitmap.rs: left to right goes from "oklabB" to "oklabA",
+     * and top to bottom goes from darker to lighter, by up to "dynamicRange".
+     *
+     * @param oklabA       Our first color, from "convertSRGBToOklab"
+     * @param oklabB       Our second color, from "convertSRGBToOklab"
+     * @param dynamicRange How much lighter or darker to go, from 0 to 50
+     * @return The palette, row by row
+     */
+    @NonNull
+    private static int[] generateOklabPalette(
+            @NonNull double[] oklabA, @NonNull double[] oklabB, double dynamicRange) {
+        // Our Oklab lightness goes from 0 to 4.64, not 0 to 100.
+        final double maxL = 4.641596888d;
+        final double d = dynamicRange / 100d * maxL;
+        @ColorInt int[] palette = new int[64 * 32];
+        double[] color = new double[4];
+
+        for (int y = 0; y < 32; y++) {
+            // Mix towards either pure black or pure white, with magnitude of "d".
+            double lightnessModifier = ((double) y - 15.5d) / 15.5d;
+            double lightnessL = lightnessModifier < 0d ? 0d : 100d;
+            double lightnessUV = lightnessModifier < 0d ? 0d : 0.0001d;
+            double k = Math.abs(lightnessModifier) * d * 0.01d;
+            for (int x = 0; x < 64; x++) {
+                double t = (double) x / 63d;
+                color[0] = 255d;
+                color[1] = Math.max(d, Math.min(maxL - d,
+                        oklabB[1] + (oklabA[1] - oklabB[1]) * t));
+                color[2] = oklabB[2] + (oklabA[2] - oklabB[2]) * t;
+                color[3] = oklabB[3] + (oklabA[3] - oklabB[3]) * t;
+                color[1] += (lightnessL - color[1]) * k;
+                color[2] += (lightnessUV - color[2]) * k;
+                color[3] += (lightnessUV - color[3]) * k;
+                palette[y * 64 + x] = color[1] <= 0d ? Color.BLACK : convertOklabToSRGB(color);
+            }
+        }
+        return palette;
+    }
+
     /**
      * Given two colors A and B, return an intermediate color between the two. The distance
      * between the two is given by "d"; 1.0 means return "colorA", 0.0 means return "colorB",
@@ -848,6 +946,40 @@ public final class PaintBox {
         return mAmbientPaintFaded;
     }
 
+    /**
+     * The tint currently applied to "mAmbientPaint" and "mAmbientPaintFaded".
+     */
+    @ColorInt
+    private int mAmbientPaintTint = Color.WHITE;
+
+    /**
+     * Tint our ambient paints with the given color. We draw ambient in white, so this has
+     * the effect of drawing ambient in "tint" instead. Color.WHITE means no tint at all,
+     * which is what you want when drawing into a cache or decomposition that'll be tinted
+     * later.
+     *
+     * @param tint Color to tint our ambient paints
+     */
+    public void setAmbientPaintTint(@ColorInt int tint) {
+        if (tint != mAmbientPaintTint) {
+            ColorFilter colorFilter = tint == Color.WHITE ? null :
+                    new PorterDuffColorFilter(tint, Mode.MULTIPLY);
+            mAmbientPaint.setColorFilter(colorFilter);
+            mAmbientPaintFaded.setColorFilter(colorFilter);
+            mAmbientPaintTint = tint;
+        }
+    }
+
+    /**
+     * Get the tint currently applied to our ambient paints, as set by "setAmbientPaintTint".
+     *
+     * @return Our current ambient paint tint, or Color.WHITE if none
+     */
+    @ColorInt
+    public int getAmbientPaintTint() {
+        return mAmbientPaintTint;
+    }
+
     @NonNull
     public Paint getShadowPaint() {
         regeneratePaints2();
@@ -941,9 +1073,28 @@ public final class PaintBox {
                 mHeight, mWidth);
     }
 
+    /**
+     * Set whether we're drafting. See "mDraft".
+     *
+     * @param draft Whether we're drafting
+     */
+    public void setDraft(boolean draft) {
+        mDraft = draft;
+    }
+
+    /**
+     * Are we drafting? If so, our materials are low-resolution, and whoever's drawing might
+     * like to skip any niceties too.
+     *
+     * @return Whether we're drafting
+     */
+    public boolean isDraft() {
+        return mDraft;
+    }
+
     private void regeneratePaints2() {
-        // Invalidate if any of our colors or styles have changed.
-        int currentSerial = hashCode();
+        // Invalidate if any of our colors or styles have changed. Or if we're (not) drafting.
+        int currentSerial = Objects.hash(hashCode(), mDraft);
         if (mPreviousSerial == currentSerial || mWidth <= 0 || mHeight <= 0) {
             return;
         }
@@ -1014,20 +1165,23 @@ public final class PaintBox {
     private final static Map<String, Integer> mOriginalColorways = new TreeMap<>();
 
     public Map<String, Integer> getOriginalColorways() {
-        if (mOriginalColorways.size() == 0) {
-            // Initialise on first use
-            final String[] colorwayNames =
-                    mContext.getResources().getStringArray(R.array.colorway_names);
-            final int[] colorwayColors =
-                    mContext.getResources().getIntArray(R.array.colorway_colors);
-
-            // Loop through each default colorway name and value.
-            // Add original named colorways first, before we add any variants.
-            for (int i = 0; i < colorwayNames.length; i++) {
-                mOriginalColorways.putIfAbsent(colorwayNames[i], colorwayColors[i]);
+        // Shared between threads (and PaintBoxes), so only let one at a time fill it in.
+        synchronized (mOriginalColorways) {
+            if (mOriginalColorways.size() == 0) {
+                // Initialise on first use
+                final String[] colorwayNames =
+                        mContext.getResources().getStringArray(R.array.colorway_names);
+                final int[] colorwayColors =
+                        mContext.getResources().getIntArray(R.array.colorway_colors);
+
+                // Loop through each default colorway name and value.
+                // Add original named colorways first, before we add any variants.
+                for (int i = 0; i < colorwayNames.length; i++) {
+                    mOriginalColorways.putIfAbsent(colorwayNames[i], colorwayColors[i]);
+                }
             }
+            return mOriginalColorways;
         }
-        return mOriginalColorways;
     }
 
     /**
@@ -1039,43 +1193,46 @@ public final class PaintBox {
      */
     @NonNull
     private String getColorwayName(int colorway) {
-        if (mColorways.size() == 0) {
-            // Initialise on first use
-            final String[] colorwayNames =
-                    mContext.getResources().getStringArray(R.array.colorway_names);
-            final int[] colorwayColors =
-                    mContext.getResources().getIntArray(R.array.colorway_colors);
-
-            // Loop through each default colorway name and value.
-            // Add original named colorways first, before we add any variants.
-            for (int i = 0; i < colorwayNames.length; i++) {
-                mColorways.putIfAbsent(colorwayColors[i], colorwayNames[i]);
-            }
+        // Shared between threads (and PaintBoxes), so only let one at a time fill it in.
+        synchronized (mColorways) {
+            if (mColorways.size() == 0) {
+                // Initialise on first use
+                final String[] colorwayNames =
+                        mContext.getResources().getStringArray(R.array.colorway_names);
+                final int[] colorwayColors =
+                        mContext.getResources().getIntArray(R.array.colorway_colors);
+
+                // Loop through each default colorway name and value.
+                // Add original named colorways first, before we add any variants.
+                for (int i = 0; i < colorwayNames.length; i++) {
+                    mColorways.putIfAbsent(colorwayColors[i], colorwayNames[i]);
+                }
 
-            // Loop through each default colorway name and value.
-            // Add all variants.
-            StringBuilder sb = new StringBuilder();
-            final String[] colorwayVariants =
-                    mContext.getResources().getStringArray(R.array.colorway_variant_names);
-            for (int i = 0; i < colorwayNames.length; i++) {
-                // Generate heaps of variants.
-                int[] p = getColorwayVariants(colorwayColors[i]);
-                for (int j = 1; j < p.length; j++) {
-                    // We start j at 1, as 0 is the unmodified variant (already added).
-                    sb.setLength(0); // Clear the StringBuilder
-                    // Generate the colorway name plus variant if applicable.
-                    sb.append(colorwayNames[i]);
-                    // Append variant name.
-                    sb.append(' ').append(colorwayVariants[j - 1]);
-                    mColorways.putIfAbsent(p[j], sb.toString());
+                // Loop through each default colorway name and value.
+                // Add all variants.
+                StringBuilder sb = new StringBuilder();
+                final String[] colorwayVariants =
+                        mContext.getResources().getStringArray(R.array.colorway_variant_names);
+                for (int i = 0; i < colorwayNames.length; i++) {
+                    // Generate heaps of variants.
+                    int[] p = getColorwayVariants(colorwayColors[i]);
+                    for (int j = 1; j < p.length; j++) {
+                        // We start j at 1, as 0 is the unmodified variant (already added).
+                        sb.setLength(0); // Clear the StringBuilder
+                        // Generate the colorway name plus variant if applicable.
+                        sb.append(colorwayNames[i]);
+                        // Append variant name.
+                        sb.append(' ').append(colorwayVariants[j - 1]);
+                        mColorways.putIfAbsent(p[j], sb.toString());
+                    }
                 }
             }
-        }
 
-        if (mColorways.containsKey(colorway)) {
-            return Objects.requireNonNull(mColorways.get(colorway));
-        } else {
-            return String.format("#%06x", colorway);
+            if (mColorways.containsKey(colorway)) {
+                return Objects.requireNonNull(mColorways.get(colorway));
+            } else {
+                return String.format("#%06x", colorway);
+            }
         }
     }
 
@@ -1172,8 +1329,24 @@ public final class PaintBox {
         paint.setTextAlign(Paint.Align.CENTER);
     }
 
-    private static Bitmap mTempBitmap;
-    private static Canvas mTempCanvas;
+    /**
+     * A scratch bitmap and canvas for generating materials, the size of the watch face.
+     */
+    private static final class TempBitmap {
+        @Nullable
+        Bitmap mBitmap;
+        @Nullable
+        Canvas mCanvas;
+    }
+
+    /**
+     * Our scratch bitmaps; see TempBitmap. There's one per thread, not one for everyone,
+     * since PaintBoxes on different threads (e.g. IconExporter's) generate materials at the
+     * same time. And not one per PaintBox, since there are lots of us and they're big.
+     */
+    @NonNull
+    private static final ThreadLocal<TempBitmap> mTempBitmaps =
+            ThreadLocal.withInitial(TempBitmap::new);
 
 //    private boolean mUseLegacyEffects;
 
@@ -1184,9 +1357,9 @@ public final class PaintBox {
     public enum ColorType {FILL, ACCENT, HIGHLIGHT, BASE, AMBIENT_DAY, AMBIENT_NIGHT}
 
     @NonNull
-    private final static Paint mBrushedEffectPaint = new Paint();
+    private final Paint mBrushedEffectPaint = new Paint();
     @NonNull
-    private final static Path mBrushedEffectPath = new Path();
+    private final Path mBrushedEffectPath = new Path();
     @NonNull
     private final Path mBrushedEffectPathUpper = new Path();
     @NonNull
@@ -1205,32 +1378,99 @@ public final class PaintBox {
     private final Paint mLightShadow = new Paint();
 
     /**
-     * Prepare the temp bitmap and canvas for use. Call before using "mTempBitmap" or
-     * "mTempCanvas".
+     * Prepare this thread's temp bitmap and canvas for use, at our width and height.
+     *
+     * @return This thread's TempBitmap, with "mBitmap" and "mCanvas" ready to go
      */
-    private void prepareTempBitmapForUse() {
-        if (mTempBitmap == null) {
+    @NonNull
+    private TempBitmap prepareTempBitmapForUse() {
+        TempBitmap temp = mTempBitmaps.get();
+        if (temp.mBitmap == null || temp.mCanvas == null) {
             // Initialise on first use.
-            mTempBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
-            mTempCanvas = new Canvas(mTempBitmap);
-        } else if (mTempBitmap.getWidth() == mWidth && mTempBitmap.getHeight() == mHeight) {
+            temp.mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            temp.mCanvas = new Canvas(temp.mBitmap);
+        } else if (temp.mBitmap.getWidth() == mWidth && temp.mBitmap.getHeight() == mHeight) {
             // Do nothing, our current bitmap is just right.
             // (Turn off overly nit-picky inspection. The logic reads better this way.)
             //noinspection UnnecessaryReturnStatement
-            return;
-        } else if (mTempBitmap.getAllocationByteCount() > mWidth * mHeight) {
+            return temp;
+        } else if (temp.mBitmap.getAllocationByteCount() > mWidth * mHeight) {
             // Width and height changed and we can reconfigure to re-use this object.
-            mTempCanvas.setBitmap(null);
+            temp.mCanvas.setBitmap(null);
             // Not sure above is technically needed but may cure esoteric bugs?
-            mTempBitmap.reconfigure(mWidth, mHeight, Bitmap.Config.ARGB_8888);
-            mTempCanvas.setBitmap(mTempBitmap);
+            temp.mBitmap.reconfigure(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            temp.mCanvas.setBitmap(temp.mBitmap);
         } else {
             // Width and height changed and we can't re-use this object, need a new one.
-            mTempCanvas.setBitmap(null);
+            temp.mCanvas.setBitmap(null);
             // Not sure above is technically needed but may cure esoteric bugs?
-            mTempBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
-            mTempCanvas.setBitmap(mTempBitmap);
+            temp.mBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+            temp.mCanvas.setBitmap(temp.mBitmap);
+        }
+        return temp;
+    }
+
+    /**
+     * The number of levels in the cLUT we use for "mapBitmapWith8LevelsFromX".
+     */
+    private static final int DECOMPOSITION_LEVELS = 8;
+
+    /**
+     * Fill "cLUT" with a gradient from black to "colorA", with each color (apart from the
+     * first) mapped to the RGB332 palette. Like we used in the Macintosh System 7 days.
+     * SidekickService can do it, but complains. So we'll do it for ourselves.
+     *
+     * @param colorA Brightest color in the palette
+     * @param cLUT   The array to put the results into
+     */
+    private static void getRGB332Gradient(@ColorInt int colorA, @NonNull @ColorInt int[] cLUT) {
+        getIntermediateColor(colorA, Color.BLACK, cLUT);
+
+        // Post-process fix up... start at 1, since 0 is black or transparent anyway.
+        for (int i = 1; i < cLUT.length; i++) {
+            int c = cLUT[i];
+            int r = Math.round(255f * Math.round((float) Color.red(c) * 7f / 255f) / 7f);
+            int g = Math.round(255f * Math.round((float) Color.green(c) * 7f / 255f) / 7f);
+            int b = Math.round(255f * Math.round((float) Color.blue(c) * 3f / 255f) / 3f);
+            cLUT[i] = Color.argb(255, r, g, b);
+        }
+    }
+
+    /**
+     * Our most recent call to "getQuantizedTint", cached, since we get called for the same
+     * tint over and over (once per hand, per decomposition).
+     */
+    @ColorInt
+    private int mQuantizedTintColor = Color.TRANSPARENT;
+    private long mQuantizedTint = -1L;
+
+    /**
+     * Quantize "colorA" into the steps that "mapBitmapWith8LevelsFromBlack" and
+     * "mapBitmapWith8LevelsFromTransparent" can actually tell apart. Two tints with the same
+     * quantized tint give exactly the same mapped bitmaps, so it's useful as a cache key.
+     * During dusk and dawn, the ambient tint changes continuously but the quantized tint
+     * only changes every so often.
+     * <p>
+     * The result is the RGB332 gradient from "colorA", one byte per level, packed into a long.
+     *
+     * @param colorA Brightest color in the palette
+     * @return The quantized tint
+     */
+    public long getQuantizedTint(@ColorInt int colorA) {
+        if (colorA != mQuantizedTintColor || mQuantizedTint == -1L) {
+            @ColorInt int[] cLUT8 = new int[DECOMPOSITION_LEVELS];
+            getRGB332Gradient(colorA, cLUT8);
+            long result = 0L;
+            // Start at 1, since 0 is black or transparent anyway.
+            for (int i = 1; i < DECOMPOSITION_LEVELS; i++) {
+                int c = cLUT8[i];
+                result = (result << 8) | (Color.red(c) >> 5 << 5) |
+                        (Color.green(c) >> 5 << 2) | (Color.blue(c) >> 6);
+            }
+            mQuantizedTintColor = colorA;
+            mQuantizedTint = result;
         }
+        return mQuantizedTint;
     }
 
     /**
@@ -1278,23 +1518,12 @@ public final class PaintBox {
     private void mapBitmapWith8LevelsFromX(
             @ColorInt int colorA, @ColorInt int colorX,
             @NonNull Bitmap sourceBitmap, @NonNull Bitmap destBitmap) {
-        int size = 8;
+        int size = DECOMPOSITION_LEVELS;
         // First: fill an int[] with 'size' intermediate colors.
         @ColorInt int[] cLUT8 = new int[size];
-        getIntermediateColor(colorA, Color.BLACK, cLUT8);
+        getRGB332Gradient(colorA, cLUT8);
         cLUT8[0] = colorX;
 
-        // Post-process fix up... start at 1, since 0 is already OK.
-        for (int i = 1; i < size; i++) {
-            // Map each color to RGB332 format. Like we used in the Macintosh System 7 days.
-            // SidekickService can do it, but complains. So we'll do it for ourselves.
-            int c = cLUT8[i];
-            int r = Math.round(255f * Math.round((float) Color.red(c) * 7f / 255f) / 7f);
-            int g = Math.round(255f * Math.round((float) Color.green(c) * 7f / 255f) / 7f);
-            int b = Math.round(255f * Math.round((float) Color.blue(c) * 3f / 255f) / 3f);
-            cLUT8[i] = Color.argb(255, r, g, b);
-        }
-
         // Next: expand that int[8] into int[256] as follows:
         // cLUT256[0..31] := cLUT8[0]
         // cLUT256[32..63] := cLUT8[1]
@@ -1306,15 +1535,28 @@ public final class PaintBox {
         }
 
         // Finally: map that cLUT onto the destination bitmap with "mapBitmap".
-        mScriptC_mapBitmap.set_mapping(cLUT256);
-        mScriptC_mapBitmap.invoke_convertMapping();
-
-        Allocation in = Allocation.createFromBitmap(mRenderScript, sourceBitmap);
-        Allocation out = Allocation.createFromBitmap(mRenderScript, destBitmap);
-        mScriptC_mapBitmap.forEach_mapBitmap(in, out);
-        out.copyTo(destBitmap);
-        destroyAllocation(in);
-        destroyAllocation(out);
+        if (!mEngine.hasRenderScript()) {
+            // No RenderScript? Map it ourselves; "mapBitmap" looks up each pixel's blue.
+            int width = sourceBitmap.getWidth(), height = sourceBitmap.getHeight();
+            int[] pixels = new int[width * height];
+            sourceBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = cLUT256[Color.blue(pixels[i])];
+            }
+            destBitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+            return;
+        }
+        synchronized (mEngine) {
+            mEngine.mScriptC_mapBitmap.set_mapping(cLUT256);
+            mEngine.mScriptC_mapBitmap.invoke_convertMapping();
+
+            Allocation in = Allocation.createFromBitmap(mEngine.mRenderScript, sourceBitmap);
+            Allocation out = Allocation.createFromBitmap(mEngine.mRenderScript, destBitmap);
+            mEngine.mScriptC_mapBitmap.forEach_mapBitmap(in, out);
+            out.copyTo(destBitmap);
+            destroyAllocation(in);
+            destroyAllocation(out);
+        }
     }
 
     private class GradientPaint extends Paint {
@@ -1385,8 +1627,11 @@ public final class PaintBox {
         void setColors(int sixBitColorA, int sixBitColorB,
                        @NonNull MaterialGradient materialGradient,
                        @NonNull MaterialTexture materialTexture) {
+            // If we're drafting, generate at half our width and height.
+            final int height = mDraft ? Math.max(1, mHeight / 2) : mHeight;
+            final int width = mDraft ? Math.max(1, mWidth / 2) : mWidth;
             int customHashCode = Objects.hash(
-                    sixBitColorA, sixBitColorB, materialGradient, materialTexture, mHeight, mWidth);
+                    sixBitColorA, sixBitColorB, materialGradient, materialTexture, height, width);
             if (customHashCode == mCustomHashCode) {
                 return; // If there's no change, don't update.
             }
@@ -1395,21 +1640,68 @@ public final class PaintBox {
             @ColorInt int colorA = PaintBox.this.getColor(sixBitColorA);
             @ColorInt int colorB = PaintBox.this.getColor(sixBitColorB);
 
-            DebugTiming.start("PaintBox$GradientPaint.setColors()");
-            // Initialise Oklab palette.
-            if (mOklabPaletteAllocation == null) {
-                // Create with uchar4 elements, size 256x256.
-                mOklabPaletteAllocation = Allocation.createTyped(mRenderScript,
-                        Type.createXY(mRenderScript, Element.U8_4(mRenderScript), 64, 32));
+            // Have we (or any other PaintBox) generated this material already? If so, use it.
+            final boolean flatB = materialGradient == MaterialGradient.FLAT &&
+                    this == mAccentHighlightPaint;
+            List<Object> key = MaterialEngine.materialKey(colorA, colorB,
+                    materialGradient, materialTexture, flatB, height, width);
+            Bitmap material = MaterialEngine.getMaterial(key);
+            if (material == null) {
+                synchronized (mEngine) {
+                    material = mEngine.hasRenderScript() ?
+                            generateMaterial(colorA, colorB,
+                                    materialGradient, materialTexture, flatB, height, width) :
+                            generateMaterialInJava(colorA, colorB,
+                                    materialGradient, materialTexture, flatB, height, width);
+                }
+                if (material != null) {
+                    MaterialEngine.putMaterial(key, material);
+                } else {
+                    // RenderScript failed. Erase to a flat color. Looks like a glitch but better
+                    // than crashing? And don't keep it, so whoever wants it next tries again.
+                    material = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                    material.eraseColor(flatB ? colorB : colorA);
+                }
             }
 
-            // Initialise output objects.
-            if (mOutputAllocation == null || mOutputBitmap == null ||
-                    mOutputBitmap.getWidth() != mWidth || mOutputBitmap.getHeight() != mHeight) {
-                mOutputBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
-                destroyAllocation(mOutputAllocation);
-                mOutputAllocation = Allocation.createFromBitmap(mRenderScript, mOutputBitmap);
+            // And use this bitmap as a shader for our paint.
+            BitmapShader shader = new BitmapShader(
+                    material, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+            if (height != mHeight || width != mWidth) {
+                // Low-resolution material; stretch it over the whole watch face.
+                Matrix m = new Matrix();
+                m.setScale((float) mWidth / (float) width, (float) mHeight / (float) height);
+                shader.setLocalMatrix(m);
             }
+            setShader(shader);
+        }
+
+        /**
+         * Generate a material bitmap using our RenderScript engine. Synchronize on "mEngine"
+         * whilst calling this.
+         *
+         * @param colorA           Our first color
+         * @param colorB           Our second color
+         * @param materialGradient Our gradient
+         * @param materialTexture  Our texture
+         * @param flatB            For a FLAT gradient, whether it's flat "colorB" (rather
+         *                         than flat "colorA")
+         * @param height           Height of the material
+         * @param width            Width of the material
+         * @return A new bitmap of the material, or null if RenderScript failed
+         */
+        @Nullable
+        private Bitmap generateMaterial(@ColorInt int colorA, @ColorInt int colorB,
+                                        @NonNull MaterialGradient materialGradient,
+                                        @NonNull MaterialTexture materialTexture,
+                                        boolean flatB, int height, int width) {
+            DebugTiming.start("PaintBox$GradientPaint.setColors()");
+            // Initialise Oklab palette and output objects.
+            Allocation oklabPaletteAllocation = mEngine.getOklabPaletteAllocation();
+            Allocation outputAllocation = mEngine.getOutputAllocation(width, height);
+            Bitmap outputBitmap = mEngine.getOutputBitmap();
+            RenderScript rs = mEngine.mRenderScript;
+            ScriptC_mapBitmap script = mEngine.mScriptC_mapBitmap;
             DebugTiming.checkpoint("init");
 
             // Generate our Oklab palette.
@@ -1424,10 +1716,10 @@ public final class PaintBox {
                 dynamicRange = 10f;
             }
 
-            mScriptC_mapBitmap.invoke_prepareOklabPalette(
+            script.invoke_prepareOklabPalette(
                     (float) cA[1], (float) cA[2], (float) cA[3],
                     (float) cB[1], (float) cB[2], (float) cB[3], dynamicRange);
-            mScriptC_mapBitmap.forEach_generateOklabPalette(mOklabPaletteAllocation);
+            script.forEach_generateOklabPalette(oklabPaletteAllocation);
             DebugTiming.checkpoint("generateOklabPalette");
 
             // Get Allocations for our material gradient and material texture.
@@ -1436,35 +1728,35 @@ public final class PaintBox {
                 case FLAT:
                     // Set to "colorA", except if this is mAccentHighlightPaint.
                     // So our four paints have four distinct colors.
-                    GradTex g = (this == mAccentHighlightPaint ? mFlatGradB : mFlatGradA);
-                    gradientAllocation = g.getAllocation(mHeight, mWidth, mRenderScript);
+                    GradTex g = (flatB ? mFlatGradB : mFlatGradA);
+                    gradientAllocation = g.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialGradient.FLAT");
                     break;
                 case SWEEP:
-                    gradientAllocation = mSweepGrad.getAllocation(mHeight, mWidth, mRenderScript);
+                    gradientAllocation = mSweepGrad.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialGradient.SWEEP");
                     break;
                 case RADIAL:
-                    gradientAllocation = mRadialGrad.getAllocation(mHeight, mWidth, mRenderScript);
+                    gradientAllocation = mRadialGrad.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialGradient.RADIAL");
                     break;
                 default:
                 case RIPPLE:
-                    gradientAllocation = mRippleGrad.getAllocation(mHeight, mWidth, mRenderScript);
+                    gradientAllocation = mRippleGrad.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialGradient.TRIANGLE");
                     break;
             }
             switch (materialTexture) {
                 case NONE:
-                    textureAllocation = mNoneTex.getAllocation(mHeight, mWidth, mRenderScript);
+                    textureAllocation = mNoneTex.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialTexture.NONE");
                     break;
                 case SPUN:
-                    textureAllocation = mSpunTex.getAllocation(mHeight, mWidth, mRenderScript);
+                    textureAllocation = mSpunTex.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialTexture.SPUN");
                     break;
                 case WEAVE:
-                    textureAllocation = mCrosshatchTex.getAllocation(mHeight, mWidth, mRenderScript);
+                    textureAllocation = mCrosshatchTex.getAllocation(height, width, rs);
                     DebugTiming.checkpoint("MaterialTexture.WEAVE");
                     break;
                 default:
@@ -1479,52 +1771,131 @@ public final class PaintBox {
             // We've generated our gradient and our texture.
             // We've generated our Oklab palette with our selected colors.
             // Now combine these to get an output!
-            mScriptC_mapBitmap.invoke_prepareOklabTransform(mOklabPaletteAllocation);
+            script.invoke_prepareOklabTransform(oklabPaletteAllocation);
             try {
                 if (materialTexture != MaterialTexture.HEX) {
                     // RenderScript transform the material according to gradient and texture.
-                    mScriptC_mapBitmap.forEach_generateOklabTransform(
-                            gradientAllocation, textureAllocation, mOutputAllocation);
+                    script.forEach_generateOklabTransform(
+                            gradientAllocation, textureAllocation, outputAllocation);
                 } else {
                     // For HEX, we run a special RenderScript code path to make it sparkle.
-                    mScriptC_mapBitmap.forEach_generateOklabTransformAndSparkle(
-                            gradientAllocation, mOutputAllocation);
+                    script.forEach_generateOklabTransformAndSparkle(
+                            gradientAllocation, outputAllocation);
                 }
                 DebugTiming.checkpoint("prepare+generateOklabTransform");
 
                 // RenderScript has done its magic. Copy the result back to our bitmap.
-                mOutputAllocation.copyTo(mOutputBitmap);
+                outputAllocation.copyTo(outputBitmap);
             } catch (RSRuntimeException ex) {
                 // Seen this crop up -- try to catch it.
                 android.util.Log.d("PaintBox", "setColors", ex);
-                // Erase to a flat color. Looks like a glitch but better than crashing?
-                mOutputBitmap.eraseColor(this == mAccentHighlightPaint ? colorB : colorA);
                 DebugTiming.checkpoint("EXCEPTION");
+                DebugTiming.endAndWrite();
+                return null;
             }
 
-            // And use this bitmap as a shader for our paint.
-            setShader(new BitmapShader(mOutputBitmap,
-                    Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
-            DebugTiming.checkpoint("copyTo+setShader");
+            // Our output bitmap is reused for the next material, so keep a copy.
+            Bitmap result = outputBitmap.copy(Bitmap.Config.ARGB_8888, false);
+            DebugTiming.checkpoint("copyTo+copy");
 
             DebugTiming.endAndWrite();
+            return result;
         }
 
-        private Allocation mOklabPaletteAllocation, mOutputAllocation;
-        private Bitmap mOutputBitmap;
+        /**
+         * Generate a material bitmap in plain Java, for when we don't have RenderScript. It's
+         * the same Oklab palette and lookup as "generateMaterial", just a lot slower, and
+         * without the HEX texture's sparkle.
+         *
+         * @param colorA           Our first color
+         * @param colorB           Our second color
+         * @param materialGradient Our gradient
+         * @param materialTexture  Our texture
+         * @param flatB            For a FLAT gradient, whether it's flat "colorB" (rather
+         *                         than flat "colorA")
+         * @param height           Height of the material
+         * @param width            Width of the material
+         * @return A new bitmap of the material
+         */
+        @NonNull
+        private Bitmap generateMaterialInJava(@ColorInt int colorA, @ColorInt int colorB,
+                                              @NonNull MaterialGradient materialGradient,
+                                              @NonNull MaterialTexture materialTexture,
+                                              boolean flatB, int height, int width) {
+            // For material textures that make the color lighter or darker, give us some headroom.
+            double dynamicRange = 0d;
+            if (materialTexture == MaterialTexture.SPUN
+                    || materialTexture == MaterialTexture.WEAVE) {
+                // Clamp the lightness components to between 10 and 90.
+                dynamicRange = 10d;
+            }
+            @ColorInt int[] palette = generateOklabPalette(
+                    convertSRGBToOklab(colorA), convertSRGBToOklab(colorB), dynamicRange);
 
-        @Override
-        protected void finalize() throws Throwable {
-            super.finalize();
+            GradTex gradient;
+            switch (materialGradient) {
+                case FLAT:
+                    gradient = flatB ? mFlatGradB : mFlatGradA;
+                    break;
+                case SWEEP:
+                    gradient = mSweepGrad;
+                    break;
+                case RADIAL:
+                    gradient = mRadialGrad;
+                    break;
+                default:
+                case RIPPLE:
+                    gradient = mRippleGrad;
+                    break;
+            }
+            GradTex texture;
+            switch (materialTexture) {
+                case NONE:
+                    texture = mNoneTex;
+                    break;
+                case SPUN:
+                    texture = mSpunTex;
+                    break;
+                case WEAVE:
+                    texture = mCrosshatchTex;
+                    break;
+                default:
+                case HEX:
+                    texture = null; // HEX is the middle row of our palette, plus sparkle.
+                    break;
+            }
 
-            destroyAllocation(mOklabPaletteAllocation);
-            destroyAllocation(mOutputAllocation);
+            // Look up each pixel in our palette: its gradient's red picks the column, and
+            // its texture's red picks the row. Same as "generateOklabTransform".
+            int[] gradientPixels = new int[width * height];
+            int[] texturePixels = new int[width * height];
+            Bitmap gradientBitmap = gradient.getBitmap(height, width);
+            assert gradientBitmap != null;
+            gradientBitmap.getPixels(gradientPixels, 0, width, 0, 0, width, height);
+            if (texture != null) {
+                Bitmap textureBitmap = texture.getBitmap(height, width);
+                assert textureBitmap != null;
+                textureBitmap.getPixels(texturePixels, 0, width, 0, 0, width, height);
+            } else {
+                Arrays.fill(texturePixels, Color.rgb(128, 128, 128));
+            }
+            for (int i = 0; i < gradientPixels.length; i++) {
+                gradientPixels[i] = palette[(Color.red(texturePixels[i]) / 8) * 64 +
+                        Color.red(gradientPixels[i]) / 4];
+            }
+
+            Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            result.setPixels(gradientPixels, 0, width, 0, 0, width, height);
+            return result;
         }
 
         @SuppressWarnings("unused") // We'll refactor this later; R8 will hopefully ignore this.
         private BitmapShader generateWeaveEffect() {
             // Attempt to return an existing BitmapShader from the cache if we have one.
-            WeakReference<BitmapShader> cache = mBitmapShaderCache.get(mCustomHashCode);
+            WeakReference<BitmapShader> cache;
+            synchronized (mBitmapShaderCache) { // We're shared between threads.
+                cache = mBitmapShaderCache.get(mCustomHashCode);
+            }
             if (cache != null) {
                 // Well, we have an existing BitmapShader, but it may have been garbage collected...
                 BitmapShader result = cache.get();
@@ -1619,10 +1990,12 @@ public final class PaintBox {
 
             brushedEffectCanvas.drawPaint(this);
 
-            prepareTempBitmapForUse();
+            TempBitmap temp = prepareTempBitmapForUse();
+            Bitmap tempBitmap = Objects.requireNonNull(temp.mBitmap);
+            Canvas tempCanvas = Objects.requireNonNull(temp.mCanvas);
 
             // Zero out the temp canvas in preparation for next.
-            mTempCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+            tempCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
 
             // Horizontal
             for (int i = 0; i < weaves; i += 1) {
@@ -1649,24 +2022,24 @@ public final class PaintBox {
                     mBrushedEffectPath.offset(-offset, -offset);
                     mBrushedEffectPaint.setColor(Color.WHITE);
                     mBrushedEffectPaint.setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                    tempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
 
                     mBrushedEffectPath.offset(2f * offset, 2f * offset);
                     mBrushedEffectPaint.setColor(Color.BLACK);
                     mBrushedEffectPaint.setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                    tempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
 
                     mBrushedEffectPath.offset(-offset, -offset);
                     setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, this);
+                    tempCanvas.drawPath(mBrushedEffectPath, this);
                 }
             }
 
             // Apply ribs.
-            mTempCanvas.drawPaint(mLightShadow);
+            tempCanvas.drawPaint(mLightShadow);
 
             // Apply a gradient transfer mode.
-            mTempCanvas.drawPaint(mGradientH);
+            tempCanvas.drawPaint(mGradientH);
 
             // Erase every 2nd square of the bitmap, and apply a transfer mode.
             mBrushedEffectPaint.setColor(Color.BLACK);
@@ -1687,14 +2060,14 @@ public final class PaintBox {
                     if (i % 2 == j % 2) {
 //                        Log.d(TAG, "Erasing (" + i + "," + j + ")");
                         // Only every 2nd square
-                        mTempCanvas.drawRect(left, top, right, bottom, mBrushedEffectPaint);
+                        tempCanvas.drawRect(left, top, right, bottom, mBrushedEffectPaint);
                     }
                 }
             }
             mBrushedEffectPaint.setXfermode(null);
 
-            // OK, transfer the horizontal stripes in "mTempCanvas" to "brushedEffectCanvas".
-            brushedEffectCanvas.drawBitmap(mTempBitmap, 0f, 0f, null);
+            // OK, transfer the horizontal stripes in "tempCanvas" to "brushedEffectCanvas".
+            brushedEffectCanvas.drawBitmap(tempBitmap, 0f, 0f, null);
 
             // Apply a destination atop transfer mode to only draw into transparent bits.
 //            Xfermode dstMode = new PorterDuffXfermode(Mode.DST_OVER);
@@ -1703,7 +2076,7 @@ public final class PaintBox {
 //            brushedEffectCanvas.drawPaint(mBrushedEffectPaint);
 
             // Zero out the temp canvas in preparation for next.
-            mTempCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+            tempCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
 
             // Vertical
             for (int i = 0; i < weaves; i += 1) {
@@ -1730,24 +2103,24 @@ public final class PaintBox {
                     mBrushedEffectPath.offset(-offset, -offset);
                     mBrushedEffectPaint.setColor(Color.WHITE);
                     mBrushedEffectPaint.setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                    tempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
 
                     mBrushedEffectPath.offset(2f * offset, 2f * offset);
                     mBrushedEffectPaint.setColor(Color.BLACK);
                     mBrushedEffectPaint.setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
+                    tempCanvas.drawPath(mBrushedEffectPath, mBrushedEffectPaint);
 
                     mBrushedEffectPath.offset(-offset, -offset);
                     setAlpha(alpha);
-                    mTempCanvas.drawPath(mBrushedEffectPath, this);
+                    tempCanvas.drawPath(mBrushedEffectPath, this);
                 }
             }
 
             // Apply ribs.
-            mTempCanvas.drawPaint(mShadowLight);
+            tempCanvas.drawPaint(mShadowLight);
 
             // Apply a gradient transfer mode.
-            mTempCanvas.drawPaint(mGradientV);
+            tempCanvas.drawPaint(mGradientV);
 
             // Erase every OTHER other 2nd square.
             mBrushedEffectPaint.setColor(Color.BLACK);
@@ -1768,14 +2141,14 @@ public final class PaintBox {
                     if (i % 2 != j % 2) { // Other!
 //                        Log.d(TAG, "Erasing (" + i + "," + j + ")");
                         // Only every 2nd square
-                        mTempCanvas.drawRect(left, top, right, bottom, mBrushedEffectPaint);
+                        tempCanvas.drawRect(left, top, right, bottom, mBrushedEffectPaint);
                     }
                 }
             }
             mBrushedEffectPaint.setXfermode(null);
 
-            // OK, transfer the vertical stripes in "mTempCanvas" to "brushedEffectCanvas".
-            brushedEffectCanvas.drawBitmap(mTempBitmap, 0f, 0f, null);
+            // OK, transfer the vertical stripes in "tempCanvas" to "brushedEffectCanvas".
+            brushedEffectCanvas.drawBitmap(tempBitmap, 0f, 0f, null);
 
             setAlpha(prevAlpha);
 
@@ -1785,7 +2158,9 @@ public final class PaintBox {
                     Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
 
             // Cache it for next time's use.
-            mBitmapShaderCache.put(mCustomHashCode, new WeakReference<>(result));
+            synchronized (mBitmapShaderCache) { // We're shared between threads.
+                mBitmapShaderCache.put(mCustomHashCode, new WeakReference<>(result));
+            }
             return result;
         }
 
@@ -1793,7 +2168,10 @@ public final class PaintBox {
         private BitmapShader generateHexEffect() {
             BitmapShader res = null;
             // Attempt to return an existing BitmapShader from the cache if we have one.
-            WeakReference<BitmapShader> cache = mBitmapShaderCache.get(mCustomHashCode);
+            WeakReference<BitmapShader> cache;
+            synchronized (mBitmapShaderCache) { // We're shared between threads.
+                cache = mBitmapShaderCache.get(mCustomHashCode);
+            }
             if (cache != null) {
                 // Well, we have an existing BitmapShader, but it may have been garbage collected...
                 BitmapShader result = cache.get();
@@ -1906,7 +2284,9 @@ public final class PaintBox {
                         Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
 
                 // Cache it for next time's use.
-                mBitmapShaderCache.put(mCustomHashCode, new WeakReference<>(result));
+                synchronized (mBitmapShaderCache) { // We're shared between threads.
+                    mBitmapShaderCache.put(mCustomHashCode, new WeakReference<>(result));
+                }
                 res = result;
             }
 
@@ -1956,13 +2336,11 @@ public final class PaintBox {
         return (short) (Math.pow(lum, 1d / SPARKLE_GAMMA) * SPARKLE_RANGE);
     }
 
-    private boolean mIsSparkleEffectSetup = false;
-
     /**
      * Set up our sparkle effect by deriving all our mapping tables.
      */
     private void setupSparkleEffect() {
-        if (mIsSparkleEffectSetup)
+        if (mEngine.mIsSparkleEffectSetup)
             return;
 
         Short4[] mA = new Short4[256], mB = new Short4[256], mC = new Short4[256];
@@ -1977,13 +2355,13 @@ public final class PaintBox {
             mF[i] = deriveMultiSparkleMapping(i, 0.48d);
         }
 
-        mScriptC_mapBitmap.set_sparkleMappingA(mA);
-        mScriptC_mapBitmap.set_sparkleMappingB(mB);
-        mScriptC_mapBitmap.set_sparkleMappingC(mC);
-        mScriptC_mapBitmap.set_sparkleMappingD(mD);
-        mScriptC_mapBitmap.set_sparkleMappingE(mE);
-        mScriptC_mapBitmap.set_sparkleMappingF(mF);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingA(mA);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingB(mB);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingC(mC);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingD(mD);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingE(mE);
+        mEngine.mScriptC_mapBitmap.set_sparkleMappingF(mF);
 
-        mIsSparkleEffectSetup = true;
+        mEngine.mIsSparkleEffectSetup = true;
     }
 }
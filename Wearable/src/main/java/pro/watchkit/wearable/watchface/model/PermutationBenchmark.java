@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.model;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.function.ObjIntConsumer;
+
+import pro.watchkit.wearable.watchface.util.DebugTiming;
+
+/**
+ * A benchmark for generating permutations. For a few pickers (colorways, a material and some
+ * enums) we generate every permutation the old way, cloning a WatchFaceState then mutating it
+ * and serialising it to a string for each value, and the new way, with a PermutationEngine
+ * working on packed bytes. We also time making strings from all those packed bytes, which is
+ * what it'd cost if every row of the list were shown.
+ * <p>
+ * It runs from the developer options in the config activity. The per-picker timings go to the
+ * log via DebugTiming.
+ */
+public final class PermutationBenchmark {
+    private static final String TAG = "PermutationBenchmark";
+
+    /**
+     * How many times we generate each picker's permutations. We take the fastest, to keep GC
+     * out of it.
+     */
+    private static final int REPEATS = 5;
+
+    private PermutationBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param context              Context for our WatchFaceState
+     * @param watchFaceStateString Watch face state to permute
+     * @return A summary of the results, suitable for a Toast
+     */
+    @NonNull
+    public static String run(@NonNull Context context, @NonNull String watchFaceStateString) {
+        WatchFaceState scratch = new WatchFaceState(context);
+        scratch.setString(watchFaceStateString);
+
+        long[] totals = new long[3];
+        DebugTiming.start(TAG);
+
+        int[] colorways = scratch.getPaintBox().getOriginalColorways().values().stream()
+                .mapToInt(i -> i).toArray();
+        run(context, watchFaceStateString, "Colorways", colorways,
+                WatchFaceState::setColorway, PermutationEngine.forColorways(scratch), totals);
+
+        int[] variants = scratch.getPaintBox().getColorwayVariants();
+        run(context, watchFaceStateString, "Variants", variants,
+                WatchFaceState::setColorway, PermutationEngine.forColorways(scratch), totals);
+
+        ObjIntConsumer<WatchFaceState> material =
+                (w, i) -> w.setHourHandMaterial(BytePackable.Material.finalValues[i]);
+        run(context, watchFaceStateString, "Material",
+                PermutationEngine.indices(BytePackable.Material.finalValues.length), material,
+                PermutationEngine.forValues(
+                        scratch, BytePackable.Material.finalValues.length, material), totals);
+
+        ObjIntConsumer<WatchFaceState> pipShape =
+                (w, i) -> w.setHourPipShape(BytePackable.PipShape.finalValues[i]);
+        run(context, watchFaceStateString, "PipShape",
+                PermutationEngine.indices(BytePackable.PipShape.finalValues.length), pipShape,
+                PermutationEngine.forValues(
+                        scratch, BytePackable.PipShape.finalValues.length, pipShape), totals);
+
+        ObjIntConsumer<WatchFaceState> handShape =
+                (w, i) -> w.setHourHandShape(BytePackable.HandShape.finalValues[i]);
+        run(context, watchFaceStateString, "HandShape",
+                PermutationEngine.indices(BytePackable.HandShape.finalValues.length), handShape,
+                PermutationEngine.forValues(
+                        scratch, BytePackable.HandShape.finalValues.length, handShape), totals);
+
+        DebugTiming.endAndWrite();
+
+        return String.format(Locale.getDefault(),
+                "Permutations: %.1f ms cloned, %.1f ms packed (%.1fx), +%.1f ms for every string",
+                totals[0] / 1000000f, totals[1] / 1000000f,
+                (float) totals[0] / (float) Math.max(totals[1], 1L), totals[2] / 1000000f);
+    }
+
+    /**
+     * Time one picker, both ways, and add the results to "totals".
+     *
+     * @param context              Context for our WatchFaceState
+     * @param watchFaceStateString Watch face state to permute
+     * @param name                 Name of this picker, for the log
+     * @param values               Values (or indices) to apply
+     * @param setter               Setter taking each value (or index)
+     * @param engine               PermutationEngine for "setter"
+     * @param totals               Totals of old, new and string-making times, in nanoseconds
+     */
+    private static void run(@NonNull Context context, @NonNull String watchFaceStateString,
+                            @NonNull String name, @NonNull int[] values,
+                            @NonNull ObjIntConsumer<WatchFaceState> setter,
+                            @NonNull PermutationEngine engine, @NonNull long[] totals) {
+        long cloned = Long.MAX_VALUE, packed = Long.MAX_VALUE, strings = Long.MAX_VALUE;
+        for (int r = 0; r < REPEATS; r++) {
+            // The old way: clone, then mutate and serialise each value.
+            long start = System.nanoTime();
+            WatchFaceState clone = new WatchFaceState(context);
+            clone.setString(watchFaceStateString);
+            String[] oldStrings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                setter.accept(clone, values[i]);
+                oldStrings[i] = clone.getString();
+            }
+            long middle = System.nanoTime();
+
+            // The new way: clone, then work out each value's packed bytes.
+            clone = new WatchFaceState(context);
+            clone.setString(watchFaceStateString);
+            byte[][] newPacked = engine.permute(clone, values);
+            long end = System.nanoTime();
+
+            // And what it'd cost if we made every string anyway.
+            String[] newStrings = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                newStrings[i] = WatchFaceState.getString(newPacked[i], 0);
+            }
+            long last = System.nanoTime();
+
+            cloned = Math.min(cloned, middle - start);
+            packed = Math.min(packed, end - middle);
+            strings = Math.min(strings, last - end);
+
+            // Check we got the same answers both ways.
+            for (int i = 0; r == 0 && i < values.length; i++) {
+                if (!oldStrings[i].equals(newStrings[i])) {
+                    DebugTiming.checkpoint(name + " MISMATCH at " + i);
+                    break;
+                }
+            }
+        }
+        totals[0] += cloned;
+        totals[1] += packed;
+        totals[2] += strings;
+
+        DebugTiming.checkpoint(String.format(Locale.ROOT, "%s x%d %.2f vs %.2f (+%.2f)",
+                name, values.length, cloned / 1000000f, packed / 1000000f, strings / 1000000f));
+    }
+}
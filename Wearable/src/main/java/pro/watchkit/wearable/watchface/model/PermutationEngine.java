@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.model;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Generates permutations of a WatchFaceState by working on its packed bytes directly.
+ * <p>
+ * The slow way to make a permutation is to clone a WatchFaceState, call a setter on it and
+ * pack the whole lot back up. But a setter only ever changes its own few bits of the packed
+ * form, and which bits those are (and what goes in them for each value) doesn't depend on the
+ * rest of the state. So we learn that once, by probing a scratch WatchFaceState, and from then
+ * on a permutation is just the current packed bytes with the setter's bits swapped out.
+ * <p>
+ * We learn it in one of two ways. "forValues" probes every value, for things like enums,
+ * where there aren't many values and we don't know how each one is encoded. "forBits" probes
+ * each input bit, for things like colorways, which are packed bit-for-bit and where there are
+ * far too many values to probe them all.
+ * <p>
+ * Our learning assumes the setter only touches its own bits. That's true for everything we
+ * use this for, but just in case, each call to "permute" also checks two permutations the
+ * slow way; if they disagree, we do that call the slow way instead.
+ */
+final class PermutationEngine {
+    private static final String TAG = "PermutationEngine";
+
+    /**
+     * The setter we're permuting. It's given the WatchFaceState and a value (an index for
+     * "forValues", or the value itself for "forBits").
+     */
+    @NonNull
+    private final ObjIntConsumer<WatchFaceState> mSetter;
+
+    /**
+     * Every bit our setter has been seen to change.
+     */
+    @NonNull
+    private final byte[] mMask = new byte[WatchFaceState.PACKED_LENGTH];
+
+    /**
+     * For "forValues", the bits (within mMask) for each value. For "forBits", the bits
+     * (within mMask) flipped by each input bit.
+     */
+    @NonNull
+    private final byte[][] mBits;
+
+    /**
+     * For "forBits", the bits (within mMask) for value 0; the other values are XORed onto
+     * this. Null for "forValues".
+     */
+    @Nullable
+    private final byte[] mZeroBits;
+
+    /**
+     * Cached "forBits" engine for WatchFaceState::setColorway.
+     */
+    @Nullable
+    private static PermutationEngine sColorways;
+
+    /**
+     * Learn the packed bits of "setter" by probing "scratch" with each value from 0 to
+     * count - 1. "scratch" is put back how it was afterwards.
+     *
+     * @param scratch WatchFaceState to probe
+     * @param count   Number of values
+     * @param setter  Setter taking the index of each value
+     * @return Our new PermutationEngine
+     */
+    @NonNull
+    static PermutationEngine forValues(
+            @NonNull WatchFaceState scratch, int count,
+            @NonNull ObjIntConsumer<WatchFaceState> setter) {
+        return new PermutationEngine(scratch, count, false, setter);
+    }
+
+    /**
+     * Learn the packed bits of "setter" by probing "scratch" with 0 and with each single bit
+     * from 0 to bits - 1. This only works for setters where each bit of the value lands in
+     * the packed form by itself, which is something "permute" keeps checking.
+     * "scratch" is put back how it was afterwards.
+     *
+     * @param scratch WatchFaceState to probe
+     * @param bits    Number of bits in each value
+     * @param setter  Setter taking each value
+     * @return Our new PermutationEngine
+     */
+    @NonNull
+    static PermutationEngine forBits(
+            @NonNull WatchFaceState scratch, int bits,
+            @NonNull ObjIntConsumer<WatchFaceState> setter) {
+        return new PermutationEngine(scratch, bits, true, setter);
+    }
+
+    /**
+     * Get our (cached) engine for colorways: four six-bit colours, 24 bits in all.
+     *
+     * @param scratch WatchFaceState to probe, if we haven't already
+     * @return The colorway PermutationEngine
+     */
+    @NonNull
+    static synchronized PermutationEngine forColorways(@NonNull WatchFaceState scratch) {
+        if (sColorways == null) {
+            sColorways = forBits(scratch, 24, WatchFaceState::setColorway);
+        }
+        return sColorways;
+    }
+
+    private PermutationEngine(
+            @NonNull WatchFaceState scratch, int probes, boolean linear,
+            @NonNull ObjIntConsumer<WatchFaceState> setter) {
+        mSetter = setter;
+        mBits = new byte[probes][WatchFaceState.PACKED_LENGTH];
+        String original = scratch.getString();
+
+        byte[] zero = new byte[WatchFaceState.PACKED_LENGTH];
+        mSetter.accept(scratch, 0);
+        scratch.packInto(zero, 0);
+
+        for (int i = 0; i < probes; i++) {
+            byte[] bits = mBits[i];
+            mSetter.accept(scratch, linear ? 1 << i : i);
+            scratch.packInto(bits, 0);
+            for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                // For now, "bits" is how this probe differs from value 0.
+                bits[k] ^= zero[k];
+                mMask[k] |= bits[k];
+            }
+        }
+
+        if (linear) {
+            // Keep value 0 (within our mask) and each bit's difference from it.
+            mZeroBits = zero;
+            for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                mZeroBits[k] &= mMask[k];
+            }
+        } else {
+            // Turn each difference back into the bits for that value (within our mask).
+            mZeroBits = null;
+            for (byte[] bits : mBits) {
+                for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                    bits[k] = (byte) ((bits[k] ^ zero[k]) & mMask[k]);
+                }
+            }
+        }
+
+        // Put "scratch" back how we found it.
+        scratch.setString(original);
+    }
+
+    /**
+     * Work out the packed bytes of "base" with "value" applied, into "dest".
+     *
+     * @param base  Packed bytes to start from
+     * @param value Value (or index, for "forValues") to apply
+     * @param dest  Array to put the result into
+     */
+    private void apply(@NonNull byte[] base, int value, @NonNull byte[] dest) {
+        if (mZeroBits != null) {
+            for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                dest[k] = (byte) ((base[k] & ~mMask[k]) | mZeroBits[k]);
+            }
+            for (int i = 0; i < mBits.length; i++) {
+                if ((value & (1 << i)) != 0) {
+                    for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                        dest[k] ^= mBits[i][k];
+                    }
+                }
+            }
+        } else {
+            byte[] bits = mBits[value];
+            for (int k = 0; k < WatchFaceState.PACKED_LENGTH; k++) {
+                dest[k] = (byte) ((base[k] & ~mMask[k]) | bits[k]);
+            }
+        }
+    }
+
+    /**
+     * Get the packed bytes of "clone" with each of "values" applied. We check the first and
+     * last ones against "clone" the slow way; if either disagrees, we do them all the slow way.
+     * Either way, "clone" is left with the last value applied.
+     *
+     * @param clone  WatchFaceState, which must be a clone, since we'll modify it
+     * @param values Values (or indices, for "forValues") to apply
+     * @return Packed bytes for each value, in order
+     */
+    @NonNull
+    byte[][] permute(@NonNull WatchFaceState clone, @NonNull int[] values) {
+        byte[] base = clone.getPacked();
+        byte[][] result = new byte[values.length][WatchFaceState.PACKED_LENGTH];
+        for (int i = 0; i < values.length; i++) {
+            apply(base, values[i], result[i]);
+        }
+
+        if (values.length > 0 && !(check(clone, values[0], result[0]) &&
+                check(clone, values[values.length - 1], result[values.length - 1]))) {
+            Log.d(TAG, "permute: packed bits disagree, falling back for " +
+                    WatchFaceState.getString(base, 0));
+            for (int i = 0; i < values.length; i++) {
+                mSetter.accept(clone, values[i]);
+                clone.packInto(result[i], 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check "expected" is what we get by applying "value" to "clone" the slow way.
+     *
+     * @param clone    WatchFaceState, which must be a clone, since we'll modify it
+     * @param value    Value (or index, for "forValues") to apply
+     * @param expected Packed bytes we worked out for it
+     * @return Whether they agree
+     */
+    private boolean check(@NonNull WatchFaceState clone, int value, @NonNull byte[] expected) {
+        mSetter.accept(clone, value);
+        return Arrays.equals(clone.getPacked(), expected);
+    }
+
+    /**
+     * Get an array of the indices 0 to count - 1, for "permute" on a "forValues" engine.
+     *
+     * @param count Number of indices
+     * @return Array of indices
+     */
+    @NonNull
+    static int[] indices(int count) {
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+}
@@ -37,6 +37,7 @@ final class Settings extends BytePackable {
     boolean mHidePips, mHideHands;
     boolean mUseLegacyMaterialDrawing, mUseLegacyEffects;
     boolean mUseDecomposition;
+    boolean mVectorHands;
     final boolean mHardwareAccelerationEnabled = true;
     final boolean mInnerGlow = false;
     final boolean mDrawShadows = true;
@@ -59,6 +60,7 @@ final class Settings extends BytePackable {
                 mStats, mStatsDetail,
                 mHidePips, mHideHands,
                 mUseLegacyMaterialDrawing, mUseLegacyEffects,
+                mVectorHands,
                 mHardwareAccelerationEnabled,
                 mInnerGlow,
                 mDrawShadows,
@@ -94,6 +96,7 @@ final class Settings extends BytePackable {
         mBytePacker.put(mUseLegacyMaterialDrawing);
         mBytePacker.put(mUseLegacyEffects);
         mBytePacker.put(mUseDecomposition);
+        mBytePacker.put(mVectorHands);
 
         mBytePacker.finish();
     }
@@ -127,6 +130,7 @@ final class Settings extends BytePackable {
                 mUseLegacyMaterialDrawing = mBytePacker.getBoolean();
                 mUseLegacyEffects = mBytePacker.getBoolean();
                 mUseDecomposition = mBytePacker.getBoolean();
+                mVectorHands = mBytePacker.getBoolean();
                 break;
             }
             case 1: {
@@ -67,23 +67,29 @@ public class WatchFacePresetConfigData extends ConfigData {
                             @Override
                             public Permutation[] getPermutations(@NonNull WatchFaceState clone) {
                                 Map<String, String> galleryEntries = clone.getGalleryEntries();
+                                if (galleryEntries == null) {
+                                    // Gallery's not ready yet. Just the current watch face
+                                    // for now; our adapter refreshes us when it is.
+                                    return new Permutation[]{new Permutation(
+                                            clone.getPacked(), clone.getWatchFaceName())};
+                                }
 
                                 Permutation[] p;
                                 int i;
-                                if (galleryEntries.containsValue(clone.getWatchFacePresetString())) {
+                                if (clone.isGalleryPreset()) {
                                     // Current watch face is already in the gallery.
                                     p = new Permutation[galleryEntries.size()];
                                     i = 0;
                                 } else {
                                     // Current watch face is something custom.
                                     p = new Permutation[galleryEntries.size() + 1];
-                                    p[0] = new Permutation(clone.getString(), clone.getWatchFaceName());
+                                    p[0] = new Permutation(clone.getPacked(), clone.getWatchFaceName());
                                     i = 1;
                                 }
 
                                 for (Map.Entry<String, String> e : galleryEntries.entrySet()) {
                                     clone.setWatchFacePresetString(e.getValue());
-                                    p[i++] = new Permutation(clone.getString(), e.getKey());
+                                    p[i++] = new Permutation(clone.getPacked(), e.getKey());
                                 }
 
                                 return p;
@@ -177,7 +183,7 @@ public class WatchFacePresetConfigData extends ConfigData {
                                         clone.getPaintBox().getOriginalColorways().values();
 
                                 // Slot 0 is the current selection.
-                                p[0] = new Permutation(clone.getString(), clone.getWatchFaceName());
+                                p[0] = new Permutation(clone.getPacked(), clone.getWatchFaceName());
 
                                 // Roll the dice and generate a bunch of random watch faces!
                                 for (int i = 1; i < SIZE; i++) {
@@ -195,7 +201,7 @@ public class WatchFacePresetConfigData extends ConfigData {
                                     permuteRandomHands(clone);
                                     permuteRandomPips(clone);
 
-                                    p[i] = new Permutation(clone.getString(), name);
+                                    p[i] = new Permutation(clone.getPacked(), name);
                                 }
                                 return p;
                             }
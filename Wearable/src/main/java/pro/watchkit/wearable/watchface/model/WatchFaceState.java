@@ -43,7 +43,7 @@ import java.util.Hashtable;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TimeZone;
-import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import pro.watchkit.wearable.watchface.R;
 import pro.watchkit.wearable.watchface.model.BytePackable.ComplicationCount;
@@ -135,10 +135,87 @@ public class WatchFaceState {
         mPaintBox = new PaintBox(context);
         mContext = context;
         mTypefaceCache = new android.graphics.Typeface[Typeface.finalValues.length];
+        // Get our gallery index started, so it's ready by the time anyone asks.
+        GalleryIndex.prepare(context);
         // Hmm. Strictly temporary: how about a default setting?
         // setString("fcd81c000c0100000006c06a60000001~3cda1cc0000000000000000000000001");
     }
 
+    /**
+     * Just enough of a WatchFaceState to make a copy of it: its preset and settings, swatch,
+     * notifications, time and complications (just enough of them to draw rings). Take one
+     * with "capture" on the thread that owns the WatchFaceState; it's cheap, and from then on
+     * it doesn't change. Then make the copy from it with "new WatchFaceState(capture)" on
+     * whatever thread is going to draw it, since that's the expensive part.
+     */
+    public static final class Capture {
+        @NonNull
+        private final Context mContext;
+        @NonNull
+        private final String mString;
+        @Nullable
+        private final Material mSwatchMaterial;
+        private final int mUnreadNotifications;
+        private final int mTotalNotifications;
+        private final boolean mAmbient;
+        private final boolean mBurnInProtection;
+        @NonNull
+        private final TimeZone mTimeZone;
+        private final long mTimeInMillis;
+        @NonNull
+        private final Collection<ComplicationHolder> mComplications = new ArrayList<>();
+
+        private Capture(@NonNull WatchFaceState source) {
+            mContext = source.mContext;
+            mString = source.getString();
+            mSwatchMaterial = source.mSwatchMaterial;
+            mUnreadNotifications = source.mUnreadNotifications;
+            mTotalNotifications = source.mTotalNotifications;
+            mAmbient = source.mAmbient;
+            mBurnInProtection = source.mBurnInProtection;
+            mTimeZone = (TimeZone) source.mCalendar.getTimeZone().clone();
+            mTimeInMillis = source.mCalendar.getTimeInMillis();
+            // Complications change under us on this thread, so copy them now.
+            source.mComplications.forEach(c -> mComplications.add(new ComplicationHolder(c)));
+        }
+    }
+
+    /**
+     * Capture just enough of us to make a copy later, maybe on another thread. See Capture.
+     * Call this on the thread that owns us.
+     *
+     * @return A Capture of our current state
+     */
+    @NonNull
+    public Capture capture() {
+        return new Capture(this);
+    }
+
+    /**
+     * Make a copy of the WatchFaceState that "capture" was taken from. It's for drawing on
+     * another thread, whilst the original carries on changing on its own; and it's fine to
+     * make it on that other thread.
+     *
+     * @param capture Capture to copy, from "capture"
+     */
+    public WatchFaceState(@NonNull Capture capture) {
+        this(capture.mContext);
+        setString(capture.mString);
+        mSwatchMaterial = capture.mSwatchMaterial;
+        mUnreadNotifications = capture.mUnreadNotifications;
+        mTotalNotifications = capture.mTotalNotifications;
+        mAmbient = capture.mAmbient;
+        mBurnInProtection = capture.mBurnInProtection;
+        mCalendar.setTimeZone((TimeZone) capture.mTimeZone.clone());
+        mCalendar.setTimeInMillis(capture.mTimeInMillis);
+        // Copy them again, in case someone makes more than one copy from "capture".
+        capture.mComplications.forEach(c -> {
+            ComplicationHolder copy = new ComplicationHolder(c);
+            mComplications.add(copy);
+            mComplicationMap.put(copy.getId(), copy);
+        });
+    }
+
     /**
      * Returns the string from the application's resources.
      * Convenience method for "mContext.getString(resId)".
@@ -221,6 +298,27 @@ public class WatchFaceState {
         // mCalendar.setTimeInMillis(1570365309000L); // For preview generation.
     }
 
+    /**
+     * The time we draw previews at: 2019-10-06T23:35:09.000+1100, in PREVIEW_TIME_ZONE.
+     */
+    public static final long PREVIEW_TIME_MILLIS = 1570365309000L;
+
+    /**
+     * The time zone we draw previews in, so PREVIEW_TIME_MILLIS looks the same everywhere.
+     */
+    private static final String PREVIEW_TIME_ZONE = "Australia/Sydney";
+
+    /**
+     * Set the calendar's current time to the time we draw previews at. Previews are cached
+     * (in memory and on disk) by what they show, not when they were drawn, so they have to
+     * look the same whenever and wherever they're drawn: or else the same preview could come
+     * back with its hands anywhere.
+     */
+    public void setCurrentTimeToPreviewTime() {
+        mCalendar.setTimeZone(TimeZone.getTimeZone(PREVIEW_TIME_ZONE));
+        mCalendar.setTimeInMillis(PREVIEW_TIME_MILLIS);
+    }
+
     /**
      * Set the calendar's current time to the given time in milliseconds
      *
@@ -503,72 +601,57 @@ public class WatchFaceState {
                 activeColor, activeColorAlt1, activeColorAlt2, ambientColor, typeface));
     }
 
-    @NonNull
-    private final static Map<String, String> mGalleryEntries = new TreeMap<>((o1, o2) -> {
-        // A comparator which sorts the characters 🅰, 🅱, 🅲, 🅳 etc. to the very top.
-        int c1 = (int) (o1.codePointAt(0));
-        int c2 = (int) (o2.codePointAt(0));
-        if (c1 > 0x1f000 && c2 > 0x1f000) {
-            return o1.compareTo(o2);
-        } else if (c1 > 0x1F000) {
-            return -1;
-        } else if (c2 > 0x1F000) {
-            return 1;
-        } else {
-            return o1.compareTo(o2);
-        }
-    });
-    @NonNull
-    private final static Map<String, String> mGalleryEntriesFlipped = new TreeMap<>();
-    @NonNull
-    private final static Map<String, String> mGalleryEntriesFlippedZeroed = new TreeMap<>();
-
+    /**
+     * Get our gallery entries: names to preset strings, in gallery order. This never waits
+     * for our gallery index to be built; if it isn't yet, see "whenGalleryReady".
+     *
+     * @return Unmodifiable map of gallery entries, or null if they're not ready yet
+     */
+    @Nullable
     public Map<String, String> getGalleryEntries() {
-        if (mGalleryEntries.size() == 0) {
-            String currentString = getWatchFacePresetString(); // Preserve current preset string.
-            // Initialise on first use
-            final String[] galleryNames = getStringArrayResource(R.array.gallery_names);
-            final String[] galleryPresets = getStringArrayResource(R.array.gallery_presets);
-
-            // Loop through each default colorway name and value.
-            // Add original named colorways first, before we add any variants.
-            for (int i = 0; i < galleryNames.length; i++) {
-                mGalleryEntries.putIfAbsent(galleryNames[i], galleryPresets[i]);
-                mGalleryEntriesFlipped.putIfAbsent(galleryPresets[i], galleryNames[i]);
-                setWatchFacePresetString(galleryPresets[i]);
-                setColorway(0);
-                mGalleryEntriesFlippedZeroed.putIfAbsent(getWatchFacePresetString(), galleryNames[i]);
-            }
-
-            setWatchFacePresetString(currentString); // Restore current preset string.
-        }
-        return mGalleryEntries;
+        GalleryIndex galleryIndex = GalleryIndex.getIfReady(mContext);
+        return galleryIndex == null ? null : galleryIndex.getEntries();
     }
 
-    private Map<String, String> getGalleryEntriesFlipped() {
-        getGalleryEntries();
-        return mGalleryEntriesFlipped;
+    /**
+     * Run "callback" on the main thread once our gallery index is built (right away, if it
+     * already is). Until then, "getGalleryEntries" returns null, and "isGalleryPreset" and
+     * "getWatchFaceName" treat everything as custom; so refresh whatever uses them.
+     *
+     * @param callback Runnable to post to the main thread
+     */
+    public void whenGalleryReady(@NonNull Runnable callback) {
+        GalleryIndex.whenReady(mContext, callback);
     }
 
-    private Map<String, String> getGalleryEntriesFlippedZeroed() {
-        getGalleryEntries();
-        return mGalleryEntriesFlippedZeroed;
+    /**
+     * Is our WatchFacePreset (colorway and all) one from the gallery? If our gallery index
+     * isn't ready yet, we don't know, so no.
+     *
+     * @return Whether our WatchFacePreset is in the gallery
+     */
+    public boolean isGalleryPreset() {
+        byte[] preset = new byte[BytePackable.BytePacker.LENGTH];
+        mWatchFacePreset.packInto(preset, 0);
+        return GalleryIndex.findName(mContext, preset, false) != null;
     }
 
     public String getWatchFaceName() {
-        // See if our watch face string is directly in the gallery.
-        String currentString = getWatchFacePresetString();
-        if (getGalleryEntriesFlipped().containsKey(currentString)) {
-            return getGalleryEntriesFlipped().get(currentString);
+        byte[] preset = new byte[BytePackable.BytePacker.LENGTH];
+        mWatchFacePreset.packInto(preset, 0);
+
+        // See if our watch face is directly in the gallery. This doesn't wait for the gallery
+        // index, so it's fine to call from the UI thread. (If it's not ready, we come out
+        // custom; "whenGalleryReady" says when to ask again.)
+        String name = GalleryIndex.findName(mContext, preset, false);
+        if (name != null) {
+            return name;
         }
 
-        // It might be a different colorway. Try zeroing out the colorway and checking...
-        setColorway(0);
-        String zeroedString = getWatchFacePresetString();
-        setWatchFacePresetString(currentString); // Restore current preset string.
-        if (getGalleryEntriesFlippedZeroed().containsKey(zeroedString)) {
-            return getGalleryEntriesFlippedZeroed().get(zeroedString) + " × " +
-                    getPaintBox().getColorwayName();
+        // It might be a different colorway. Try it without the colorway...
+        name = GalleryIndex.findName(mContext, preset, true);
+        if (name != null) {
+            return name + " × " + getPaintBox().getColorwayName();
         }
 
         // It's truly custom.
@@ -580,7 +663,7 @@ public class WatchFaceState {
      * day.
      * <p>
      * The way we draw ambient is: all ambient drawing is done in Color.WHITE, then we tint it
-     * using a transfer mode paint to whatever this color is.
+     * with a color filter to whatever this color is.
      *
      * @return Current ambient tint color
      */
@@ -592,6 +675,61 @@ public class WatchFaceState {
                 getLocationCalculator().getDuskDawnMultiplier());
     }
 
+    /**
+     * Get the time at which our ambient tint next visibly changes, i.e. the next time after
+     * now that PaintBox.getQuantizedTint gives something different. This happens every so
+     * often during dusk and dawn, and not at all otherwise. We look up to a day ahead; if
+     * there's no change in that time (e.g. we don't know our location, or it's midsummer in
+     * the Arctic) we return Long.MAX_VALUE.
+     * <p>
+     * In decomposable mode, nothing else wakes us up for dusk and dawn, so we schedule
+     * an alarm for this time.
+     *
+     * @return The time of the next visible ambient tint change, or Long.MAX_VALUE
+     */
+    public long getNextAmbientTintChangeTime() {
+        LocationCalculator locationCalculator = getLocationCalculator();
+        if (!locationCalculator.hasLocation()) {
+            return Long.MAX_VALUE;
+        }
+
+        final long step = TimeUnit.MINUTES.toMillis(1);
+        final long now = getTimeInMillis();
+        @ColorInt final int night = getColor(ColorType.AMBIENT_NIGHT);
+        @ColorInt final int day = getColor(ColorType.AMBIENT_DAY);
+        PaintBox paintBox = getPaintBox();
+        double multiplier = locationCalculator.getDuskDawnMultiplier(now);
+        final long quantizedTint = paintBox.getQuantizedTint(
+                PaintBox.getIntermediateColor(night, day, multiplier));
+
+        // Step forward a minute at a time until our quantized tint changes.
+        long previous = now;
+        for (long t = now + step; t <= now + TimeUnit.DAYS.toMillis(1); t += step) {
+            double nextMultiplier = locationCalculator.getDuskDawnMultiplier(t);
+            // Skip the tint calculation if we're in the middle of the day or night,
+            // where our multiplier doesn't change at all.
+            if (nextMultiplier != multiplier && paintBox.getQuantizedTint(
+                    PaintBox.getIntermediateColor(night, day, nextMultiplier)) != quantizedTint) {
+                // It changed somewhere between "previous" and "t". Bisect to the second.
+                long low = previous, high = t;
+                while (high - low > TimeUnit.SECONDS.toMillis(1)) {
+                    long mid = (low + high) / 2;
+                    if (paintBox.getQuantizedTint(PaintBox.getIntermediateColor(night, day,
+                            locationCalculator.getDuskDawnMultiplier(mid))) != quantizedTint) {
+                        high = mid;
+                    } else {
+                        low = mid;
+                    }
+                }
+                return high;
+            }
+            multiplier = nextMultiplier;
+            previous = t;
+        }
+
+        return Long.MAX_VALUE;
+    }
+
     /**
      * Get a list of our ComplicationHolder objects. Don't call this one if you intend to draw
      * them, but if you just want to iterate over them for their properties, that's OK!
@@ -764,6 +902,75 @@ public class WatchFaceState {
         return mStringBuilder.toString();
     }
 
+    /**
+     * The length of our packed form: the raw bytes of our WatchFacePreset, then the raw bytes
+     * of our Settings. It's what getString() turns into hex, before the hex.
+     */
+    public static final int PACKED_LENGTH = 2 * BytePackable.BytePacker.LENGTH;
+
+    /**
+     * Pack our WatchFacePreset and Settings into "dest" at "offset", as raw bytes. Two of
+     * these compare equal exactly when mostlyEquals would say so, without any strings.
+     *
+     * @param dest   Array to pack into; must have room for PACKED_LENGTH bytes from "offset"
+     * @param offset Offset into "dest" to start at
+     */
+    public void packInto(@NonNull byte[] dest, int offset) {
+        mWatchFacePreset.packInto(dest, offset);
+        mSettings.packInto(dest, offset + BytePackable.BytePacker.LENGTH);
+    }
+
+    /**
+     * Pack the WatchFacePreset and Settings of string "s" (as from getString) into "dest" at
+     * "offset", as raw bytes. Like mostlyEquals, this unpacks and repacks, so older versions of
+     * the packed string formats come out up-to-date.
+     *
+     * @param s      String to pack
+     * @param dest   Array to pack into; must have room for PACKED_LENGTH bytes from "offset"
+     * @param offset Offset into "dest" to start at
+     */
+    static void packInto(@NonNull String s, @NonNull byte[] dest, int offset) {
+        String[] split = s.split("~");
+        WatchFacePreset preset = new WatchFacePreset();
+        Settings settings = new Settings();
+        if (split.length >= 2) {
+            preset.setString(split[0]);
+            settings.setString(split[1]);
+        }
+        preset.packInto(dest, offset);
+        settings.packInto(dest, offset + BytePackable.BytePacker.LENGTH);
+    }
+
+    /**
+     * Get our WatchFacePreset and Settings as raw packed bytes. See packInto.
+     *
+     * @return A new array of PACKED_LENGTH bytes
+     */
+    @NonNull
+    public byte[] getPacked() {
+        byte[] packed = new byte[PACKED_LENGTH];
+        packInto(packed, 0);
+        return packed;
+    }
+
+    /**
+     * Turn packed bytes (as from packInto) into the string getString() would have returned
+     * for them.
+     *
+     * @param packed Raw packed bytes
+     * @param offset Offset into "packed" to start at
+     * @return String suitable for setString
+     */
+    @NonNull
+    public static String getString(@NonNull byte[] packed, int offset) {
+        StringBuilder sb = new StringBuilder(PACKED_LENGTH * 2 + 1);
+        BytePackable.BytePacker.appendStringFast(sb, packed, offset);
+        sb.append("~");
+        BytePackable.BytePacker.appendStringFast(
+                sb, packed, offset + BytePackable.BytePacker.LENGTH);
+        return sb.toString();
+    }
+
     @NonNull
     public String getHash() {
         return mWatchFacePreset.getHash();
@@ -1175,6 +1382,14 @@ public class WatchFaceState {
     void setUseLegacyEffects(boolean useLegacyEffects) {
         mSettings.mUseLegacyEffects = useLegacyEffects;
     }
+
+    public boolean isVectorHands() {
+        return mSettings.mVectorHands;
+    }
+
+    public void setVectorHands(boolean vectorHands) {
+        mSettings.mVectorHands = vectorHands;
+    }
     // endregion
 
     // region WatchFacePreset
@@ -2113,6 +2328,11 @@ public class WatchFaceState {
         return mSwatchMaterial != null ? getPaintBox().getPaintFromPreset(mSwatchMaterial) : null;
     }
 
+    @Nullable
+    public Material getSwatchMaterial() {
+        return mSwatchMaterial;
+    }
+
     public void setSwatchMaterial(@Nullable Material swatchMaterial) {
         mSwatchMaterial = swatchMaterial;
     }
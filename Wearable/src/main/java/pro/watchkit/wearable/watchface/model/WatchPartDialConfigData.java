@@ -63,13 +63,13 @@ public class WatchPartDialConfigData extends ConfigData {
                                 Permutation[] p = new Permutation[SIZE];
 
                                 // Slot 0 is the current selection.
-                                p[0] = new Permutation(clone.getString(), clone.getWatchFaceName());
+                                p[0] = new Permutation(clone.getPacked(), clone.getWatchFaceName());
 
                                 // Roll the dice and generate a bunch of random watch faces!
                                 for (int i = 1; i < SIZE; i++) {
                                     String name = "Random Dial " + i;
                                     permuteRandomPips(clone);
-                                    p[i] = new Permutation(clone.getString(), name);
+                                    p[i] = new Permutation(clone.getPacked(), name);
                                 }
                                 return p;
                             }
@@ -0,0 +1,453 @@
+/*
+ * Copyright (C) 2022 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PointF;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.location.Location;
+import android.support.wearable.watchface.decomposition.FontComponent;
+import android.support.wearable.watchface.decomposition.ImageComponent;
+import android.support.wearable.watchface.decomposition.NumberComponent;
+import android.support.wearable.watchface.decomposition.WatchFaceDecomposition;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import pro.watchkit.wearable.watchface.BuildConfig;
+import pro.watchkit.wearable.watchface.model.WatchFaceState;
+
+/**
+ * A simulator for the offload processor. Most watches don't report PROPERTY_OFFLOAD_SUPPORTED,
+ * so without one of the few that do, we've got no way of seeing what our decomposition
+ * actually looks like, or how often we send it. This fixes that!
+ * <p>
+ * We drive a WatchFaceGlobalDrawable the same way ProWatchFaceService does in decomposable
+ * mode, but against a simulated clock: we fast-forward through a day, waking up on our
+ * decomposable alarm just like the real thing, and count how many times we rebuilt the
+ * decomposition, how many times we would have called "updateDecomposition", and how many
+ * bytes of bitmaps we would have sent. Along the way we render the decomposition the way the
+ * offload processor would (rotating ImageComponents by their degrees per day, stepping
+ * NumberComponents through their FontComponent strips) and compare it against our regular
+ * ambient draw path.
+ * <p>
+ * This is debug code; it's not fast and it allocates with reckless abandon. Run it from the
+ * developer options in the config activity.
+ */
+public final class DecompositionSimulator {
+    private static final String TAG = "DecompositionSimulator";
+
+    /**
+     * Our simulated clock ticks once per minute. Ambient mode updates once a minute, and so
+     * do our time-dependent complications, so there's no point going any finer than that.
+     */
+    private static final long SIMULATION_STEP_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * How many milliseconds in a day? Used for rotating ImageComponents.
+     */
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Our watch face, as drawn in decomposable mode. Laid out just like ProWatchFaceService
+     * does, with a cache drawable for the background. This is what builds our decomposition.
+     */
+    @NonNull
+    private final WatchFaceGlobalDrawable mDecomposableDrawable;
+
+    /**
+     * Our watch face, as drawn in regular ambient mode, for comparison. Not cached, because
+     * the cache draws hardware bitmaps, which we can't draw into a software Canvas.
+     */
+    @NonNull
+    private final WatchFaceGlobalDrawable mReferenceDrawable;
+
+    @NonNull
+    private final Context mContext;
+
+    /**
+     * The Bitmaps and Canvases we render into: one for the simulated offload processor,
+     * and one for our regular ambient draw path.
+     */
+    @NonNull
+    private final Bitmap mSimulatedBitmap, mReferenceBitmap;
+    @NonNull
+    private final Canvas mSimulatedCanvas, mReferenceCanvas;
+
+    /**
+     * The decomposition that the offload processor currently holds, or null if we haven't
+     * sent one yet.
+     */
+    @Nullable
+    private WatchFaceDecomposition mDecomposition;
+
+    /**
+     * The Bitmaps of each ImageComponent and FontComponent in "mDecomposition", keyed by
+     * component ID. The offload processor unpacks these once when it receives the
+     * decomposition, so we do too.
+     */
+    @NonNull
+    private final SparseArray<Bitmap> mComponentBitmaps = new SparseArray<>();
+
+    @NonNull
+    private final Rect mTempRect = new Rect();
+    @NonNull
+    private final RectF mTempRectF = new RectF();
+
+    /**
+     * Create a simulator for the watch face given by "watchFaceStateString", with a
+     * screen of the given size.
+     *
+     * @param context              Context for loading resources
+     * @param watchFaceStateString WatchFaceState, as received from WatchFaceState.getString()
+     * @param width                Width of the simulated screen
+     * @param height               Height of the simulated screen
+     */
+    public DecompositionSimulator(@NonNull Context context, @NonNull String watchFaceStateString,
+                                  int width, int height) {
+        mContext = context;
+        mDecomposableDrawable = new WatchFaceGlobalDrawable(context,
+                new WatchFaceGlobalCacheDrawable(
+                        WatchFaceGlobalDrawable.PART_BACKGROUND |
+                                WatchFaceGlobalDrawable.PART_NOTIFICATIONS |
+                                WatchFaceGlobalDrawable.PART_RINGS_ACTIVE |
+                                WatchFaceGlobalDrawable.PART_PIPS),
+                WatchFaceGlobalDrawable.PART_COMPLICATIONS |
+                        WatchFaceGlobalDrawable.PART_HANDS);
+        mReferenceDrawable = new WatchFaceGlobalDrawable(context,
+                WatchFaceGlobalDrawable.PART_BACKGROUND |
+                        WatchFaceGlobalDrawable.PART_NOTIFICATIONS |
+                        WatchFaceGlobalDrawable.PART_RINGS_ACTIVE |
+                        WatchFaceGlobalDrawable.PART_PIPS |
+                        WatchFaceGlobalDrawable.PART_COMPLICATIONS |
+                        WatchFaceGlobalDrawable.PART_HANDS);
+
+        for (WatchFaceGlobalDrawable d :
+                new WatchFaceGlobalDrawable[]{mDecomposableDrawable, mReferenceDrawable}) {
+            WatchFaceState watchFaceState = d.getWatchFaceState();
+            watchFaceState.setString(watchFaceStateString);
+            watchFaceState.initializeComplications(context, false);
+            watchFaceState.setNotifications(0, 0);
+            watchFaceState.setAmbient(true);
+            d.setBounds(0, 0, width, height);
+        }
+
+        mSimulatedBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mSimulatedCanvas = new Canvas(mSimulatedBitmap);
+        mReferenceBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mReferenceCanvas = new Canvas(mReferenceBitmap);
+    }
+
+    /**
+     * Set the location of our simulated watch, so we get dusk and dawn tints.
+     *
+     * @param location Location to simulate
+     */
+    public void setLocation(@NonNull Location location) {
+        mDecomposableDrawable.getWatchFaceState().getLocationCalculator().setLocation(location);
+        mReferenceDrawable.getWatchFaceState().getLocationCalculator().setLocation(location);
+    }
+
+    /**
+     * Fast-forward a simulated day in decomposable mode, starting from "startTimeMillis".
+     * We wake up whenever our decomposable alarm would fire (and, if "wakeEveryMinute", on
+     * every ambient minute tick too, which is the worst case) and send a decomposition if
+     * there's an update available, just like ProWatchFaceService.
+     *
+     * @param startTimeMillis     Time at which to start our simulated day
+     * @param wakeEveryMinute     Whether to also wake up every minute, not just on our alarm
+     * @param compareEveryMinutes How often (in simulated minutes) to compare the rendered
+     *                          decomposition against our regular ambient draw path, or 0
+     *                          to not compare at all
+     * @return A Report of what happened during our simulated day
+     */
+    @NonNull
+    public Report simulateDay(long startTimeMillis, boolean wakeEveryMinute,
+                              int compareEveryMinutes) {
+        Report report = new Report();
+        long nextAlarmTime = Long.MIN_VALUE; // Wake up immediately.
+        boolean hasDecompositionBeenSent = false;
+        int step = 0;
+
+        for (long t = startTimeMillis; t < startTimeMillis + DAY_MS;
+             t += SIMULATION_STEP_MS, step++) {
+            WatchFaceState watchFaceState = mDecomposableDrawable.getWatchFaceState();
+            watchFaceState.setCurrentTime(t);
+
+            if (wakeEveryMinute || t >= nextAlarmTime) {
+                // We're awake. Do what ProWatchFaceService.Engine.onDraw does.
+                report.mWakeups++;
+                long start = System.nanoTime();
+                boolean updateAvailable = !hasDecompositionBeenSent ||
+                        mDecomposableDrawable.hasDecompositionUpdateAvailable();
+                if (updateAvailable) {
+                    WatchFaceDecomposition.Builder builder = new WatchFaceDecomposition.Builder();
+                    nextAlarmTime = Math.min(mDecomposableDrawable.buildDecomposition(builder),
+                            watchFaceState.getNextAmbientTintChangeTime());
+                    report.mRebuilds++;
+                    report.mBuildNanos += System.nanoTime() - start;
+                    // And "send" it.
+                    updateDecomposition(builder.build(), report);
+                    hasDecompositionBeenSent = true;
+                }
+            }
+
+            if (compareEveryMinutes > 0 && step % compareEveryMinutes == 0) {
+                double difference = compareAt(t);
+                report.mComparisons++;
+                report.mTotalDifference += difference;
+                if (difference > report.mWorstDifference) {
+                    report.mWorstDifference = difference;
+                    report.mWorstDifferenceTimeMillis = t;
+                }
+            }
+        }
+
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, report.toString());
+        }
+        return report;
+    }
+
+    /**
+     * Simulate sending "decomposition" to the offload processor: unpack its bitmaps and
+     * count the bytes.
+     *
+     * @param decomposition WatchFaceDecomposition we're sending
+     * @param report        Report to count into
+     */
+    private void updateDecomposition(@NonNull WatchFaceDecomposition decomposition,
+                                     @NonNull Report report) {
+        mDecomposition = decomposition;
+        mComponentBitmaps.clear();
+        report.mUpdateDecompositionCalls++;
+
+        for (ImageComponent i : decomposition.getImageComponents()) {
+            Bitmap b = loadBitmap(i.getImage());
+            if (b != null) {
+                mComponentBitmaps.put(i.getComponentId(), b);
+                report.mBytesSent += b.getByteCount();
+            }
+        }
+        for (FontComponent f : decomposition.getFontComponents()) {
+            Bitmap b = loadBitmap(f.getImage());
+            if (b != null) {
+                mComponentBitmaps.put(f.getComponentId(), b);
+                report.mBytesSent += b.getByteCount();
+            }
+        }
+    }
+
+    @Nullable
+    private Bitmap loadBitmap(@Nullable Icon icon) {
+        Drawable d = icon == null ? null : icon.loadDrawable(mContext);
+        return d instanceof BitmapDrawable ? ((BitmapDrawable) d).getBitmap() : null;
+    }
+
+    /**
+     * Render our current decomposition at "timeMillis", the way the offload processor would.
+     * Components are drawn back to front in Z order onto a black screen.
+     *
+     * @param timeMillis Time at which to render
+     * @return The rendered Bitmap, which we'll reuse next time, so copy it if you need it
+     */
+    @NonNull
+    public Bitmap renderDecompositionAt(long timeMillis) {
+        mSimulatedCanvas.drawColor(Color.BLACK);
+        if (mDecomposition == null) {
+            return mSimulatedBitmap;
+        }
+
+        // The offload processor works in local time.
+        long localTimeMillis = timeMillis + TimeZone.getDefault().getOffset(timeMillis);
+        float dayFraction = Math.floorMod(localTimeMillis, DAY_MS) / (float) DAY_MS;
+        float width = mSimulatedBitmap.getWidth();
+        float height = mSimulatedBitmap.getHeight();
+
+        // Gather our components and sort them by Z order.
+        List<Object> components = new ArrayList<>();
+        components.addAll(mDecomposition.getImageComponents());
+        components.addAll(mDecomposition.getNumberComponents());
+        components.sort(Comparator.comparingInt(c -> c instanceof ImageComponent ?
+                ((ImageComponent) c).getZOrder() : ((NumberComponent) c).getZOrder()));
+
+        for (Object c : components) {
+            if (c instanceof ImageComponent) {
+                ImageComponent i = (ImageComponent) c;
+                Bitmap b = mComponentBitmaps.get(i.getComponentId());
+                if (b == null) {
+                    continue;
+                }
+                // Rotate by our degrees per day, in steps if we have them.
+                float degrees = i.getOffsetDegrees() + i.getDegreesPerDay() * dayFraction;
+                if (i.getDegreesPerStep() > 0f) {
+                    degrees = (float) Math.floor(degrees / i.getDegreesPerStep()) *
+                            i.getDegreesPerStep();
+                }
+                PointF pivot = i.getPivot();
+                float pivotX = (pivot != null ? pivot.x : 0.5f) * width;
+                float pivotY = (pivot != null ? pivot.y : 0.5f) * height;
+                RectF bounds = i.getBounds();
+                mTempRectF.set(bounds.left * width, bounds.top * height,
+                        bounds.right * width, bounds.bottom * height);
+
+                mSimulatedCanvas.save();
+                mSimulatedCanvas.rotate(degrees % 360f, pivotX, pivotY);
+                mSimulatedCanvas.drawBitmap(b, null, mTempRectF, null);
+                mSimulatedCanvas.restore();
+            } else if (c instanceof NumberComponent) {
+                NumberComponent n = (NumberComponent) c;
+                Bitmap b = mComponentBitmaps.get(n.getFontComponentId());
+                FontComponent f = getFontComponent(n.getFontComponentId());
+                if (b == null || f == null || f.getDigitCount() <= 0) {
+                    continue;
+                }
+                // Our NumberComponents count up from their lowest value and wrap around after
+                // their highest value; our time-dependent strips use one glyph per frame,
+                // so that's our glyph index. If we haven't been updated in time, we'll wrap,
+                // and (just like the real thing) we'll show the wrong frame.
+                long range = n.getHighestValue() - n.getLowestValue() + 1;
+                long value = n.getLowestValue() + Math.floorMod(
+                        (localTimeMillis + n.getTimeOffsetMs()) / n.getMsPerIncrement(), range);
+                int glyphHeight = b.getHeight() / f.getDigitCount();
+                int glyph = (int) Math.min(value, f.getDigitCount() - 1);
+                mTempRect.set(0, glyph * glyphHeight, b.getWidth(), (glyph + 1) * glyphHeight);
+                PointF position = n.getPosition();
+                mTempRectF.set(position.x * width, position.y * height,
+                        position.x * width + b.getWidth(),
+                        position.y * height + glyphHeight);
+                mSimulatedCanvas.drawBitmap(b, mTempRect, mTempRectF, null);
+            }
+        }
+
+        return mSimulatedBitmap;
+    }
+
+    @Nullable
+    private FontComponent getFontComponent(int componentId) {
+        if (mDecomposition != null) {
+            for (FontComponent f : mDecomposition.getFontComponents()) {
+                if (f.getComponentId() == componentId) {
+                    return f;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Render our watch face at "timeMillis" with our regular ambient draw path.
+     *
+     * @param timeMillis Time at which to render
+     * @return The rendered Bitmap, which we'll reuse next time, so copy it if you need it
+     */
+    @NonNull
+    public Bitmap renderAmbientAt(long timeMillis) {
+        mReferenceDrawable.getWatchFaceState().setCurrentTime(timeMillis);
+        mReferenceCanvas.drawColor(Color.BLACK);
+        mReferenceDrawable.drawAtCurrentTime(mReferenceCanvas);
+        return mReferenceBitmap;
+    }
+
+    /**
+     * Render both the decomposition and our regular ambient draw path at "timeMillis",
+     * and compare them.
+     *
+     * @param timeMillis Time at which to render
+     * @return Mean absolute difference per color channel, from 0 (identical) to 255
+     */
+    private double compareAt(long timeMillis) {
+        int[] a = getPixels(renderDecompositionAt(timeMillis));
+        int[] b = getPixels(renderAmbientAt(timeMillis));
+        long total = 0L;
+        for (int i = 0; i < a.length; i++) {
+            total += Math.abs(Color.red(a[i]) - Color.red(b[i])) +
+                    Math.abs(Color.green(a[i]) - Color.green(b[i])) +
+                    Math.abs(Color.blue(a[i]) - Color.blue(b[i]));
+        }
+        return total / (3d * a.length);
+    }
+
+    @NonNull
+    private static int[] getPixels(@NonNull Bitmap b) {
+        int[] pixels = new int[b.getWidth() * b.getHeight()];
+        b.getPixels(pixels, 0, b.getWidth(), 0, 0, b.getWidth(), b.getHeight());
+        return pixels;
+    }
+
+    /**
+     * What happened during our simulated day.
+     */
+    public static final class Report {
+        int mWakeups;
+        int mRebuilds;
+        int mUpdateDecompositionCalls;
+        long mBytesSent;
+        long mBuildNanos;
+        int mComparisons;
+        double mTotalDifference;
+        double mWorstDifference;
+        long mWorstDifferenceTimeMillis;
+
+        public int getRebuilds() {
+            return mRebuilds;
+        }
+
+        public int getUpdateDecompositionCalls() {
+            return mUpdateDecompositionCalls;
+        }
+
+        public long getBytesSent() {
+            return mBytesSent;
+        }
+
+        public double getWorstDifference() {
+            return mWorstDifference;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Wakeups: %d ~ Rebuilds: %d (%.1f ms avg) ~ updateDecomposition: %d" +
+                            " ~ Bytes sent: %d ~ Difference: %.2f avg, %.2f worst (at %d)",
+                    mWakeups, mRebuilds,
+                    mRebuilds == 0 ? 0f : mBuildNanos / 1000000f / mRebuilds,
+                    mUpdateDecompositionCalls, mBytesSent,
+                    mComparisons == 0 ? 0d : mTotalDifference / mComparisons,
+                    mWorstDifference, mWorstDifferenceTimeMillis);
+        }
+    }
+}
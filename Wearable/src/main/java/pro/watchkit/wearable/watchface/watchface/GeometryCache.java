@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.graphics.Path;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A process-wide cache of Path geometry for things like hands and pips, whose shape depends
+ * only on a handful of settings (shape, size, length and so on) and the size of the watch face.
+ * <p>
+ * Building these shapes is all Path.op, which is slow. And there's lots of WatchPartDrawables
+ * building identical shapes: one per engine, and dozens more in the config UI, where every
+ * ViewHolder has its own watch face. So build each shape once, and copy it out from here.
+ * <p>
+ * The templates in here are never handed out directly, only copied, so they never change.
+ */
+final class GeometryCache {
+    /**
+     * The maximum number of shapes we keep. A shape is a few paths of a few hundred verbs
+     * each, so a few KB; this caps us at somewhere under a megabyte. Plenty for all the
+     * permutations in the config UI at once.
+     */
+    private static final int MAX_ENTRIES = 128;
+
+    /**
+     * Our shapes, keyed by everything that went into making them, least-recently-used first.
+     */
+    @NonNull
+    private static final LinkedHashMap<List<Object>, Path[]> sCache =
+            new LinkedHashMap<List<Object>, Path[]>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, Path[]> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    private static int sHits = 0;
+    private static int sMisses = 0;
+
+    private GeometryCache() {
+    }
+
+    /**
+     * Make a key out of everything a shape depends on. Every parameter must have a sensible
+     * "equals" and "hashCode": enums, boxed primitives, strings.
+     *
+     * @param params Everything the shape depends on
+     * @return A key for "get" and "put"
+     */
+    @NonNull
+    static List<Object> key(@NonNull Object... params) {
+        return Arrays.asList(params);
+    }
+
+    /**
+     * Look up the shape for "key" and copy it into "paths".
+     *
+     * @param key   The key for the shape, from "key"
+     * @param paths The paths to copy the shape into, in the same order it was "put"
+     * @return Whether we had the shape; if not, "paths" are left untouched
+     */
+    static synchronized boolean get(@NonNull List<Object> key, @NonNull Path... paths) {
+        Path[] templates = sCache.get(key);
+        if (templates == null || templates.length != paths.length) {
+            sMisses++;
+            return false;
+        }
+        for (int i = 0; i < paths.length; i++) {
+            paths[i].set(templates[i]);
+        }
+        sHits++;
+        return true;
+    }
+
+    /**
+     * Store a copy of the shape in "paths" for "key".
+     *
+     * @param key   The key for the shape, from "key"
+     * @param paths The paths of the shape, which we copy
+     */
+    static synchronized void put(@NonNull List<Object> key, @NonNull Path... paths) {
+        Path[] templates = new Path[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            templates[i] = new Path(paths[i]);
+        }
+        sCache.put(key, templates);
+    }
+
+    static synchronized int getHits() {
+        return sHits;
+    }
+
+    static synchronized int getMisses() {
+        return sMisses;
+    }
+
+    static synchronized int size() {
+        return sCache.size();
+    }
+}
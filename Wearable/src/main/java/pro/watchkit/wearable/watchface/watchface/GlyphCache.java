@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pro.watchkit.wearable.watchface.model.BytePackable.Typeface;
+
+/**
+ * A process-wide cache of glyph outlines for our dial digits. Shaping text into a Path
+ * ("Paint.getTextPath") is slow, and every watch face in the config UI wants the same dozen
+ * labels in the same typeface at the same size, so shape each label once and share it.
+ * <p>
+ * Glyphs are handed out directly, not copied, so never modify them! Use "Path.addPath" with
+ * a Matrix to put them where you want them.
+ */
+final class GlyphCache {
+    /**
+     * The maximum number of glyphs we keep. Each is a label of a character or two, so a
+     * few hundred bytes to a few KB; enough for every DigitFormat in a couple of typefaces.
+     */
+    private static final int MAX_GLYPHS = 256;
+
+    /**
+     * A single shaped label: its outline, with its origin at (0, 0) (according to the Paint's
+     * text alignment), and its bounds.
+     */
+    static final class Glyph {
+        @NonNull
+        final Path mOutline = new Path();
+        @NonNull
+        final Rect mBounds = new Rect();
+    }
+
+    /**
+     * Our glyphs, keyed by typeface, text size, text alignment and label, least-recently-used
+     * first.
+     */
+    @NonNull
+    private static final LinkedHashMap<List<Object>, Glyph> sCache =
+            new LinkedHashMap<List<Object>, Glyph>(MAX_GLYPHS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, Glyph> eldest) {
+                    return size() > MAX_GLYPHS;
+                }
+            };
+
+    private static int sHits = 0;
+    private static int sMisses = 0;
+
+    private GlyphCache() {
+    }
+
+    /**
+     * Get the glyph for "label" as drawn with "paint", shaping it if we need to.
+     *
+     * @param paint    The paint to shape "label" with; we use its text size and alignment
+     * @param typeface The typeface "paint" is set to
+     * @param label    The label to shape
+     * @return The glyph for "label"; don't modify it!
+     */
+    @NonNull
+    static synchronized Glyph get(
+            @NonNull Paint paint, @NonNull Typeface typeface, @NonNull String label) {
+        List<Object> key = Arrays.asList(
+                typeface, paint.getTextSize(), paint.getTextAlign(), label);
+        Glyph glyph = sCache.get(key);
+        if (glyph == null) {
+            sMisses++;
+            glyph = new Glyph();
+            paint.getTextPath(label, 0, label.length(), 0f, 0f, glyph.mOutline);
+            paint.getTextBounds(label, 0, label.length(), glyph.mBounds);
+            sCache.put(key, glyph);
+        } else {
+            sHits++;
+        }
+        return glyph;
+    }
+
+    static synchronized int getHits() {
+        return sHits;
+    }
+
+    static synchronized int getMisses() {
+        return sMisses;
+    }
+
+    static synchronized int size() {
+        return sCache.size();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import pro.watchkit.wearable.watchface.model.WatchFaceState;
+import pro.watchkit.wearable.watchface.util.DebugTiming;
+
+/**
+ * A benchmark for drawing hands in interactive mode. We draw a few seconds' worth of frames
+ * of just the hands, once as vectors and once as sprites, at a few typical screen sizes, and
+ * report the average cost per frame of each. The sprites' one-off rendering cost is included,
+ * since the second hand keeps needing new ones.
+ * <p>
+ * Run it on-device or in an emulator, from the developer options in the config activity.
+ * The per-size timings go to the log via DebugTiming.
+ */
+public final class HandBenchmark {
+    private static final String TAG = "HandBenchmark";
+
+    /**
+     * Typical round watch screen sizes, in pixels.
+     */
+    private static final int[] SCREEN_SIZES = {320, 390, 454};
+
+    /**
+     * How many frames we draw, and how far apart. 15 fps for 8 seconds.
+     */
+    private static final int FRAMES = 120;
+    private static final long FRAME_MS = TimeUnit.SECONDS.toMillis(1) / 15;
+
+    private HandBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param context              Context for our WatchFaceGlobalDrawable
+     * @param watchFaceStateString Watch face state to draw the hands of
+     * @return A summary of the results, suitable for a Toast
+     */
+    @NonNull
+    public static String run(@NonNull Context context, @NonNull String watchFaceStateString) {
+        StringBuilder sb = new StringBuilder("Hands per frame:");
+        DebugTiming.start(TAG);
+        for (int size : SCREEN_SIZES) {
+            WatchFaceGlobalDrawable d =
+                    new WatchFaceGlobalDrawable(context, WatchFaceGlobalDrawable.PART_HANDS);
+            WatchFaceState watchFaceState = d.getWatchFaceState();
+            watchFaceState.setString(watchFaceStateString);
+            watchFaceState.setDeveloperMode(true);
+            d.setBounds(0, 0, size, size);
+
+            Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            watchFaceState.setVectorHands(true);
+            long vector = drawFrames(d, canvas);
+            DebugTiming.checkpoint(size + "px vector");
+            watchFaceState.setVectorHands(false);
+            long sprites = drawFrames(d, canvas);
+            DebugTiming.checkpoint(size + "px sprites");
+
+            sb.append(String.format(Locale.getDefault(), " %dpx %.2f vs %.2f ms;", size,
+                    vector / (float) FRAMES / 1000000f, sprites / (float) FRAMES / 1000000f));
+        }
+        DebugTiming.endAndWrite();
+        return sb.toString();
+    }
+
+    /**
+     * Draw FRAMES frames of "d" to "canvas", starting from the current time.
+     *
+     * @param d      WatchFaceGlobalDrawable to draw
+     * @param canvas Canvas to draw to
+     * @return How long it took, in nanoseconds
+     */
+    private static long drawFrames(@NonNull WatchFaceGlobalDrawable d, @NonNull Canvas canvas) {
+        WatchFaceState watchFaceState = d.getWatchFaceState();
+        long time = System.currentTimeMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            watchFaceState.setCurrentTime(time + i * FRAME_MS);
+            d.drawAtCurrentTime(canvas);
+        }
+        return System.nanoTime() - start;
+    }
+}
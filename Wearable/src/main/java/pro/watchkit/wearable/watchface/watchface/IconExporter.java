@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import static android.support.wearable.complications.ComplicationData.TYPE_NOT_CONFIGURED;
+import static android.support.wearable.complications.ComplicationData.TYPE_SHORT_TEXT;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import pro.watchkit.wearable.watchface.model.WatchFaceState;
+
+/**
+ * Exports icons: every gallery preset in every colorway, as 960x960 PNGs.
+ * <p>
+ * We've a fixed number of renderer threads, each with its own WatchFaceGlobalDrawable that it
+ * reuses for every icon, and a fixed pool of bitmaps that they render into. Once a renderer's
+ * drawn an icon, it hands the bitmap to a separate pool of encoder threads and gets on with the
+ * next one, so PNG encoding overlaps rendering. When the encoder's done, the bitmap goes back
+ * in the pool. There are two bitmaps per renderer, so a renderer never waits on an encoder
+ * unless the encoders have fallen a whole icon behind.
+ * <p>
+ * Where the PNGs go is up to our Output: app-private files on a device (as the developer
+ * options do), or a plain directory, for running this from a harness off-device.
+ */
+public final class IconExporter {
+    private static final String TAG = "IconExporter";
+
+    /**
+     * Width and height of each icon.
+     */
+    public static final int SIZE = 960;
+
+    /**
+     * What we draw in each icon: everything except complications (but with rings for them).
+     */
+    private static final int FLAGS = WatchFaceGlobalDrawable.PART_BACKGROUND |
+            WatchFaceGlobalDrawable.PART_PIPS |
+            WatchFaceGlobalDrawable.PART_HANDS |
+            WatchFaceGlobalDrawable.PART_RINGS_ACTIVE;
+
+    /**
+     * The time we draw each icon at: the same time we draw previews at.
+     */
+    private static final long TIME_MILLIS = WatchFaceState.PREVIEW_TIME_MILLIS;
+
+    /**
+     * Watch face states for each slot, which we use for their complication layouts. Gallery
+     * presets take turns with each slot, one slot per preset.
+     */
+    private static final String[] SLOT_STATES = {
+            "04941b40ef006610846065dcc6f81411~16e1cf096cc000000000000000000001~0",
+            "0cd71a20ef007c2008e2212a68384c01~1b434f0963c000000000000000000001~0",
+            "155b4120e0004274fb8601d8cfb81001~1fe4ef0eba0000000000000000000001~0",
+            "1d404b6a6f0066f6b4aae8c459bf4ca0~13308f05084000000000000000000000~0"
+    };
+
+    /**
+     * Where our PNGs go.
+     */
+    public interface Output {
+        /**
+         * Open a new file to write a PNG into.
+         *
+         * @param name Name of the file
+         * @return OutputStream to write to, which we'll close
+         * @throws IOException If it couldn't be opened
+         */
+        @NonNull
+        OutputStream open(@NonNull String name) throws IOException;
+    }
+
+    /**
+     * Our results, and how quickly we got them.
+     */
+    public static final class Report {
+        int mThreads;
+        int mIcons;
+        long mWallNanos;
+        final LongAdder mRenderNanos = new LongAdder();
+        final LongAdder mEncodeNanos = new LongAdder();
+        final AtomicInteger mFailures = new AtomicInteger();
+
+        public int getIcons() {
+            return mIcons;
+        }
+
+        public int getFailures() {
+            return mFailures.get();
+        }
+
+        /**
+         * Get our throughput.
+         *
+         * @return Icons exported per second
+         */
+        public float getIconsPerSecond() {
+            return mWallNanos == 0L ? 0f : mIcons * 1000000000f / mWallNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Icons: %d in %.1f s (%.1f/s) ~ Render: %.1f ms avg ~ Encode: %.1f ms avg" +
+                            " ~ Threads: %d ~ Failures: %d",
+                    mIcons, mWallNanos / 1000000000f, getIconsPerSecond(),
+                    mIcons == 0 ? 0f : mRenderNanos.sum() / 1000000f / mIcons,
+                    mIcons == 0 ? 0f : mEncodeNanos.sum() / 1000000f / mIcons,
+                    mThreads, mFailures.get());
+        }
+    }
+
+    /**
+     * One icon to export.
+     */
+    private static final class Job {
+        final int mSlot;
+        @NonNull
+        final String mPreset;
+        final int mColorway;
+        @NonNull
+        final String mFileName;
+
+        Job(int slot, @NonNull String galleryName, @NonNull String preset,
+            @NonNull String colorwayName, int colorway) {
+            mSlot = slot;
+            mPreset = preset;
+            mColorway = colorway;
+            mFileName = galleryName
+                    .replace("🅰", "AA")
+                    .replace("🅱", "AB")
+                    .replace("🅲", "AC")
+                    .replace("🅳", "AD") + " x " + colorwayName + ".png";
+        }
+    }
+
+    @NonNull
+    private final Context mContext;
+    private final int mThreads;
+
+    /**
+     * The default complication providers of each slot, to match SLOT_STATES.
+     */
+    @NonNull
+    private final int[][][] mSlotProviders;
+
+    /**
+     * A dummy complication that won't be displayed, for activating rings.
+     */
+    @NonNull
+    private final ComplicationData mDummyComplication;
+
+    /**
+     * Make an IconExporter.
+     *
+     * @param context Context for our WatchFaceStates
+     * @param threads How many renderer threads (and encoder threads) to use
+     */
+    public IconExporter(@NonNull Context context, int threads) {
+        mContext = context;
+        mThreads = Math.max(1, threads);
+        mSlotProviders = new int[][][]{
+                new ProWatchFaceService.A().getDefaultSystemComplicationProviders(),
+                new ProWatchFaceService.B().getDefaultSystemComplicationProviders(),
+                new ProWatchFaceService.C().getDefaultSystemComplicationProviders(),
+                new ProWatchFaceService.D().getDefaultSystemComplicationProviders()
+        };
+        ComplicationData.Builder cb = new ComplicationData.Builder(TYPE_SHORT_TEXT);
+        cb.setShortText(ComplicationText.plainText("x"));
+        mDummyComplication = cb.build();
+    }
+
+    /**
+     * An Output to app-private files, like the developer options use.
+     *
+     * @param context Context to open files with
+     * @return Our Output
+     */
+    @NonNull
+    public static Output toPrivateFiles(@NonNull Context context) {
+        return name -> context.openFileOutput(name, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * An Output to the given directory.
+     *
+     * @param directory Directory to write into; it must exist
+     * @return Our Output
+     */
+    @NonNull
+    public static Output toDirectory(@NonNull File directory) {
+        return name -> new FileOutputStream(new File(directory, name));
+    }
+
+    /**
+     * Export every gallery preset in every colorway. This blocks until it's done, so don't
+     * call it from the UI thread.
+     *
+     * @param gallery   Gallery names to preset strings
+     * @param colorways Colorway names to colorways
+     * @param output    Where to write our PNGs
+     * @return Our Report
+     * @throws InterruptedException If we're interrupted whilst waiting for our threads
+     */
+    @NonNull
+    public Report export(@NonNull Map<String, String> gallery,
+                         @NonNull Map<String, Integer> colorways,
+                         @NonNull Output output) throws InterruptedException {
+        // Make our list of jobs up front.
+        List<Job> jobs = new ArrayList<>(gallery.size() * colorways.size());
+        int slot = 0;
+        for (Map.Entry<String, String> g : gallery.entrySet()) {
+            for (Map.Entry<String, Integer> cw : colorways.entrySet()) {
+                jobs.add(new Job(slot, g.getKey(), g.getValue(), cw.getKey(), cw.getValue()));
+            }
+            slot = (slot + 1) % SLOT_STATES.length;
+        }
+
+        Report report = new Report();
+        report.mThreads = mThreads;
+        report.mIcons = jobs.size();
+        long start = System.nanoTime();
+
+        BlockingQueue<Bitmap> bitmaps = new ArrayBlockingQueue<>(2 * mThreads);
+        for (int i = 0; i < 2 * mThreads; i++) {
+            bitmaps.add(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        }
+        ExecutorService encoders = Executors.newFixedThreadPool(
+                mThreads, r -> new Thread(r, TAG + " encoder"));
+        AtomicInteger nextJob = new AtomicInteger();
+
+        Thread[] renderers = new Thread[mThreads];
+        for (int t = 0; t < mThreads; t++) {
+            renderers[t] = new Thread(() -> {
+                // Each renderer has its own drawable, reused for all its icons.
+                WatchFaceGlobalDrawable drawable = new WatchFaceGlobalDrawable(mContext, FLAGS);
+                drawable.setBounds(0, 0, SIZE, SIZE);
+                int i;
+                while ((i = nextJob.getAndIncrement()) < jobs.size()) {
+                    Job job = jobs.get(i);
+                    Bitmap bitmap;
+                    try {
+                        bitmap = bitmaps.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    long renderStart = System.nanoTime();
+                    try {
+                        render(drawable, job, bitmap);
+                    } catch (RuntimeException e) {
+                        // One bad icon shouldn't stop the rest. Put our bitmap back, count it
+                        // and carry on.
+                        Log.d(TAG, "export: couldn't render " + job.mFileName + ": " + e);
+                        report.mFailures.incrementAndGet();
+                        bitmaps.add(bitmap);
+                        continue;
+                    } finally {
+                        report.mRenderNanos.add(System.nanoTime() - renderStart);
+                    }
+
+                    // Over to an encoder; we'll get on with the next one.
+                    encoders.execute(() -> {
+                        long encodeStart = System.nanoTime();
+                        try (OutputStream out = output.open(job.mFileName)) {
+                            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+                        } catch (IOException e) {
+                            Log.d(TAG, "export: couldn't write " + job.mFileName + ": " + e);
+                            report.mFailures.incrementAndGet();
+                        } finally {
+                            report.mEncodeNanos.add(System.nanoTime() - encodeStart);
+                            bitmaps.add(bitmap);
+                        }
+                    });
+                }
+            }, TAG + " renderer");
+            renderers[t].start();
+        }
+
+        try {
+            for (Thread renderer : renderers) {
+                renderer.join();
+            }
+            encoders.shutdown();
+            encoders.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            for (Thread renderer : renderers) {
+                renderer.interrupt();
+            }
+            encoders.shutdownNow();
+        }
+
+        // All our bitmaps are back in the pool now.
+        bitmaps.forEach(Bitmap::recycle);
+        report.mWallNanos = System.nanoTime() - start;
+        Log.d(TAG, "export: " + report);
+        return report;
+    }
+
+    /**
+     * Render "job" with "drawable" into "bitmap".
+     *
+     * @param drawable Drawable to render with
+     * @param job      Job to render
+     * @param bitmap   Bitmap to render into
+     */
+    private void render(@NonNull WatchFaceGlobalDrawable drawable, @NonNull Job job,
+                        @NonNull Bitmap bitmap) {
+        WatchFaceState watchFaceState = drawable.getWatchFaceState();
+        watchFaceState.setString(SLOT_STATES[job.mSlot]);
+        watchFaceState.setWatchFacePresetString(job.mPreset);
+        watchFaceState.setColorway(job.mColorway);
+        watchFaceState.setCurrentTime(TIME_MILLIS);
+        watchFaceState.setNotifications(0, 0);
+        watchFaceState.setAmbient(false);
+
+        // Initialise complications, just enough to be able to draw rings. Complication IDs
+        // come from a process-wide counter that this resets, so one renderer at a time.
+        synchronized (IconExporter.class) {
+            watchFaceState.initializeComplications(mContext, false);
+            int[] complicationIds = watchFaceState.getComplicationIds();
+            int[][] defaultComplicationProviders = mSlotProviders[job.mSlot];
+            for (int i = 0; i < complicationIds.length; i++) {
+                // For each active complication, check for a corresponding default complication.
+                // If it's there, activate its ring with our dummy complication.
+                if (i < defaultComplicationProviders.length) {
+                    int[] complicationProvider = defaultComplicationProviders[i];
+                    if (complicationProvider.length >= 2 &&
+                            complicationProvider[1] != TYPE_NOT_CONFIGURED) {
+                        watchFaceState.onComplicationDataUpdate(
+                                complicationIds[i], mDummyComplication, null);
+                    }
+                }
+            }
+        }
+
+        // Draw it! Our bitmaps are reused, so clear it first.
+        bitmap.eraseColor(Color.TRANSPARENT);
+        drawable.draw(new Canvas(bitmap));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.content.Context;
+import android.graphics.Path;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+import pro.watchkit.wearable.watchface.model.BytePackable.PipShape;
+import pro.watchkit.wearable.watchface.model.BytePackable.PipSize;
+import pro.watchkit.wearable.watchface.model.WatchFaceState;
+import pro.watchkit.wearable.watchface.util.DebugTiming;
+
+/**
+ * A benchmark for building rings of pips. We build a full ring of 60 pips for every PipShape
+ * and PipSize, once by folding each pip into the ring one at a time (the old way) and once by
+ * unioning them pairwise (the new way), and time both.
+ * <p>
+ * Path.op is native code, so this runs on-device or in an emulator, from the developer options
+ * in the config activity. The per-combination timings go to the log via DebugTiming.
+ */
+public final class PipBenchmark {
+    private static final String TAG = "PipBenchmark";
+
+    /**
+     * How many times we build each ring. We take the fastest, to keep GC out of it.
+     */
+    private static final int REPEATS = 3;
+
+    private PipBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param context              Context for our WatchFaceState
+     * @param watchFaceStateString Watch face state to take our pip band position from
+     * @param width                Width of the screen to benchmark at
+     * @param height               Height of the screen to benchmark at
+     * @return A summary of the results, suitable for a Toast
+     */
+    @NonNull
+    public static String run(@NonNull Context context, @NonNull String watchFaceStateString,
+                             int width, int height) {
+        WatchFaceState watchFaceState = new WatchFaceState(context);
+        watchFaceState.setString(watchFaceStateString);
+        WatchPartPipsDrawable d = new WatchPartPipsMinuteDrawable();
+        d.setWatchFaceState(watchFaceState, new Path(), new Path());
+        d.setBounds(0, 0, width, height);
+
+        final float pc = d.pc;
+        final float pipRadiusPositionDimen = watchFaceState.getPipBandStart(pc) * pc +
+                watchFaceState.getPipBandHeight(pc) * pc / 2f;
+        final long allPips = (1L << 60) - 1L;
+
+        long totalSequential = 0L, totalBalanced = 0L;
+        DebugTiming.start(TAG);
+        for (PipShape pipShape : PipShape.values()) {
+            for (PipSize pipSize : PipSize.values()) {
+                float pipWidth = WatchFaceState.getPipThickness(pipShape, pipSize) * pc;
+                float pipSizeDimen = WatchFaceState.getPipHalfLength(pipShape, pipSize) * pc;
+
+                long sequential = Long.MAX_VALUE, balanced = Long.MAX_VALUE;
+                for (int i = 0; i < REPEATS; i++) {
+                    long start = System.nanoTime();
+                    d.buildPips(60, allPips, pipShape, pipWidth, pipSizeDimen,
+                            pipRadiusPositionDimen, 1f, false);
+                    long middle = System.nanoTime();
+                    d.buildPips(60, allPips, pipShape, pipWidth, pipSizeDimen,
+                            pipRadiusPositionDimen, 1f, true);
+                    long end = System.nanoTime();
+                    sequential = Math.min(sequential, middle - start);
+                    balanced = Math.min(balanced, end - middle);
+                }
+                totalSequential += sequential;
+                totalBalanced += balanced;
+
+                DebugTiming.checkpoint(String.format(Locale.ROOT, "%s/%s %.2f vs %.2f",
+                        pipShape, pipSize, sequential / 1000000f, balanced / 1000000f));
+            }
+        }
+        DebugTiming.endAndWrite();
+
+        return String.format(Locale.getDefault(),
+                "Pips: %.1f ms one at a time, %.1f ms pairwise (%.1fx)",
+                totalSequential / 1000000f, totalBalanced / 1000000f,
+                (float) totalSequential / (float) Math.max(totalBalanced, 1L));
+    }
+}
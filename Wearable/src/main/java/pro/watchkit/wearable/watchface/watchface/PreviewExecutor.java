@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pro.watchkit.wearable.watchface.BuildConfig;
+
+/**
+ * Our executor for rendering watch face previews in the background.
+ * <p>
+ * A fixed number of threads (one fewer than we have cores, so the UI thread always has one
+ * to itself) serve a priority queue. Previews that are on screen right now go first, newest
+ * first, since when you fling through a list it's the ones you've landed on that matter.
+ * After those come previews about to scroll into view. And any on-screen preview whose view
+ * has been detached by the time we get to it is skipped altogether.
+ * <p>
+ * Cancelling a task interrupts it; our drawables check for that between layers.
+ */
+final class PreviewExecutor {
+    private static final String TAG = "PreviewExecutor";
+
+    /**
+     * Priority for a preview that's on screen now.
+     */
+    static final int PRIORITY_VISIBLE = 0;
+
+    /**
+     * Priority for a preview that's about to scroll into view.
+     */
+    static final int PRIORITY_PREFETCH = 1;
+
+    private static final int THREADS =
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    @NonNull
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            THREADS, THREADS, 30L, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+            r -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, TAG));
+
+    static {
+        // Let our threads go when nobody's looking at previews.
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Tie-breaker for tasks of equal priority: later tasks go first.
+     */
+    @NonNull
+    private static final AtomicLong sSequence = new AtomicLong();
+
+    private static long sCompleted = 0L;
+    private static long sTotalLatencyNanos = 0L;
+    private static long sMaxLatencyNanos = 0L;
+
+    private PreviewExecutor() {
+    }
+
+    /**
+     * Submit a preview for rendering.
+     *
+     * @param runnable What to run
+     * @param priority PRIORITY_VISIBLE or PRIORITY_PREFETCH
+     * @param view     The view we're rendering into; if it's detached by the time we get to
+     *                 run, we don't
+     * @return A Future, for cancelling
+     */
+    @NonNull
+    static Future<?> submit(@NonNull Runnable runnable, int priority, @NonNull View view) {
+        PreviewTask task = new PreviewTask(runnable, priority, view);
+        sExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Note how long a preview took, from being submitted to being finished.
+     *
+     * @param queuedNanos  Time spent waiting in our queue
+     * @param runningNanos Time spent rendering
+     */
+    private static void recordLatency(long queuedNanos, long runningNanos) {
+        long latency = queuedNanos + runningNanos;
+        long completed, average, max;
+        synchronized (PreviewExecutor.class) {
+            sCompleted++;
+            sTotalLatencyNanos += latency;
+            sMaxLatencyNanos = Math.max(sMaxLatencyNanos, latency);
+            completed = sCompleted;
+            average = sTotalLatencyNanos / sCompleted;
+            max = sMaxLatencyNanos;
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Preview " + completed + ": " +
+                    (latency / 1000000f) + "ms (queued " + (queuedNanos / 1000000f) +
+                    "ms, rendering " + (runningNanos / 1000000f) + "ms); average " +
+                    (average / 1000000f) + "ms, max " + (max / 1000000f) + "ms");
+        }
+    }
+
+    /**
+     * A task in our queue, ordered by priority, then newest first.
+     */
+    private static final class PreviewTask extends FutureTask<Void>
+            implements Comparable<PreviewTask> {
+        private final int mPriority;
+        private final long mSequence;
+        @NonNull
+        private final View mView;
+        private final long mSubmitTime = SystemClock.elapsedRealtimeNanos();
+
+        PreviewTask(@NonNull Runnable runnable, int priority, @NonNull View view) {
+            super(runnable, null);
+            mPriority = priority;
+            mSequence = sSequence.getAndIncrement();
+            mView = view;
+        }
+
+        @Override
+        public void run() {
+            if (mPriority == PRIORITY_VISIBLE && !mView.isAttachedToWindow()) {
+                // Our view has scrolled away since we were submitted. Don't bother; if it
+                // comes back, it'll submit us again.
+                cancel(false);
+                return;
+            }
+            long start = SystemClock.elapsedRealtimeNanos();
+            super.run();
+            if (!isCancelled()) {
+                recordLatency(start - mSubmitTime, SystemClock.elapsedRealtimeNanos() - start);
+            }
+        }
+
+        @Override
+        public int compareTo(@NonNull PreviewTask o) {
+            if (mPriority != o.mPriority) {
+                return Integer.compare(mPriority, o.mPriority);
+            } else {
+                return Long.compare(o.mSequence, mSequence);
+            }
+        }
+    }
+}
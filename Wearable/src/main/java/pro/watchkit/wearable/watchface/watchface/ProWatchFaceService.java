@@ -549,7 +549,9 @@ public abstract class ProWatchFaceService extends HardwareAcceleratedCanvasWatch
                 long nextUpdateTime = mWatchFaceGlobalDrawable.buildDecomposition(builder);
                 updateDecomposition(builder.build());
                 // Reschedule the alarm; we don't need it for another n milliseconds.
-                scheduleNextUpdateDecomposableAlarm(nextUpdateTime);
+                // Or, during dusk and dawn, until our ambient tint next visibly changes.
+                scheduleNextUpdateDecomposableAlarm(Math.min(nextUpdateTime,
+                        getWatchFaceState().getNextAmbientTintChangeTime()));
                 mHasDecompositionBeenSent = true;
             } else if (!canDrawDecomposition() && mHasDecompositionBeenSent) {
                 // Remove any decomposition we may have had.
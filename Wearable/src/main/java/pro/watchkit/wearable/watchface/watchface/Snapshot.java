@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A finished (or draft) preview bitmap, shared between whoever's holding it: the drawable
+ * that drew it, the drawable that's showing it, and our ThumbnailCache.
+ * <p>
+ * Previews are big (and on API 26+, they're hardware bitmaps, in GPU memory), so we don't
+ * want to wait for the garbage collector to get around to them. Instead we count references.
+ * Whoever makes a Snapshot holds the first reference; "acquire" another for anyone else who
+ * holds it, and "release" each when done. When the last reference goes, we recycle our bitmap.
+ */
+final class Snapshot {
+    @NonNull
+    private final Bitmap mBitmap;
+
+    /**
+     * How many references to us there are. Once this hits zero, we're recycled, for good.
+     */
+    @NonNull
+    private final AtomicInteger mReferences = new AtomicInteger(1);
+
+    /**
+     * Make a new Snapshot. The caller holds its first reference.
+     *
+     * @param bitmap The bitmap, which must not be modified or recycled from here on
+     */
+    Snapshot(@NonNull Bitmap bitmap) {
+        mBitmap = bitmap;
+    }
+
+    /**
+     * Get our bitmap. Only call this whilst holding a reference!
+     *
+     * @return Our bitmap
+     */
+    @NonNull
+    Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    /**
+     * Take another reference to us, which must be released later.
+     *
+     * @return This Snapshot, or null if our last reference has already been released (and
+     * our bitmap has been recycled)
+     */
+    @Nullable
+    Snapshot acquire() {
+        int references;
+        do {
+            references = mReferences.get();
+            if (references <= 0) {
+                return null; // Too late!
+            }
+        } while (!mReferences.compareAndSet(references, references + 1));
+        return this;
+    }
+
+    /**
+     * Let go of a reference to us. If it was the last one, recycle our bitmap.
+     */
+    void release() {
+        if (mReferences.decrementAndGet() == 0) {
+            mBitmap.recycle();
+        }
+    }
+
+    /**
+     * Release "snapshot", if it's not null. A convenience.
+     *
+     * @param snapshot Snapshot to release, or null
+     */
+    static void release(@Nullable Snapshot snapshot) {
+        if (snapshot != null) {
+            snapshot.release();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import pro.watchkit.wearable.watchface.BuildConfig;
+import pro.watchkit.wearable.watchface.model.BytePackable.Material;
+
+/**
+ * A two-level cache of finished watch face previews, for the config UI.
+ * <p>
+ * Rendering a preview from scratch is slow, and the same previews come up again and again:
+ * scroll down and back up, open the same picker twice, or open it again tomorrow. So we keep
+ * finished previews in memory (as hardware bitmaps, ready to draw) and on disk (compressed, in
+ * our cache directory, where the system can clear them if it needs the space). Anything in
+ * either is shown straight away; only new permutations get rendered.
+ * <p>
+ * Previews are keyed by everything that goes into them: the WatchFaceState string, the
+ * parts we draw, the swatch and the size.
+ */
+final class ThumbnailCache {
+    /**
+     * The most previews we keep in memory. A preview is a few hundred KB; this is enough
+     * for a few screens' worth of scrolling.
+     */
+    private static final int MAX_MEMORY_ENTRIES = 48;
+
+    /**
+     * The most previews we keep on disk. Each is a few dozen KB, compressed.
+     */
+    private static final int MAX_DISK_ENTRIES = 512;
+
+    /**
+     * The prefix of the subdirectory of our cache directory where we keep previews.
+     */
+    private static final String DIRECTORY_PREFIX = "thumbnails";
+
+    /**
+     * The subdirectory of our cache directory where we keep previews. It's versioned, since
+     * a new version of us might draw the same WatchFaceState differently; the old versions'
+     * directories are deleted (see "deleteOldDirectories").
+     */
+    private static final String DIRECTORY = DIRECTORY_PREFIX + "-" + BuildConfig.VERSION_CODE;
+
+    /**
+     * Have we deleted the old versions' directories yet, this process?
+     */
+    @NonNull
+    private static final AtomicBoolean sOldDirectoriesDeleted = new AtomicBoolean();
+
+    /**
+     * Our in-memory previews, least-recently-used first. We hold a reference to each; when
+     * one falls off the end, we release it (and if nobody's showing it, it's recycled).
+     */
+    @NonNull
+    private static final LinkedHashMap<String, Snapshot> sMemory =
+            new LinkedHashMap<String, Snapshot>(MAX_MEMORY_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                    if (size() > MAX_MEMORY_ENTRIES) {
+                        eldest.getValue().release();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private ThumbnailCache() {
+    }
+
+    /**
+     * Make a key for a preview. It's also its file name, so it's only hex digits, "~" and "_".
+     *
+     * @param watchFaceStateString The WatchFaceState string of the preview
+     * @param flags                The WatchFaceGlobalDrawable parts we're drawing
+     * @param swatch               The swatch material we're drawing, if any
+     * @param width                The width of the preview
+     * @param height               The height of the preview
+     * @return A key for this preview
+     */
+    @NonNull
+    static String key(@NonNull String watchFaceStateString, int flags, @Nullable Material swatch,
+                      int width, int height) {
+        return watchFaceStateString + "_" + Integer.toHexString(flags) + "_" +
+                (swatch == null ? "x" : Integer.toHexString(swatch.ordinal())) + "_" +
+                Integer.toHexString(width) + "_" + Integer.toHexString(height);
+    }
+
+    /**
+     * Get a preview from memory. This is fast, so it's OK to call on the UI thread.
+     *
+     * @param key Key of the preview, from "key"
+     * @return A new reference to the preview, which the caller must release, or null
+     */
+    @Nullable
+    static synchronized Snapshot getFromMemory(@NonNull String key) {
+        Snapshot preview = sMemory.get(key);
+        return preview == null ? null : preview.acquire();
+    }
+
+    /**
+     * Do we have a preview in memory? Like "getFromMemory", but without taking a reference.
+     *
+     * @param key Key of the preview, from "key"
+     * @return Whether we have it
+     */
+    static synchronized boolean isInMemory(@NonNull String key) {
+        return sMemory.containsKey(key);
+    }
+
+    /**
+     * Keep a finished preview in memory. We take our own reference to it; the caller keeps
+     * theirs.
+     *
+     * @param key     Key of the preview, from "key"
+     * @param preview The preview
+     */
+    static synchronized void putInMemory(@NonNull String key, @NonNull Snapshot preview) {
+        Snapshot reference = preview.acquire();
+        if (reference != null) {
+            Snapshot previous = sMemory.put(key, reference);
+            Snapshot.release(previous);
+        }
+    }
+
+    /**
+     * Get a preview from disk, and keep it in memory for next time. This reads and decodes
+     * a file, so don't call it on the UI thread.
+     *
+     * @param context Context, for our cache directory
+     * @param key     Key of the preview, from "key"
+     * @param config  The config of the bitmap to return (e.g. Bitmap.Config.HARDWARE)
+     * @return A new reference to the preview, which the caller must release, or null
+     */
+    @Nullable
+    static Snapshot getFromDisk(@NonNull Context context, @NonNull String key,
+                                @NonNull Bitmap.Config config) {
+        File file = new File(getDirectory(context), key);
+        Snapshot result = null;
+        if (file.exists()) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = config;
+            Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+            if (bitmap != null) {
+                // Touch it, so it's the last to go when we trim our disk cache.
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+                result = new Snapshot(bitmap);
+                putInMemory(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Write a finished preview to disk, and trim our disk cache if it's too big. This writes
+     * a file, so don't call it on the UI thread.
+     *
+     * @param context Context, for our cache directory
+     * @param key     Key of the preview, from "key"
+     * @param preview The preview to write
+     */
+    static void putOnDisk(@NonNull Context context, @NonNull String key, @NonNull Bitmap preview) {
+        File directory = getDirectory(context);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        // Write to a temporary file, then rename it, so nobody ever reads half a preview.
+        File file = new File(directory, key);
+        File temp = new File(directory, key + ".tmp");
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ?
+                Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            preview.compress(format, 90, out);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+
+        // Trim our disk cache, oldest first.
+        File[] files = directory.listFiles();
+        if (files != null && files.length > MAX_DISK_ENTRIES) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < files.length - MAX_DISK_ENTRIES; i++) {
+                //noinspection ResultOfMethodCallIgnored
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Get the directory we keep previews in. The first time we're called, delete the
+     * directories from any other version. This touches the disk, so don't call it on the UI
+     * thread.
+     *
+     * @param context Context, for our cache directory
+     * @return Our directory, which may not exist yet
+     */
+    @NonNull
+    private static File getDirectory(@NonNull Context context) {
+        File cacheDir = context.getCacheDir();
+        if (sOldDirectoriesDeleted.compareAndSet(false, true)) {
+            deleteOldDirectories(cacheDir);
+        }
+        return new File(cacheDir, DIRECTORY);
+    }
+
+    /**
+     * Delete the directories of previews from other versions (including the unversioned one
+     * from before we versioned them) in "cacheDir".
+     *
+     * @param cacheDir Our cache directory
+     */
+    private static void deleteOldDirectories(@NonNull File cacheDir) {
+        File[] directories = cacheDir.listFiles((dir, name) ->
+                name.startsWith(DIRECTORY_PREFIX) && !name.equals(DIRECTORY));
+        if (directories == null) {
+            return;
+        }
+        for (File directory : directories) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            directory.delete();
+        }
+    }
+}
@@ -21,10 +21,14 @@ package pro.watchkit.wearable.watchface.watchface;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.graphics.drawable.LayerDrawable;
@@ -35,10 +39,12 @@ import android.support.wearable.watchface.decomposition.WatchFaceDecomposition;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import pro.watchkit.wearable.watchface.model.PaintBox;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 
 class WatchFaceGlobalCacheDrawable extends LayerDrawable
@@ -68,6 +74,25 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
     @NonNull
     private final Path mCacheInnerGlowPath = new Path();
 
+    /**
+     * On API 29 and up, with a hardware canvas, we don't cache our layers in bitmaps at all.
+     * Instead we record them into display lists, which the hardware renderer replays. So no
+     * full-screen bitmaps to upload each time we change, and flipping between active and
+     * ambient is just drawing the other display list. (Our bitmaps are then only made if we
+     * need them: for a software canvas, or for our decomposition.)
+     */
+    @Nullable
+    private RenderNode mActiveRenderNode;
+    @Nullable
+    private RenderNode mAmbientRenderNode;
+    private int mPreviousRenderNodeSerial = -1;
+
+    /**
+     * The ambient tint our ambient display list is currently composited with.
+     */
+    @ColorInt
+    private int mAmbientRenderNodeTint = Color.WHITE;
+
     /**
      * If we're rendering a decomposition, it's rendered here.
      */
@@ -89,10 +114,9 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
     private Canvas mDecompositionIntermediateCanvas;
 
     /**
-     * A private copy of our current ambient tint. Useful for caching.
+     * Our current ambient tint, quantized with PaintBox.getQuantizedTint. Useful for caching.
      */
-    @ColorInt
-    private int mCurrentAmbientTint;
+    private long mCurrentQuantizedTint = -1L;
 
     /**
      * Is our decomposition dirty and ready to be redrawn? We mark this as true every time
@@ -101,6 +125,19 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
      */
     private boolean mIsAmbientCacheBitmapDirty = false;
 
+    /**
+     * A Paint which converts color to alpha, keeping only the luminance. We use it to
+     * convert our ambient cache (drawn in shades of white) to ALPHA_8.
+     */
+    @NonNull
+    private final Paint mLuminanceToAlphaPaint = new Paint();
+
+    /**
+     * A Paint for drawing our ALPHA_8 ambient cache, which is drawn in this Paint's color.
+     */
+    @NonNull
+    private final Paint mAmbientTintPaint = new Paint();
+
     WatchFaceGlobalCacheDrawable(int flags) {
         this(WatchFaceGlobalDrawable.buildDrawables(null, flags));
     }
@@ -109,6 +146,13 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
         super(watchPartDrawables);
 
         mWatchPartDrawables = watchPartDrawables;
+
+        // Rec. 709 luminance, into alpha. Everything else zero.
+        mLuminanceToAlphaPaint.setColorFilter(new ColorMatrixColorFilter(new float[]{
+                0f, 0f, 0f, 0f, 0f,
+                0f, 0f, 0f, 0f, 0f,
+                0f, 0f, 0f, 0f, 0f,
+                0.2126f, 0.7152f, 0.0722f, 0f, 0f}));
     }
 
     void setWatchFaceState(@NonNull WatchFaceState watchFaceState, @NonNull Path exclusionPath,
@@ -140,14 +184,132 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
             return;
         }
 
-        mActiveCacheBitmap = Bitmap.createBitmap(
-                bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
-        mActiveCacheCanvas = new Canvas(mActiveCacheBitmap);
-        mAmbientCacheBitmap = Bitmap.createBitmap(
-                bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
-        mAmbientCacheCanvas = new Canvas(mAmbientCacheBitmap);
+        // Our cache bitmaps are the wrong size now. We'll make new ones if we need them.
+        recycleHardwareCacheBitmaps();
+        mActiveCacheBitmap = null;
+        mActiveCacheCanvas = null;
+        mAmbientCacheBitmap = null;
+        mAmbientCacheCanvas = null;
 
         mPreviousSerial = -1;
+        mPreviousRenderNodeSerial = -1;
+    }
+
+    /**
+     * Recycle our hardware bitmaps, to keep our memory usage down.
+     */
+    private void recycleHardwareCacheBitmaps() {
+        if (mActiveHardwareCacheBitmap != null) {
+            mActiveHardwareCacheBitmap.recycle();
+            mActiveHardwareCacheBitmap = null;
+        }
+        if (mAmbientHardwareCacheBitmap != null) {
+            mAmbientHardwareCacheBitmap.recycle();
+            mAmbientHardwareCacheBitmap = null;
+        }
+    }
+
+    /**
+     * Draw our layers into "canvas", in either ambient or active. Afterwards, "canvas" has
+     * our layers, and our ambient or active exclusion and inner glow paths are set.
+     * <p>
+     * Call this with our ambient paint tint set to white, since our ambient layers are
+     * always drawn untinted (and tinted later, as they're drawn to screen).
+     *
+     * @param canvas  Canvas to draw into
+     * @param ambient Whether to draw our ambient or active layers
+     */
+    private void drawLayers(@NonNull Canvas canvas, boolean ambient) {
+        mCacheExclusionPath.reset();
+        mWatchFaceState.setAmbient(ambient);
+        super.draw(canvas);
+        if (ambient) {
+            mAmbientExclusionPath.set(mCacheExclusionPath);
+            mAmbientInnerGlowPath.set(mCacheInnerGlowPath);
+        } else {
+            mActiveExclusionPath.set(mCacheExclusionPath);
+            mActiveInnerGlowPath.set(mCacheInnerGlowPath);
+        }
+    }
+
+    /**
+     * Copy our cached exclusion and inner glow paths (for ambient or active, as appropriate)
+     * to the results!
+     */
+    private void copyCachedPaths() {
+        mExclusionPath.set(
+                mWatchFaceState.isAmbient() ? mAmbientExclusionPath : mActiveExclusionPath);
+        mInnerGlowPath.set(
+                mWatchFaceState.isAmbient() ? mAmbientInnerGlowPath : mActiveInnerGlowPath);
+    }
+
+    /**
+     * Record our layers into "mActiveRenderNode" and "mAmbientRenderNode", if they've
+     * changed. This is the display list counterpart to "regenerateCacheBitmaps".
+     */
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void regenerateRenderNodes() {
+        int currentSerial = Objects.hash(mWatchFaceState);
+        if (mPreviousRenderNodeSerial != currentSerial ||
+                mActiveRenderNode == null || mAmbientRenderNode == null) {
+            Rect bounds = getBounds();
+            if (mActiveRenderNode == null || mAmbientRenderNode == null) {
+                mActiveRenderNode = new RenderNode("WatchFaceActiveCache");
+                mAmbientRenderNode = new RenderNode("WatchFaceAmbientCache");
+                // Our ambient display list is drawn in shades of white; we keep the
+                // luminance and tint it as it's composited. Set the tint as we draw.
+                mAmbientRenderNodeTint = Color.TRANSPARENT;
+            }
+            mActiveRenderNode.setPosition(0, 0, bounds.width(), bounds.height());
+            mAmbientRenderNode.setPosition(0, 0, bounds.width(), bounds.height());
+
+            // Keep track of what our ambient currently is, because we're about to record both.
+            boolean currentAmbient = mWatchFaceState.isAmbient();
+            // Likewise our ambient paint tint. We record our ambient layers untinted.
+            PaintBox paintBox = mWatchFaceState.getPaintBox();
+            @ColorInt int currentAmbientPaintTint = paintBox.getAmbientPaintTint();
+            paintBox.setAmbientPaintTint(Color.WHITE);
+
+            RecordingCanvas canvas = mAmbientRenderNode.beginRecording();
+            try {
+                drawLayers(canvas, true);
+            } finally {
+                mAmbientRenderNode.endRecording();
+            }
+            canvas = mActiveRenderNode.beginRecording();
+            try {
+                drawLayers(canvas, false);
+            } finally {
+                mActiveRenderNode.endRecording();
+            }
+
+            // And back to how we were.
+            mWatchFaceState.setAmbient(currentAmbient);
+            paintBox.setAmbientPaintTint(currentAmbientPaintTint);
+            mPreviousRenderNodeSerial = currentSerial;
+        }
+
+        copyCachedPaths();
+    }
+
+    /**
+     * Make a Paint that keeps just the luminance of what's drawn with it, as alpha, and
+     * tints it "tint". This is "mLuminanceToAlphaPaint" then "mAmbientTintPaint" in one go.
+     *
+     * @param tint The tint to draw in
+     * @return A new Paint that draws luminance in "tint"
+     */
+    @NonNull
+    private static Paint getLuminanceTintPaint(@ColorInt int tint) {
+        float a = Color.alpha(tint) / 255f;
+        Paint paint = new Paint();
+        // Rec. 709 luminance, into alpha. Color is our tint.
+        paint.setColorFilter(new ColorMatrixColorFilter(new float[]{
+                0f, 0f, 0f, 0f, Color.red(tint),
+                0f, 0f, 0f, 0f, Color.green(tint),
+                0f, 0f, 0f, 0f, Color.blue(tint),
+                0.2126f * a, 0.7152f * a, 0.0722f * a, 0f, 0f}));
+        return paint;
     }
 
     private void regenerateCacheBitmaps() {
@@ -158,38 +320,44 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
         int currentSerial = Objects.hash(mWatchFaceState);
         if (mPreviousSerial != currentSerial) {
             // Recycle our previous hardware bitmaps, to keep our memory usage down.
-            if (mActiveHardwareCacheBitmap != null) {
-                mActiveHardwareCacheBitmap.recycle();
-                mActiveHardwareCacheBitmap = null;
-            }
-            if (mAmbientHardwareCacheBitmap != null) {
-                mAmbientHardwareCacheBitmap.recycle();
-                mAmbientHardwareCacheBitmap = null;
+            recycleHardwareCacheBitmaps();
+
+            // Make our cache bitmaps, if this is the first time we've needed them.
+            if (mActiveCacheBitmap == null || mAmbientCacheBitmap == null) {
+                Rect bounds = getBounds();
+                mActiveCacheBitmap = Bitmap.createBitmap(
+                        bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
+                mActiveCacheCanvas = new Canvas(mActiveCacheBitmap);
+                // Our ambient cache is a single channel: ambient is drawn in shades of white
+                // on black, so all we need is the luminance, which we tint as we draw it.
+                mAmbientCacheBitmap = Bitmap.createBitmap(
+                        bounds.width(), bounds.height(), Bitmap.Config.ALPHA_8);
+                mAmbientCacheCanvas = new Canvas(mAmbientCacheBitmap);
             }
 
             // Keep track of what our ambient currently is, because we're about to draw them both.
             boolean currentAmbient = mWatchFaceState.isAmbient();
+            // Likewise our ambient paint tint. We draw our cache untinted (i.e. in white).
+            PaintBox paintBox = mWatchFaceState.getPaintBox();
+            @ColorInt int currentAmbientPaintTint = paintBox.getAmbientPaintTint();
+            paintBox.setAmbientPaintTint(Color.WHITE);
 
             // Cache invalid. Draw into our cache canvas.
             mAmbientCacheCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
             mActiveCacheCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
 
-            // Pre-cache our ambient canvas.
-            mCacheExclusionPath.reset();
-            mWatchFaceState.setAmbient(true);
-            super.draw(mAmbientCacheCanvas);
-            mAmbientExclusionPath.set(mCacheExclusionPath);
-            mAmbientInnerGlowPath.set(mCacheInnerGlowPath);
+            // Pre-cache our ambient canvas. Draw it in full color into our active canvas
+            // (we're about to overwrite it anyway) then keep just the luminance.
+            drawLayers(mActiveCacheCanvas, true);
+            mAmbientCacheCanvas.drawBitmap(mActiveCacheBitmap, 0f, 0f, mLuminanceToAlphaPaint);
 
             // Pre-cache our active canvas.
-            mCacheExclusionPath.reset();
-            mWatchFaceState.setAmbient(false);
-            super.draw(mActiveCacheCanvas);
-            mActiveExclusionPath.set(mCacheExclusionPath);
-            mActiveInnerGlowPath.set(mCacheInnerGlowPath);
+            mActiveCacheCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
+            drawLayers(mActiveCacheCanvas, false);
 
             // And back to how we were.
             mWatchFaceState.setAmbient(currentAmbient);
+            paintBox.setAmbientPaintTint(currentAmbientPaintTint);
             mPreviousSerial = currentSerial;
 
             // Flag "mAmbientCacheBitmap" as updated and requiring copying to our ImageComponent.
@@ -200,17 +368,18 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
                 // Hardware power!
                 config = Bitmap.Config.HARDWARE;
             }
+            // Not every device can make a hardware bitmap from ALPHA_8. If not, we'll just
+            // draw "mAmbientCacheBitmap" directly.
             mAmbientHardwareCacheBitmap = mAmbientCacheBitmap.copy(config, false);
-            mAmbientHardwareCacheBitmap.prepareToDraw();
+            if (mAmbientHardwareCacheBitmap != null) {
+                mAmbientHardwareCacheBitmap.prepareToDraw();
+            }
             mActiveHardwareCacheBitmap = mActiveCacheBitmap.copy(config, false);
             mActiveHardwareCacheBitmap.prepareToDraw();
         }
 
         // Then copy our cache to the results!
-        mExclusionPath.set(
-                mWatchFaceState.isAmbient() ? mAmbientExclusionPath : mActiveExclusionPath);
-        mInnerGlowPath.set(
-                mWatchFaceState.isAmbient() ? mAmbientInnerGlowPath : mActiveInnerGlowPath);
+        copyCachedPaths();
     }
 
     /**
@@ -220,16 +389,93 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
      */
     @Override
     public void draw(@NonNull Canvas canvas) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            // Hardware canvas? Replay our display lists rather than drawing bitmaps.
+            drawRenderNodes(canvas);
+            return;
+        }
+
         regenerateCacheBitmaps();
 
         Bitmap mHardwareCacheBitmap = mWatchFaceState.isAmbient() ?
                 mAmbientHardwareCacheBitmap : mActiveHardwareCacheBitmap;
         Bitmap mCacheBitmap = mWatchFaceState.isAmbient() ?
                 mAmbientCacheBitmap : mActiveCacheBitmap;
+        Paint paint = null;
+        if (mWatchFaceState.isAmbient()) {
+            // Our ambient cache is luminance only, so it's not opaque. Clear to black first.
+            canvas.drawColor(Color.BLACK);
+            // Our ambient cache is ALPHA_8, so it's drawn in the paint's color. Tint it!
+            mAmbientTintPaint.setColor(mWatchFaceState.getAmbientTint());
+            paint = mAmbientTintPaint;
+        }
         canvas.drawBitmap(mHardwareCacheBitmap != null ? mHardwareCacheBitmap : mCacheBitmap,
-                0, 0, null);
+                0, 0, paint);
+
+        // Stats start
+        WatchPartStatsDrawable.cacheBytes = getBitmapBytes(mActiveCacheBitmap) +
+                getBitmapBytes(mAmbientCacheBitmap) +
+                getBitmapBytes(mActiveHardwareCacheBitmap) +
+                getBitmapBytes(mAmbientHardwareCacheBitmap);
+        WatchPartStatsDrawable.cacheMode = "bmp";
+        // Stats end
+    }
+
+    /**
+     * Draw our display lists into the given hardware canvas. (Records them first, if
+     * necessary.)
+     *
+     * @param canvas Hardware-accelerated canvas to draw into
+     */
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private void drawRenderNodes(@NonNull Canvas canvas) {
+        regenerateRenderNodes();
+        assert mActiveRenderNode != null;
+        assert mAmbientRenderNode != null;
+
+        if (mWatchFaceState.isAmbient()) {
+            // Our ambient display list is in shades of white. Clear to black first.
+            canvas.drawColor(Color.BLACK);
+            // Then composite it with our tint. Only set a new paint if our tint changed,
+            // since that's what invalidates the node's layer.
+            @ColorInt int ambientTint = mWatchFaceState.getAmbientTint();
+            if (ambientTint != mAmbientRenderNodeTint) {
+                mAmbientRenderNode.setUseCompositingLayer(true, getLuminanceTintPaint(ambientTint));
+                mAmbientRenderNodeTint = ambientTint;
+            }
+            canvas.drawRenderNode(mAmbientRenderNode);
+        } else {
+            canvas.drawRenderNode(mActiveRenderNode);
+        }
+
+        // Stats start
+        WatchPartStatsDrawable.cacheBytes = mActiveRenderNode.computeApproximateMemoryUsage() +
+                mAmbientRenderNode.computeApproximateMemoryUsage() +
+                getLayerBytes(mActiveRenderNode) + getLayerBytes(mAmbientRenderNode) +
+                getBitmapBytes(mActiveCacheBitmap) + getBitmapBytes(mAmbientCacheBitmap);
+        WatchPartStatsDrawable.cacheMode = "rn";
+        // Stats end
+    }
+
+    // Stats start
+    private static long getBitmapBytes(@Nullable Bitmap bitmap) {
+        return bitmap == null || bitmap.isRecycled() ? 0L : bitmap.getAllocationByteCount();
     }
 
+    /**
+     * Estimate the memory of "node"'s compositing layer, which isn't counted by
+     * "computeApproximateMemoryUsage". It's an offscreen RGBA buffer the size of the node.
+     *
+     * @param node RenderNode whose layer to count
+     * @return Approximate bytes used by its layer, or 0 if it hasn't got one
+     */
+    @RequiresApi(api = Build.VERSION_CODES.Q)
+    private static long getLayerBytes(@NonNull RenderNode node) {
+        return node.getUseCompositingLayer() ?
+                4L * node.getWidth() * node.getHeight() : 0L;
+    }
+    // Stats end
+
     /**
      * Build the watch face decomposition into "builder". In this case, it'll be our cache
      * drawables and (also) our non-time-dependent complications.
@@ -268,8 +514,12 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
             assert mDecompositionDestBitmap != null;
             assert mDecompositionIntermediateCanvas != null;
 
-            // Copy the existing ambient bitmap into "mDecompositionDestBitmap2".
-            mDecompositionIntermediateCanvas.drawBitmap(mAmbientCacheBitmap, 0, 0, null);
+            // Copy the existing ambient bitmap into "mDecompositionIntermediateBitmap".
+            // It's luminance only, so draw it in white on black.
+            mDecompositionIntermediateCanvas.drawColor(Color.BLACK);
+            mAmbientTintPaint.setColor(Color.WHITE);
+            mDecompositionIntermediateCanvas.drawBitmap(
+                    mAmbientCacheBitmap, 0, 0, mAmbientTintPaint);
 
             // Hack all our existing (non-time-dependent) complications in.
             boolean wasAmbient = mWatchFaceState.isAmbient();
@@ -288,7 +538,8 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
 
             // Save a copy of the ambient tint we used to draw this,
             // so next time we won't (necessarily) run this path.
-            mCurrentAmbientTint = mWatchFaceState.getAmbientTint();
+            mCurrentQuantizedTint = mWatchFaceState.getPaintBox().getQuantizedTint(
+                    mWatchFaceState.getAmbientTint());
 
             // Note that we've drawn the updated "mAmbientCacheBitmap",
             // so next time we won't (necessarily) run this path.
@@ -330,11 +581,12 @@ class WatchFaceGlobalCacheDrawable extends LayerDrawable
 
         // Regenerate the decomposition if our (non-time-dependent) complications have changed.
         // Regenerate the decomposition if the ambient cache bitmap (ticks & digits) has changed.
-        // Regenerate the decomposition if our ambient tint color has changed (this happens
-        // regularly during dusk and dawn).
+        // Regenerate the decomposition if our ambient tint color has visibly changed (this
+        // happens regularly during dusk and dawn).
         // Regenerate the decomposition if we've never drawn it before!
         return hasUpdatedComplicationData || mIsAmbientCacheBitmapDirty ||
-                mCurrentAmbientTint != mWatchFaceState.getAmbientTint() ||
+                mCurrentQuantizedTint != mWatchFaceState.getPaintBox().getQuantizedTint(
+                        mWatchFaceState.getAmbientTint()) ||
                 mDecompositionDestBitmap == null;
     }
 }
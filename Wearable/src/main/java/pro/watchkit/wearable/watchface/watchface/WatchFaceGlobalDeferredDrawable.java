@@ -33,48 +33,112 @@ import android.graphics.Shader;
 import android.graphics.SweepGradient;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.SystemClock;
 import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import pro.watchkit.wearable.watchface.model.PaintBox;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 
 /**
  * A WatchFaceGlobalDrawable that quickly renders a placeholder to begin with,
- * then does all the slow drawing on a background thread. After each layer, it
- * pings a callback to draw the result. So it incrementally updates until everything
- * is drawn.
+ * then does all the slow drawing on a background thread. First it draws a quick draft
+ * and pings a callback to draw that; then it draws the real thing and cross-fades it in.
+ * <p>
+ * What we show on screen are Snapshots, which we share with our ThumbnailCache and
+ * reference-count, so we only ever hold two (the one we're showing and the one we're
+ * fading from) and each is recycled as soon as nobody needs it.
+ * <p>
+ * Our UI thread and our background thread never wait for each other. Each render job
+ * draws its own copy of our WatchFaceState, taken when it's scheduled, so the UI thread can
+ * carry on changing ours. And finished Snapshots are published in a Frame, swapped in
+ * atomically; the UI thread takes its own references to what it's drawing. Each Frame
+ * carries the serial it was drawn for, and the UI thread only draws it if that's still
+ * what it wants: cancelling a job doesn't stop it at once, so it might still publish.
  */
 public class WatchFaceGlobalDeferredDrawable extends Drawable {
     private final WatchFaceState mWatchFaceState;
-    private int mPreviousSerial = -1;
+
+    /**
+     * The serial of what we've drawn (or are drawing), or -1 if nothing. Both our UI thread
+     * and our background thread change this.
+     */
+    @NonNull
+    private final AtomicInteger mPreviousSerial = new AtomicInteger(-1);
+
+    /**
+     * What we're showing. Only ever replaced (atomically), never modified.
+     */
+    @NonNull
+    private final AtomicReference<Frame> mFrame = new AtomicReference<>(Frame.EMPTY);
+
+    /**
+     * Held by each render job whilst it draws, so only one at a time uses our layers and
+     * cache bitmaps. (A cancelled job might take a moment to notice.) The UI thread never
+     * takes this.
+     */
+    private final Object mRenderLock = new Object();
+
     private Bitmap mCacheBitmap;
-    private Bitmap mHardwareCacheBitmap;
-    private final Object mHardwareCacheBitmapLock = new Object();
     private Canvas mCacheCanvas;
+
+    /**
+     * Our draft cache: a quarter of the resolution of "mCacheBitmap" (i.e. half the width and
+     * height), drawn quickly whilst we draw the real thing.
+     */
+    private Bitmap mDraftBitmap;
+    private Canvas mDraftCanvas;
+
+    /**
+     * The Frame we're cross-fading, and when we started, in uptime milliseconds. Only our
+     * UI thread uses these.
+     */
+    @Nullable
+    private Frame mFadingFrame;
+    private long mFadeStartTime = 0L;
+
+    /**
+     * How long we take to cross-fade in the real thing over our draft.
+     */
+    private static final long FADE_MILLIS = 150L;
+
+    /**
+     * A Paint for drawing our snapshots, which we filter, since our draft is scaled up.
+     */
+    @NonNull
+    private final Paint mSnapshotPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
     @NonNull
     private final View mParentView;
     private WatchPartClipDrawable mClipDrawable;
     private WatchPartComplicationsDrawable mComplicationsDrawable;
     @NonNull
     private final Drawable[] mWatchPartDrawables;
+    @NonNull
+    private final Context mContext;
+    private final int mFlags;
+    @NonNull
+    private final Path mExclusionPath = new Path();
+    @NonNull
+    private final Path mInnerGlowPath = new Path();
 
     public WatchFaceGlobalDeferredDrawable(
             @NonNull Context context, int flags, @NonNull View parentView) {
         mWatchPartDrawables = WatchFaceGlobalDrawable.buildDrawables(null, flags);
+        mContext = context.getApplicationContext();
+        mFlags = flags;
 
         mWatchFaceState = new WatchFaceState(context);
         mParentView = parentView;
-        Path mExclusionPath = new Path();
-        Path mInnerGlowPath = new Path();
 
+        // Our clip and complications are drawn on our UI thread, from our WatchFaceState.
+        // Everything else gets each render job's copy of it when it runs.
         for (Drawable d : mWatchPartDrawables) {
             if (d instanceof WatchPartDrawable) {
                 ((WatchPartDrawable) d).setWatchFaceState(
@@ -117,94 +181,316 @@ public class WatchFaceGlobalDeferredDrawable extends Drawable {
             return;
         }
 
-        mCacheBitmap = Bitmap.createBitmap(
-                bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
-        mCacheCanvas = new Canvas(mCacheBitmap);
-
-        mPreviousSerial = -1;
+        // Our render jobs pick up our new bounds (and resize our cache bitmaps) when they run.
+        mPreviousSerial.set(-1);
 
         // Pre-cache bounds change...
         mWatchFaceState.getComplicationsForDrawing(bounds);
 
-        // Propagate our bounds change to our drawables.
+        // Propagate our bounds change to the drawables we draw on our UI thread.
+        if (mClipDrawable != null) {
+            mClipDrawable.setBounds(bounds);
+        }
+        if (mComplicationsDrawable != null) {
+            mComplicationsDrawable.setBounds(bounds);
+        }
+    }
+
+    /**
+     * Make sure our cache bitmaps are the given size, and our layers know it.
+     * Only call this from a render job, holding "mRenderLock".
+     *
+     * @param bounds The bounds we're drawing
+     */
+    private void setCacheBounds(@NonNull Rect bounds) {
+        if (mCacheBitmap == null || mCacheBitmap.getWidth() != bounds.width() ||
+                mCacheBitmap.getHeight() != bounds.height()) {
+            mCacheBitmap = Bitmap.createBitmap(
+                    bounds.width(), bounds.height(), Bitmap.Config.ARGB_8888);
+            mCacheCanvas = new Canvas(mCacheBitmap);
+
+            int draftWidth = Math.max(1, bounds.width() / 2);
+            int draftHeight = Math.max(1, bounds.height() / 2);
+            mDraftBitmap = Bitmap.createBitmap(draftWidth, draftHeight, Bitmap.Config.ARGB_8888);
+            mDraftCanvas = new Canvas(mDraftBitmap);
+            // Our layers draw at full size; scale them down.
+            mDraftCanvas.scale((float) draftWidth / (float) bounds.width(),
+                    (float) draftHeight / (float) bounds.height());
+        }
+
+        // Propagate our bounds to our layers. (If they're the same, this does nothing.)
         for (Drawable d : mWatchPartDrawables) {
-            d.setBounds(bounds);
+            if (d != mComplicationsDrawable && d != mClipDrawable) {
+                d.setBounds(bounds);
+            }
+        }
+    }
+
+    /**
+     * Regenerate our cache bitmaps for a render job, unless we've already drawn it.
+     *
+     * @param capture      A Capture of our WatchFaceState, from which the render job makes
+     *                     its own copy
+     * @param serial       The serial of "state", from "getSerial"
+     * @param thumbnailKey The key for "state" in our ThumbnailCache
+     * @param bounds       The bounds to draw
+     * @param interactive  Whether we're on screen: if so, we show a draft first, and
+     *                     invalidate our view as we go; if we're prefetching, we don't bother
+     */
+    private void regenerateCacheBitmaps(
+            @NonNull WatchFaceState.Capture capture, int serial, @NonNull String thumbnailKey,
+            @NonNull Rect bounds, boolean interactive) {
+        // Make our own copy of our WatchFaceState. It's the slow bit (a new PaintBox and a
+        // parse), so we do it here rather than on our UI thread, and outside our lock.
+        WatchFaceState state = new WatchFaceState(capture);
+        state.setAmbient(false);
+        // Our ThumbnailCache keys don't include the time, so always draw the same time.
+        state.setCurrentTimeToPreviewTime();
+        // Our copy's PaintBox is brand new, so it doesn't know how big it is yet. Our layers
+        // only tell it when their bounds change, which they might not have; so tell it here.
+        state.getPaintBox().onWidthAndHeightChanged(bounds.width(), bounds.height());
+        synchronized (mRenderLock) {
+            if (Thread.currentThread().isInterrupted()) {
+                return; // Cancelled whilst we were waiting for the last job to notice.
+            }
+            regenerateCacheBitmapsLocked(state, serial, thumbnailKey, bounds, interactive);
         }
     }
 
-    private void regenerateCacheBitmaps() {
+    private void regenerateCacheBitmapsLocked(
+            @NonNull WatchFaceState state, int serial, @NonNull String thumbnailKey,
+            @NonNull Rect bounds, boolean interactive) {
         // Invalidate our bits as required.
         // Invalidate if complications, unread notifications or total notifications have changed.
-        // Or the entire preset. Or if we've flipped between active and ambient.
+        // Or the entire preset.
         // Or anything else of interest in the WatchFaceState.
-        int currentSerial = Objects.hash(mWatchFaceState);
-        if (mPreviousSerial != currentSerial) {
-            mPreviousSerial = currentSerial;
-            // Keep track of what our ambient currently is, because we're about to draw them both.
-            boolean currentAmbient = mWatchFaceState.isAmbient();
-
-            // Cache invalid. Draw into our cache canvas.
-            mCacheCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
-
-            // Pre-cache our active canvas.
-            mWatchFaceState.setAmbient(false);
-
-            // Quick hack: make sure the PaintBox is up-to-date with all our settings.
-            mWatchFaceState.getPaintBox(); // This calls "regeneratePaints".
-
+        if (mPreviousSerial.getAndSet(serial) != serial) {
             Bitmap.Config config = Bitmap.Config.ARGB_8888;
-            if (Build.VERSION.SDK_INT >= 26 && mWatchFaceState.isHardwareAccelerationEnabled()) {
+            if (Build.VERSION.SDK_INT >= 26 && state.isHardwareAccelerationEnabled()) {
                 // Hardware power!
                 config = Bitmap.Config.HARDWARE;
             }
 
-            // Draw each of our layers.
-            // After each draw, post an invalidate so that it's copied to screen.
-            // So we incrementally draw each layer until it's all done.
+            // Have we drawn this before, maybe in a previous session? If so, use that.
+            Snapshot thumbnail = ThumbnailCache.getFromDisk(mContext, thumbnailKey, config);
+            if (thumbnail != null) {
+                publishOrRelease(thumbnail, serial, false, interactive);
+                return;
+            }
+
+            // Point our layers at our render job's copy of our WatchFaceState.
             for (Drawable d : mWatchPartDrawables) {
-                if (Thread.currentThread().isInterrupted()) {
-                    continue; // Oh, what do you mean I have to check on this for myself?
+                if (d instanceof WatchPartDrawable &&
+                        d != mComplicationsDrawable && d != mClipDrawable) {
+                    ((WatchPartDrawable) d).setWatchFaceState(
+                            state, mExclusionPath, mInnerGlowPath);
                 }
-                if (d == mComplicationsDrawable) {
-                    continue; // Don't even attempt to draw the complications (yet).
-                }
-                d.draw(mCacheCanvas);
-                if (d == mClipDrawable) {
-                    continue; // I mean, don't blit the WatchPartClipDrawable to screen...
-                }
-                final Bitmap newHardwareCacheBitmap = mCacheBitmap.copy(config, false);
-                newHardwareCacheBitmap.prepareToDraw();
-                synchronized (mHardwareCacheBitmapLock) {
-                    // Quickly swap out the "old" mHardwareCacheBitmap with the new one.
-                    // Recycle the old one. So we don't have old bitmaps piling up.
-                    // Temporarily commenting out whilst I can decide whether this is
-                    // causing bugs...
-//                        if (mHardwareCacheBitmap != null) {
-//                            mHardwareCacheBitmap.recycle();
-//                        }
-                    mHardwareCacheBitmap = newHardwareCacheBitmap;
-                    // We synchronise to ensure "mHardwareCacheBitmap" doesn't get recycled
-                    // whilst we're still drawing it.
+            }
+            setCacheBounds(bounds);
+
+            // Quick hack: make sure the PaintBox is up-to-date with all our settings.
+            PaintBox paintBox = state.getPaintBox(); // This calls "regeneratePaints".
+
+            // First, a quick draft: quarter resolution (half the width and height), with
+            // low-resolution materials and no bezels or shadows. It looks enough like the
+            // real thing to show whilst we draw the real thing.
+            // (If nobody's looking, don't bother.)
+            if (interactive) {
+                paintBox.setDraft(true);
+                try {
+                    mDraftCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
+                    if (drawLayers(mDraftCanvas)) {
+                        publishSnapshot(new Snapshot(mDraftBitmap.copy(config, false)),
+                                serial, false, true);
+                    }
+                } finally {
+                    paintBox.setDraft(false);
                 }
-                // Force a redraw. "postInvalidate" is what you call from a non-UI thread.
-                mParentView.postInvalidate();
             }
 
-            // And back to how we were.
-            mWatchFaceState.setAmbient(currentAmbient);
+            // Then the real thing, which we cross-fade in over the draft.
+            mCacheCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR); // Clear it first.
+            boolean finished = drawLayers(mCacheCanvas);
+
+            // If we got all the way through, show it, and keep it for next time.
+            if (finished) {
+                Snapshot snapshot = new Snapshot(mCacheBitmap.copy(config, false));
+                ThumbnailCache.putInMemory(thumbnailKey, snapshot);
+                publishOrRelease(snapshot, serial, true, interactive);
+                ThumbnailCache.putOnDisk(mContext, thumbnailKey, mCacheBitmap);
+            } else {
+                // We were cancelled part-way through, so what we drew is incomplete.
+                // Draw it again next time (if there is a next time, and nobody's since
+                // moved on to something else).
+                mPreviousSerial.compareAndSet(serial, -1);
+            }
+        }
+    }
+
+    /**
+     * Draw each of our layers into "canvas", except our clip (we clip once, as we draw our
+     * composited cache to screen) and our complications (which are drawn live, on top).
+     *
+     * @param canvas Canvas to draw into
+     * @return Whether we drew them all; false if we were interrupted part-way through
+     */
+    private boolean drawLayers(@NonNull Canvas canvas) {
+        for (Drawable d : mWatchPartDrawables) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false; // Oh, what do you mean I have to check on this for myself?
+            }
+            if (d == mComplicationsDrawable || d == mClipDrawable) {
+                continue;
+            }
+            d.draw(canvas);
+        }
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Publish a new snapshot of our cache for drawing to screen, and post an invalidate so
+     * that it's copied to screen. Whatever we were showing before is released (or, if we're
+     * fading, kept until we've faded; whatever we were fading from is released).
+     * <p>
+     * If we've since moved on from "serial" (the UI thread changed our WatchFaceState after
+     * cancelling the job that drew it), we don't publish it; we just release it.
+     *
+     * @param snapshot   The new snapshot; we take over the caller's reference to it
+     * @param serial     The serial "snapshot" was drawn for
+     * @param fade       Whether to cross-fade it in over the last one
+     * @param invalidate Whether to post an invalidate (not if we're prefetching)
+     */
+    private void publishSnapshot(
+            @NonNull Snapshot snapshot, int serial, boolean fade, boolean invalidate) {
+        if (mPreviousSerial.get() != serial) {
+            snapshot.release(); // Too late, nobody wants it.
+            return;
+        }
+        snapshot.getBitmap().prepareToDraw();
+        Frame previous, next;
+        boolean fadeFromPrevious;
+        do {
+            previous = mFrame.get();
+            // Only fade from our draft of the same thing, not from something else entirely.
+            fadeFromPrevious = fade && previous.mSerial == serial;
+            next = new Frame(snapshot, serial, fadeFromPrevious ? previous.mCurrent : null);
+        } while (!mFrame.compareAndSet(previous, next));
+        // We've taken over "previous" and its references. Let go of what we're not keeping.
+        // (If the UI thread's drawing them right now, it's got its own references.)
+        Snapshot.release(previous.mFadeFrom);
+        if (!fadeFromPrevious) {
+            Snapshot.release(previous.mCurrent);
+        }
+        if (invalidate) {
+            // Force a redraw. "postInvalidate" is what you call from a non-UI thread.
+            mParentView.postInvalidate();
         }
     }
 
     /**
-     * Our thread pool for background tasks.
+     * Publish "snapshot" if we're on screen. If we're just prefetching, it's in our
+     * ThumbnailCache for whoever needs it, and we don't need to hold onto it ourselves.
+     *
+     * @param snapshot    The new snapshot; we take over the caller's reference to it
+     * @param serial      The serial "snapshot" was drawn for
+     * @param fade        Whether to cross-fade it in over the last one
+     * @param interactive Whether we're on screen
      */
-    private static final ExecutorService mExecutorService = Executors.newCachedThreadPool();
+    private void publishOrRelease(
+            @NonNull Snapshot snapshot, int serial, boolean fade, boolean interactive) {
+        if (interactive) {
+            publishSnapshot(snapshot, serial, fade, true);
+        } else {
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Get a serial for what we're currently drawing. Like our WatchFaceState's hash code,
+     * but including the swatch, which (unlike everything else we draw) isn't part of it.
+     *
+     * @return Serial for what we're drawing
+     */
+    private int getSerial() {
+        return Objects.hash(mWatchFaceState, mWatchFaceState.getSwatchMaterial());
+    }
+
+    /**
+     * Get the key for our current preview in ThumbnailCache.
+     *
+     * @return Key for our ThumbnailCache
+     */
+    @NonNull
+    private String getThumbnailKey() {
+        Rect bounds = getBounds();
+        return ThumbnailCache.key(mWatchFaceState.getString(), mFlags,
+                mWatchFaceState.getSwatchMaterial(), bounds.width(), bounds.height());
+    }
 
     /**
      * Our background task.
      */
     private Future<?> mBackgroundTask = null;
 
+    /**
+     * The priority our background task was submitted with.
+     */
+    private int mBackgroundTaskPriority = PreviewExecutor.PRIORITY_VISIBLE;
+
+    /**
+     * Schedule a background redraw with the given priority -- if not already happening?
+     * If it's already scheduled at a lower priority, bump it up.
+     *
+     * @param priority PreviewExecutor.PRIORITY_VISIBLE or PreviewExecutor.PRIORITY_PREFETCH
+     */
+    private void scheduleBackgroundTask(int priority) {
+        if (mBackgroundTask != null && !mBackgroundTask.isDone()) {
+            if (priority >= mBackgroundTaskPriority) {
+                return; // Already on its way.
+            }
+            // Cancel it and resubmit it with our higher priority. (If it's already
+            // running, it'll stop at its next layer, and we start again.)
+            mBackgroundTask.cancel(true);
+        }
+        // Capture everything our render job needs, now, on our UI thread. From here on,
+        // it's all the job's, and our WatchFaceState is free to change.
+        WatchFaceState.Capture capture = mWatchFaceState.capture();
+        int serial = getSerial();
+        String thumbnailKey = getThumbnailKey();
+        Rect bounds = new Rect(getBounds());
+        boolean interactive = priority == PreviewExecutor.PRIORITY_VISIBLE;
+        mBackgroundTask = PreviewExecutor.submit(
+                () -> regenerateCacheBitmaps(capture, serial, thumbnailKey, bounds, interactive),
+                priority, mParentView);
+        mBackgroundTaskPriority = priority;
+    }
+
+    /**
+     * Render our preview in the background, ahead of it scrolling into view, and put it in
+     * our ThumbnailCache for whoever draws it for real. Set our WatchFaceState and bounds
+     * first. This goes behind anything that's actually on screen.
+     *
+     * @return Whether we scheduled anything; false if it was already in our ThumbnailCache
+     */
+    public boolean prefetch() {
+        if (ThumbnailCache.isInMemory(getThumbnailKey())) {
+            return false;
+        }
+        scheduleBackgroundTask(PreviewExecutor.PRIORITY_PREFETCH);
+        return true;
+    }
+
+    /**
+     * Are we free? That is, do we have no background task scheduled or running?
+     * (Changing our WatchFaceState whilst we're busy is safe, since our render job has its
+     * own copy; but "prefetch" won't start on the change until we're done.)
+     *
+     * @return Whether we're free
+     */
+    public boolean isIdle() {
+        return mBackgroundTask == null || mBackgroundTask.isDone();
+    }
+
     /**
      * Draw into the given canvas. (Updates our cache bitmaps first, if necessary.)
      *
@@ -212,42 +498,152 @@ public class WatchFaceGlobalDeferredDrawable extends Drawable {
      */
     @Override
     public void draw(@NonNull Canvas canvas) {
-        int currentSerial = Objects.hash(mWatchFaceState);
-        if (mPreviousSerial != currentSerial) {
+        int currentSerial = getSerial();
+        if (mPreviousSerial.get() != currentSerial) {
             // Something's changed (or we're drawing for the first time).
+            // If we've drawn this recently, we'll have it in memory. Show that right away.
+            Snapshot thumbnail = ThumbnailCache.getFromMemory(getThumbnailKey());
+            if (thumbnail != null) {
+                // Whatever we were drawing in the background, we don't need it now.
+                cancelBackgroundTasks();
+                mPreviousSerial.set(currentSerial);
+                publishSnapshot(thumbnail, currentSerial, false, false);
+            }
+        }
+        Frame frame;
+        if (mPreviousSerial.get() != currentSerial) {
+            // Nope, we need to draw it.
             drawPlaceholder(canvas);
 
-            // Schedule a background thread redraw -- if not already happening?
-            if (mBackgroundTask == null || mBackgroundTask.isDone()) {
-                mBackgroundTask = mExecutorService.submit(this::regenerateCacheBitmaps);
+            // Schedule a background thread redraw. We're being drawn, so we're on screen.
+            scheduleBackgroundTask(PreviewExecutor.PRIORITY_VISIBLE);
+        } else if ((frame = acquireFrame()).mCurrent != null && frame.mSerial == currentSerial) {
+            // Clip to the shape of the screen, just the once, for everything we draw.
+            int saveCount = canvas.save();
+            if (mClipDrawable != null) {
+                mClipDrawable.clip(canvas);
             }
-        } else if (mHardwareCacheBitmap != null) {
             // We've drawn something to the incremental bitmap. Display it.
-            synchronized (mHardwareCacheBitmapLock) {
-                // We synchronise to ensure "mHardwareCacheBitmap" doesn't get recycled
-                // whilst we're still drawing it.
-                if (!mHardwareCacheBitmap.isRecycled()) {
-                    canvas.drawBitmap(mHardwareCacheBitmap, 0, 0, null);
+            float fade = 1f;
+            if (frame.mFadeFrom != null) {
+                // Cross-fading from our draft. How far through are we?
+                long now = SystemClock.uptimeMillis();
+                if (frame != mFadingFrame) {
+                    mFadingFrame = frame;
+                    mFadeStartTime = now;
+                }
+                fade = Math.min(1f, (float) (now - mFadeStartTime) / (float) FADE_MILLIS);
+                if (fade < 1f) {
+                    drawSnapshot(canvas, frame.mFadeFrom, 255);
+                    invalidateSelf(); // Keep fading.
+                } else if (mFrame.compareAndSet(
+                        frame, new Frame(frame.mCurrent, frame.mSerial, null))) {
+                    // Done fading. We don't need this any more.
+                    frame.mFadeFrom.release();
+                    mFadingFrame = null;
                 }
             }
+            drawSnapshot(canvas, frame.mCurrent, Math.round(fade * 255f));
+            frame.release(); // Let go of our references.
+
             // Now draw the complications, if we have them.
             if (mComplicationsDrawable != null) {
                 mComplicationsDrawable.draw(canvas);
             }
+            canvas.restoreToCount(saveCount);
         } else {
-            // We haven't yet drawn anything to the incremental bitmap.
+            // We haven't yet drawn anything to the incremental bitmap, or what we've got is
+            // from before we changed (a cancelled job got it out before it noticed).
             // That's OK, sometimes it takes a while for PaintBox to init.
             // Just draw the placeholder.
+            frame.release();
             drawPlaceholder(canvas);
         }
     }
 
+    /**
+     * Get our current Frame, and take our own reference to each of its snapshots, so they
+     * don't get recycled whilst we're drawing them, even if a new Frame is published. Release
+     * them when done. This never waits on our render job.
+     *
+     * @return Our current Frame, with references taken
+     */
+    @NonNull
+    private Frame acquireFrame() {
+        while (true) {
+            Frame frame = mFrame.get();
+            Snapshot current = frame.mCurrent == null ? null : frame.mCurrent.acquire();
+            Snapshot fadeFrom = frame.mFadeFrom == null ? null : frame.mFadeFrom.acquire();
+            if ((current == null) == (frame.mCurrent == null) &&
+                    (fadeFrom == null) == (frame.mFadeFrom == null)) {
+                return frame;
+            }
+            // Too late: it was released under us, so a new Frame's been published since.
+            // Let go of what we got, and try again with that.
+            Snapshot.release(current);
+            Snapshot.release(fadeFrom);
+        }
+    }
+
+    /**
+     * Draw a snapshot of our cache, scaled to fill our bounds (our draft is smaller).
+     *
+     * @param canvas   Canvas to draw into
+     * @param snapshot Snapshot to draw
+     * @param alpha    Alpha to draw it with
+     */
+    private void drawSnapshot(@NonNull Canvas canvas, @NonNull Snapshot snapshot, int alpha) {
+        mSnapshotPaint.setAlpha(alpha);
+        canvas.drawBitmap(snapshot.getBitmap(), null, getBounds(), mSnapshotPaint);
+    }
+
     public void cancelBackgroundTasks() {
         if (mBackgroundTask != null) {
             mBackgroundTask.cancel(true);
         }
     }
 
+    /**
+     * Cancel our background tasks and release what we're showing. Call this when we're
+     * finished with for good; if we're drawn again, we start over.
+     */
+    public void releaseSnapshots() {
+        cancelBackgroundTasks();
+        mFrame.getAndSet(Frame.EMPTY).release();
+        mFadingFrame = null;
+        mPreviousSerial.set(-1);
+    }
+
+    /**
+     * What we're showing: a snapshot, and maybe the snapshot we're cross-fading it in over,
+     * and the serial they were drawn for. Immutable. Whoever publishes a Frame (in "mFrame")
+     * hands over a reference to each.
+     */
+    private static final class Frame {
+        @NonNull
+        static final Frame EMPTY = new Frame(null, -1, null);
+
+        @Nullable
+        final Snapshot mCurrent;
+        final int mSerial;
+        @Nullable
+        final Snapshot mFadeFrom;
+
+        Frame(@Nullable Snapshot current, int serial, @Nullable Snapshot fadeFrom) {
+            mCurrent = current;
+            mSerial = serial;
+            mFadeFrom = fadeFrom;
+        }
+
+        /**
+         * Release a reference to each of our snapshots.
+         */
+        void release() {
+            Snapshot.release(mCurrent);
+            Snapshot.release(mFadeFrom);
+        }
+    }
+
     /**
      * A reusable Paint we use for drawing placeholders.
      */
@@ -341,11 +737,13 @@ public class WatchFaceGlobalDeferredDrawable extends Drawable {
         }
 
         // Clip our screen if we've got a clip drawable.
+        int saveCount = canvas.save();
         if (mClipDrawable != null) {
-            mClipDrawable.draw2(canvas);
+            mClipDrawable.clip(canvas);
         }
 
         // And draw!
         canvas.drawPaint(mPlaceholderPaint);
+        canvas.restoreToCount(saveCount);
     }
 }
@@ -20,11 +20,8 @@ package pro.watchkit.wearable.watchface.watchface;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Color;
 import android.graphics.Path;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Xfermode;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.LayerDrawable;
 import android.os.SystemClock;
@@ -38,6 +35,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import pro.watchkit.wearable.watchface.model.PaintBox;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 
 /**
@@ -105,9 +103,6 @@ public class WatchFaceGlobalDrawable extends LayerDrawable {
         setWatchFaceState(context);
     }
 
-    @NonNull
-    private final Paint mTint = new Paint();
-
     private void setWatchFaceState(@NonNull Context context) {
         mWatchFaceState = new WatchFaceState(context);
 
@@ -127,9 +122,6 @@ public class WatchFaceGlobalDrawable extends LayerDrawable {
         return mWatchFaceState;
     }
 
-    @NonNull
-    private final Xfermode mTintXfermode = new PorterDuffXfermode(PorterDuff.Mode.MULTIPLY);
-
     @NonNull
     static Drawable[] buildDrawables(@Nullable Drawable cache, int flags) {
         List<Drawable> d = new ArrayList<>();
@@ -191,30 +183,44 @@ public class WatchFaceGlobalDrawable extends LayerDrawable {
 
     @Override
     public void draw(@NonNull Canvas canvas) {
+        // Set the current date and time.
+        mWatchFaceState.setDefaultTimeZone();
+        mWatchFaceState.setCurrentTimeToNow();
+
+        drawAtCurrentTime(canvas);
+    }
+
+    /**
+     * Draw the watch face at whatever time our WatchFaceState is currently set to, rather
+     * than the time right now. Regular drawing goes through "draw"; this is for when we
+     * want to draw at some other time, e.g. the DecompositionSimulator.
+     *
+     * @param canvas Canvas to draw to
+     */
+    void drawAtCurrentTime(@NonNull Canvas canvas) {
         // Stats start
         long start = SystemClock.elapsedRealtimeNanos();
         // Stats end
 
         mExclusionPath.reset();
 
-        // Set the current date and time.
-        mWatchFaceState.setDefaultTimeZone();
-        mWatchFaceState.setCurrentTimeToNow();
-
         // Reset the direction so we get consistency per draw (hopefully).
         WatchPartDrawable.resetDirection();
 
-        super.draw(canvas);
-
-        // If we're ambient
+        // If we're ambient: by default we draw ambient in white, but we want it tinted to
+        // the user's selected color. So tint our ambient paints as we draw with them. (Our
+        // cache is tinted as it's drawn, and anything else we draw in ambient is drawn
+        // in one of these paints.) This saves a full-screen blend afterwards.
+        PaintBox paintBox = mWatchFaceState.getPaintBox();
         if (mWatchFaceState.isAmbient()) {
-            // By default we draw ambient in white, then tint it to the user's selected color.
-            mTint.setColor(mWatchFaceState.getAmbientTint());
-            mTint.setXfermode(mTintXfermode);
-            // Draw the tint all over the canvas.
-            canvas.drawPaint(mTint);
+            paintBox.setAmbientPaintTint(mWatchFaceState.getAmbientTint());
         }
 
+        super.draw(canvas);
+
+        // And back to white, for anyone else using our ambient paints.
+        paintBox.setAmbientPaintTint(Color.WHITE);
+
         // Stats start
         WatchPartStatsDrawable.total = SystemClock.elapsedRealtimeNanos() - start;
         // Stats end
@@ -19,14 +19,10 @@
 package pro.watchkit.wearable.watchface.watchface;
 
 import android.graphics.Canvas;
-import android.graphics.Path;
 
 import androidx.annotation.NonNull;
 
 final class WatchPartClipDrawable extends WatchPartDrawable {
-    @NonNull
-    private final Path mScreenShapePath = new Path();
-
     @NonNull
     @Override
     String getStatsName() {
@@ -35,23 +31,19 @@ final class WatchPartClipDrawable extends WatchPartDrawable {
 
     @Override
     public void draw2(@NonNull Canvas canvas) {
-        // Set the screen shape path.
-        mScreenShapePath.reset();
-        final float r = Math.min(mCenterX, mCenterY);
-        if (mWatchFaceState.isScreenRound()) {
-            // Round screen, make it a circle.
-            mScreenShapePath.addCircle(mCenterX, mCenterY, r, getDirection());
-            // Deal with cutouts here?
-        } else {
-            // Square screen, make it a rectangle.
-            mScreenShapePath.addRect(mCenterX - r, mCenterY - r,
-                    mCenterX + r, mCenterY + r, getDirection());
-            // Deal with rectangular screens here?
-        }
-
         // Save the (non-existent) clip state of the canvas before we start clipping.
         canvas.save();
         // OK, set the canvas clip to the shape of the screen.
+        clip(canvas);
+    }
+
+    /**
+     * Clip "canvas" to the shape of the screen, without saving it first. Our screen shape
+     * is only rebuilt when our bounds change, so this is cheap.
+     *
+     * @param canvas Canvas to clip
+     */
+    void clip(@NonNull Canvas canvas) {
         canvas.clipPath(mScreenShapePath);
     }
 }
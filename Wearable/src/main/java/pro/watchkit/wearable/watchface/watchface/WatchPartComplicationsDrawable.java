@@ -19,8 +19,13 @@
 package pro.watchkit.wearable.watchface.watchface;
 
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
 import android.support.wearable.watchface.decomposition.WatchFaceDecomposition;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 
 import java.util.Optional;
@@ -38,11 +43,41 @@ final class WatchPartComplicationsDrawable extends WatchPartDrawable
         return "Comps";
     }
 
+    /**
+     * A Paint for tinting our complications in ambient mode.
+     */
+    @NonNull
+    private final Paint mAmbientTintPaint = new Paint();
+
+    @ColorInt
+    private int mAmbientTint = Color.WHITE;
+
     @Override
     public void draw2(@NonNull Canvas canvas) {
+        // In ambient mode our complications are drawn in white, but we want them tinted.
+        // The ComplicationDrawable has its own paints, so we can't tint those directly;
+        // instead, draw each complication into a layer (just the size of the complication,
+        // not the whole screen) and tint the layer.
+        @ColorInt int ambientTint = mWatchFaceState.getPaintBox().getAmbientPaintTint();
+        boolean tint = mWatchFaceState.isAmbient() && ambientTint != Color.WHITE;
+        if (tint && ambientTint != mAmbientTint) {
+            mAmbientTintPaint.setColorFilter(
+                    new PorterDuffColorFilter(ambientTint, PorterDuff.Mode.MULTIPLY));
+            mAmbientTint = ambientTint;
+        }
+
         mWatchFaceState.getComplicationsForDrawing(getBounds())
                 .stream().filter(c -> c.isForeground)
-                .forEach(c -> c.draw(canvas, mWatchFaceState.getTimeInMillis()));
+                .forEach(c -> {
+                    if (tint && c.getBounds() != null) {
+                        canvas.saveLayer(c.getBounds().left, c.getBounds().top,
+                                c.getBounds().right, c.getBounds().bottom, mAmbientTintPaint);
+                        c.draw(canvas, mWatchFaceState.getTimeInMillis());
+                        canvas.restore();
+                    } else {
+                        c.draw(canvas, mWatchFaceState.getTimeInMillis());
+                    }
+                });
     }
 
     /**
@@ -26,10 +26,14 @@ import android.graphics.Rect;
 
 import androidx.annotation.NonNull;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 import pro.watchkit.wearable.watchface.model.BytePackable.DigitDisplay;
 import pro.watchkit.wearable.watchface.model.BytePackable.DigitFormat;
 import pro.watchkit.wearable.watchface.model.BytePackable.DigitRotation;
 import pro.watchkit.wearable.watchface.model.BytePackable.Material;
+import pro.watchkit.wearable.watchface.model.BytePackable.Typeface;
 
 final class WatchPartDigitsDrawable extends WatchPartDrawable {
     @NonNull
@@ -42,7 +46,13 @@ final class WatchPartDigitsDrawable extends WatchPartDrawable {
     private final Path mExclusionPath = new Path();
     private final Path mTempPath = new Path();
     private final Matrix mTempPathMatrix = new Matrix();
-    private final Rect mLabelRect = new Rect();
+    private final Matrix mLabelMatrix = new Matrix();
+
+    /**
+     * A hash of everything our digits depend on. We only rebuild them if this changes, not
+     * every time anything in our WatchFaceState changes (e.g. a complication).
+     */
+    private int mPreviousDigitSerial = -1;
 
     @Override
     public void draw2(@NonNull Canvas canvas) {
@@ -64,7 +74,15 @@ final class WatchPartDigitsDrawable extends WatchPartDrawable {
                 mWatchFaceState.getPipBandHeight(pc) : mWatchFaceState.getDigitBandHeight(pc));
         final float digitLocation = 50f - (digitBandStart + digitBandHeight);
 
-        if (hasStateChanged()) {
+        final Typeface typeface = mWatchFaceState.getTypeface();
+        final DigitFormat digitFormat = mWatchFaceState.getDigitFormat();
+        final DigitRotation digitRotation = mWatchFaceState.getDigitRotation();
+
+        int currentDigitSerial = Objects.hash(Arrays.hashCode(labels), typeface,
+                paint.getTextSize(), digitFormat, digitRotation, digitLocation,
+                pc, mCenterX, mCenterY);
+        if (currentDigitSerial != mPreviousDigitSerial) {
+            mPreviousDigitSerial = currentDigitSerial;
             mPath.reset();
             mExclusionPath.reset();
             for (int i = 0; i < 12; i++) {
@@ -74,13 +92,14 @@ final class WatchPartDigitsDrawable extends WatchPartDrawable {
                     continue;
                 }
 
-                // Get the size (bounds) of the label we're trying to draw.
-                paint.getTextBounds(label, 0, label.length(), mLabelRect);
+                // Get the shape and size (bounds) of the label we're trying to draw.
+                GlyphCache.Glyph glyph = GlyphCache.get(paint, typeface, label);
+                Rect labelRect = glyph.mBounds;
 
                 // Calculate the location we want to draw.
                 // Our calculations consider the "origin" to be the centre of the bounds.
-                float x = 0f;// - (float)(mLabelRect.left + mLabelRect.right) / 2f;
-                float y = 0f - (float) (mLabelRect.top + mLabelRect.bottom) / 2f;
+                float x = 0f;// - (float)(labelRect.left + labelRect.right) / 2f;
+                float y = 0f - (float) (labelRect.top + labelRect.bottom) / 2f;
 
                 // Offset x and y to be relative to the centre of the canvas.
                 x += mCenterX;
@@ -91,12 +110,12 @@ final class WatchPartDigitsDrawable extends WatchPartDrawable {
                 float degrees = ((float) i / 12f) * 360f;
                 double radians = ((double) i / 12d) * 2d * Math.PI;
                 // Rotate the label if necessary.
-                if (mWatchFaceState.getDigitRotation() == DigitRotation.CURVED) {
-                    if ((mWatchFaceState.getDigitFormat() == DigitFormat.NUMERALS_12_4 ||
-                            mWatchFaceState.getDigitFormat() == DigitFormat.NUMERALS_12_12 ||
-                            mWatchFaceState.getDigitFormat() == DigitFormat.CIRCLED ||
-                            mWatchFaceState.getDigitFormat() == DigitFormat.NEGATIVE_CIRCLED ||
-                            mWatchFaceState.getDigitFormat() == DigitFormat.DOUBLE_STRUCK) &&
+                if (digitRotation == DigitRotation.CURVED) {
+                    if ((digitFormat == DigitFormat.NUMERALS_12_4 ||
+                            digitFormat == DigitFormat.NUMERALS_12_12 ||
+                            digitFormat == DigitFormat.CIRCLED ||
+                            digitFormat == DigitFormat.NEGATIVE_CIRCLED ||
+                            digitFormat == DigitFormat.DOUBLE_STRUCK) &&
                             i >= 4 && i <= 8) {
                         // For the numeric label types, draw the labels 4-8 "upside down"...
                         // Essentially to disambiguate labels "6" and "9".
@@ -106,42 +125,44 @@ final class WatchPartDigitsDrawable extends WatchPartDrawable {
                         mTempPathMatrix.setRotate(degrees, mCenterX, mCenterY);
                     }
                 }
-
-                // Now, draw to a temporary path, and union that to our main path!
-                mTempPath.reset();
-                paint.getTextPath(label, 0, label.length(), x, y, mTempPath);
                 // Spread the labels out in a circle, digitLocation% from the centre!
                 mTempPathMatrix.postTranslate((float) Math.sin(radians) * digitLocation * pc,
                         0f - (float) Math.cos(radians) * digitLocation * pc);
-                mTempPath.transform(mTempPathMatrix);
-                mPath.op(mTempPath, Path.Op.UNION);
+
+                // Our label's transform: from the glyph's origin to (x, y), then as above.
+                mLabelMatrix.setTranslate(x, y);
+                mLabelMatrix.postConcat(mTempPathMatrix);
+
+                // Now, add the glyph to our main path! Our labels don't overlap, and their
+                // outlines all wind the same way, so there's no need for a union here.
+                mPath.addPath(glyph.mOutline, mLabelMatrix);
 
                 // Now do it again, but this time make it a rectangle with the label's bounds.
-                // This will form our exclusion path.
+                // This will form our exclusion path. Relative to the glyph's origin, again.
+                // Always clockwise, so overlapping shapes don't cancel each other out.
                 mTempPath.reset();
-                if (mWatchFaceState.getDigitFormat() == DigitFormat.CIRCLED ||
-                        mWatchFaceState.getDigitFormat() == DigitFormat.NEGATIVE_CIRCLED) {
+                if (digitFormat == DigitFormat.CIRCLED ||
+                        digitFormat == DigitFormat.NEGATIVE_CIRCLED) {
                     // The exclusion path is a circle!
                     // Make the radius the height of the glyph plus 1%.
-                    float radius = (float) mLabelRect.height() / 2f + (1f * pc);
-                    // Adjust y to consider aligned centre.
-                    y += (float) (mLabelRect.top + mLabelRect.bottom) / 2f;
-                    mTempPath.addCircle(x, y, radius, getDirection());
+                    float radius = (float) labelRect.height() / 2f + (1f * pc);
+                    // Centre it on the aligned centre.
+                    mTempPath.addCircle(0f, (float) (labelRect.top + labelRect.bottom) / 2f,
+                            radius, Path.Direction.CW);
                 } else {
                     // The exclusion path is a (round) rectangle!
                     // Make the size of the round rect,
-                    // mLabelRect plus an extra padding of 1% all sides.
+                    // labelRect plus an extra padding of 1% all sides.
                     // Round rect radius of 1%.
                     // Adjust x to consider aligned centre.
-                    x -= (float) (mLabelRect.left + mLabelRect.right) / 2f;
-                    mTempPath.addRoundRect((float) mLabelRect.left - (1f * pc) + x,
-                            (float) mLabelRect.top - (1f * pc) + y,
-                            (float) mLabelRect.right + (1f * pc) + x,
-                            (float) mLabelRect.bottom + (1f * pc) + y,
-                            pc, pc, getDirection());
+                    float offsetX = -(float) (labelRect.left + labelRect.right) / 2f;
+                    mTempPath.addRoundRect((float) labelRect.left - (1f * pc) + offsetX,
+                            (float) labelRect.top - (1f * pc),
+                            (float) labelRect.right + (1f * pc) + offsetX,
+                            (float) labelRect.bottom + (1f * pc),
+                            pc, pc, Path.Direction.CW);
                 }
-                mTempPath.transform(mTempPathMatrix); // Transform it with the same matrix!
-                mExclusionPath.op(mTempPath, Path.Op.UNION);
+                mExclusionPath.addPath(mTempPath, mLabelMatrix); // Same matrix!
             }
         }
 
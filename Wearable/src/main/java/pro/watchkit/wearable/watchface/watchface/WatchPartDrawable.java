@@ -31,14 +31,23 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.SystemClock;
+import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import pro.watchkit.wearable.watchface.geometry.AndroidPaths;
+import pro.watchkit.wearable.watchface.geometry.Shapes;
+import pro.watchkit.wearable.watchface.geometry.VectorPath;
+import pro.watchkit.wearable.watchface.model.ComplicationHolder;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 import pro.watchkit.wearable.watchface.util.SharedPref;
 
@@ -66,6 +75,12 @@ abstract class WatchPartDrawable extends Drawable {
     private final Path mResetExclusionActivePath = new Path();
     @NonNull
     private final Path mResetExclusionAmbientPath = new Path();
+    /**
+     * The shape of the screen: a circle on round screens, a square otherwise. Like our
+     * reset exclusion paths, it's set in "onBoundsChange" and doesn't change between draws.
+     */
+    @NonNull
+    final Path mScreenShapePath = new Path();
     @NonNull
     private final Path p5 = new Path();
     @NonNull
@@ -74,16 +89,31 @@ abstract class WatchPartDrawable extends Drawable {
     private final Path p7 = new Path();
     @NonNull
     private final Path p8 = new Path();
+    /**
+     * Our bezels for non-rotating paths, regenerated whenever "mDrawPath" is.
+     */
     @NonNull
-    private final Path mNorthWestBezel = new Path();
-    @NonNull
-    private final Path mSouthEastBezel = new Path();
-    @NonNull
-    private final Path mNorthEastBezel = new Path();
+    private final Bezels mBezels = new Bezels();
+    /**
+     * Whether "mBezels" was generated from what's currently in "mDrawPath".
+     */
+    private boolean mBezelsValid = false;
+    /**
+     * Our bezels for rotating paths (i.e. hands), keyed by light direction bucket (see
+     * BEZEL_STEP_DEGREES). Emptied whenever "mDrawPath" is regenerated.
+     */
     @NonNull
-    private final Path mSouthWestBezel = new Path();
+    private final SparseArray<Bezels> mRotatedBezels = new SparseArray<>();
+    /**
+     * Scratch geometry for our shape primitives (drawRect and friends).
+     */
     @NonNull
-    private final Path mShapeCutout = new Path();
+    private final VectorPath mShape = new VectorPath();
+    /**
+     * When our shape primitives cut a curved shape down, how closely we follow the curve,
+     * in percent. A hundredth of a percent is a fraction of a pixel on any screen.
+     */
+    private static final float FLATTEN_TOLERANCE_PERCENT = 0.01f;
     @NonNull
     private final Path mTempPath = new Path();
     @NonNull
@@ -91,6 +121,113 @@ abstract class WatchPartDrawable extends Drawable {
     @NonNull
     private final Path mDrawPath = new Path();
 
+    /**
+     * A key for what's currently in our exclusion path, or 0 if we don't know (e.g. someone
+     * else has been at it since we last reset it). We only know for sure straight after
+     * "resetExclusionPath", so that's the only time it's non-zero.
+     */
+    private int mExclusionPathKey = 0;
+    /**
+     * Bumped whenever our bounds change, and with it our reset exclusion paths.
+     */
+    private int mResetExclusionPathVersion = 0;
+    /**
+     * The key of the geometry currently in "mDrawPath" (and our bezels and sprites): the path
+     * we were given, our state, and our exclusion path. If it matches next time, we skip the
+     * Path.op and just rotate what we've got. Invalid if "mDrawPath" can't be re-used.
+     */
+    @NonNull
+    private DrawPathKey mDrawPathKey = new DrawPathKey();
+    /**
+     * The key we're drawing now, to compare against "mDrawPathKey". Swapped with it on a miss.
+     */
+    @NonNull
+    private DrawPathKey mCandidateDrawPathKey = new DrawPathKey();
+
+    /**
+     * The key of what's in "mDrawPath". We keep all of it, not a hash of it, so two different
+     * keys can't collide: the path we were given (by identity; it's one of our own), our
+     * exclusion path key, and what our state's "hashCode" covers: its preset and settings
+     * (which our PaintBox is built from, too), notifications, burn-in protection and
+     * complications. Our paths, bezels and sprites are built from those.
+     */
+    private static final class DrawPathKey {
+        @Nullable
+        private Path mPath;
+        private int mExclusionPathKey;
+        @NonNull
+        private final byte[] mPacked = new byte[WatchFaceState.PACKED_LENGTH];
+        private int mUnreadNotifications;
+        private int mTotalNotifications;
+        private boolean mBurnInProtection;
+        /**
+         * Each complication's ID, foreground and active flags, packed into an int.
+         */
+        @NonNull
+        private int[] mComplications = new int[8];
+        private int mComplicationCount;
+
+        /**
+         * Set this key from the given path, exclusion path key and state.
+         */
+        void set(@NonNull Path path, int exclusionPathKey, @NonNull WatchFaceState state) {
+            mPath = path;
+            mExclusionPathKey = exclusionPathKey;
+            state.packInto(mPacked, 0);
+            mUnreadNotifications = state.getUnreadNotifications();
+            mTotalNotifications = state.getTotalNotifications();
+            mBurnInProtection = state.getBurnInProtection();
+            mComplicationCount = 0;
+            for (ComplicationHolder c : state.getComplications()) {
+                if (mComplicationCount == mComplications.length) {
+                    mComplications = Arrays.copyOf(mComplications, mComplicationCount * 2);
+                }
+                mComplications[mComplicationCount++] =
+                        (c.getId() << 2) | (c.isForeground ? 2 : 0) | (c.isActive ? 1 : 0);
+            }
+        }
+
+        /**
+         * Make this key match nothing, until it's set again.
+         */
+        void invalidate() {
+            mPath = null;
+        }
+
+        boolean isValid() {
+            return mPath != null;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            DrawPathKey that = (DrawPathKey) o;
+            if (mPath != that.mPath ||
+                    mExclusionPathKey != that.mExclusionPathKey ||
+                    mUnreadNotifications != that.mUnreadNotifications ||
+                    mTotalNotifications != that.mTotalNotifications ||
+                    mBurnInProtection != that.mBurnInProtection ||
+                    mComplicationCount != that.mComplicationCount ||
+                    !Arrays.equals(mPacked, that.mPacked)) {
+                return false;
+            }
+            for (int i = 0; i < mComplicationCount; i++) {
+                if (mComplications[i] != that.mComplications[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(mPath), mExclusionPathKey,
+                    Arrays.hashCode(mPacked), mUnreadNotifications, mTotalNotifications,
+                    mBurnInProtection, mComplicationCount);
+        }
+    }
+
     /**
      * Reset our current direction. Call this before starting any drawing, so we get consistency
      * from draw to draw.
@@ -120,6 +257,9 @@ abstract class WatchPartDrawable extends Drawable {
         long start = SystemClock.elapsedRealtimeNanos();
         // Stats end
 
+        // Whatever was in our exclusion path last time, we don't know what's in it now.
+        mExclusionPathKey = 0;
+
         Rect bounds = canvas.getClipBounds();
         if (SharedPref.mWriteLayersToDisk && bounds.width() != 0 && bounds.height() != 0) {
             // Create "mWriteBitmap" on first use or dimension change.
@@ -193,10 +333,117 @@ abstract class WatchPartDrawable extends Drawable {
         return false;
     }
 
-    private float mLastDegrees = -360f;
+    /**
+     * The bezels for a path: the highlights and shadows on each edge, as lit from the
+     * north-west. Each bezel is in the path's own (unrotated) frame.
+     */
+    private static final class Bezels {
+        @NonNull
+        final Path mNorthWest = new Path();
+        @NonNull
+        final Path mSouthEast = new Path();
+        @NonNull
+        final Path mNorthEast = new Path();
+        @NonNull
+        final Path mSouthWest = new Path();
+    }
+
+    /**
+     * For rotating paths, we generate bezels for a light direction every 6 degrees (i.e. 1
+     * minute) and re-use them. The bezels are offset by a fraction of a percent, so nobody
+     * can tell the difference if the light is a few degrees out. Once we've been round the
+     * dial once, we don't need to generate any more: no more Path.op on every frame.
+     */
+    private static final float BEZEL_STEP_DEGREES = 6f;
 
     void regenerateBezels() {
-        mLastDegrees = -360f;
+        mRotatedBezels.clear();
+        clearSprites();
+        mDrawPathKey.invalidate();
+    }
+
+    /**
+     * A rotating path, pre-rendered (with its material, shadow and bezels) for one light
+     * direction. "mLeft" and "mTop" are where it goes on screen.
+     */
+    private static final class Sprite {
+        @NonNull
+        final Bitmap mBitmap;
+        final int mLeft, mTop;
+
+        Sprite(@NonNull Bitmap bitmap, int left, int top) {
+            mBitmap = bitmap;
+            mLeft = left;
+            mTop = top;
+        }
+    }
+
+    /**
+     * How much room we leave around our sprites for their shadows, in percent. Our shadow
+     * radius is 2%, so this is plenty.
+     */
+    private static final float SPRITE_OUTSET_PERCENT = 3f;
+
+    /**
+     * How many sprites we keep, by default; see "getMaxSprites".
+     */
+    private static final int MAX_SPRITES = 3;
+
+    /**
+     * How many sprites we keep. Hour and minute hands sit in one light direction bucket for a
+     * minute or more, and pass through every bucket over an hour (or 12), so keeping them all
+     * would just hold on to dozens of bitmaps we won't need for a while. So by default we
+     * keep a few: the current one and the last couple. Override this to keep more.
+     *
+     * @return How many sprites to keep, at least 1
+     */
+    int getMaxSprites() {
+        return MAX_SPRITES;
+    }
+
+    /**
+     * Our sprites for rotating paths, keyed by light direction bucket (see
+     * BEZEL_STEP_DEGREES), least-recently used first. We keep "getMaxSprites" of them, and
+     * recycle the rest as they fall out. Emptied (and recycled) whenever "mDrawPath" is
+     * regenerated.
+     */
+    @NonNull
+    private final LinkedHashMap<Integer, Sprite> mSprites =
+            new LinkedHashMap<Integer, Sprite>(MAX_SPRITES + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Sprite> eldest) {
+                    if (size() > getMaxSprites()) {
+                        // It's the least recently used, so it's not the one we're drawing.
+                        eldest.getValue().mBitmap.recycle();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    /**
+     * Throw away our sprites, and recycle their bitmaps.
+     */
+    private void clearSprites() {
+        mSprites.values().forEach(sprite -> sprite.mBitmap.recycle());
+        mSprites.clear();
+    }
+
+    @NonNull
+    private final Paint mSpritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    @NonNull
+    private final RectF mSpriteBounds = new RectF();
+    @NonNull
+    private final Rect mSpriteRect = new Rect();
+
+    /**
+     * Do we draw our rotating paths as pre-rendered sprites, rather than as vectors? Sprites
+     * are much cheaper per frame, but a little softer, and lit from up to 3 degrees out.
+     *
+     * @return Whether we draw sprites; false by default.
+     */
+    boolean useSprites() {
+        return false;
     }
 
     /**
@@ -211,19 +458,21 @@ abstract class WatchPartDrawable extends Drawable {
     }
 
     /**
-     * Pre-generate the bezels in "mNorthWestBezel" and "mSouthEastBezel" (and their alternates
-     * in "mNorthEastBezel" and "mSouthWestBezel").
+     * Pre-generate the bezels in "bezels.mNorthWest" and "bezels.mSouthEast" (and their
+     * alternates in "bezels.mNorthEast" and "bezels.mSouthWest").
      * <p>
      * This can be called on every draw, but it's expensive (lots of intersections and path
      * manipulation) so it's been spun out into this method. Call it every time or not!
      *
      * @param p       The path to generate bezels for
      * @param degrees Degrees clockwise to rotate "p", or 0f for no rotation
+     * @param bezels  The bezels to generate into
      */
-    private void generateBezels(@NonNull Path p, float degrees) {
-        if (mWatchFaceState.isAmbient()) {
-            return;
-        }
+    private void generateBezels(@NonNull Path p, float degrees, @NonNull Bezels bezels) {
+        final Path mNorthWestBezel = bezels.mNorthWest;
+        final Path mSouthEastBezel = bezels.mSouthEast;
+        final Path mNorthEastBezel = bezels.mNorthEast;
+        final Path mSouthWestBezel = bezels.mSouthWest;
 
         // The bezels. Draw NW and SE bezels as paths.
         {
@@ -307,93 +556,219 @@ abstract class WatchPartDrawable extends Drawable {
     }
 
     void drawPath(@NonNull Canvas canvas, @NonNull Path path, @NonNull Paint paint) {
-        mDrawPath.set(path);
-        // Apply the exclusion path.
-        mDrawPath.op(mExclusionPath, Path.Op.INTERSECT);
+        // If we know what's in our exclusion path, and it's the same path and state as last
+        // time, then "mDrawPath" (and our bezels) are already clipped and ready to go. Hands
+        // are the big winners here: same geometry every frame, just rotated.
+        boolean drawPathCached = false;
+        if (mExclusionPathKey != 0) {
+            mCandidateDrawPathKey.set(path, mExclusionPathKey, mWatchFaceState);
+            drawPathCached = mDrawPathKey.isValid() && mDrawPathKey.equals(mCandidateDrawPathKey);
+        } else {
+            mCandidateDrawPathKey.invalidate();
+        }
+        if (!drawPathCached) {
+            mDrawPath.set(path);
+            // Apply the exclusion path.
+            mDrawPath.op(mExclusionPath, Path.Op.INTERSECT);
+            // And throw away our bezels and sprites; they're for the old "mDrawPath".
+            mRotatedBezels.clear();
+            clearSprites();
+            DrawPathKey previous = mDrawPathKey;
+            mDrawPathKey = mCandidateDrawPathKey;
+            mCandidateDrawPathKey = previous;
+        }
 
         if (mWatchFaceState.isDeveloperMode() && mWatchFaceState.isInnerGlow()) {
             // Apply the inner glow path.
             mInnerGlowPath.op(mDrawPath, Path.Op.DIFFERENCE);
         }
 
-        // Regenerate the bezels if needed.
         float degrees = getDegreesRotation();
-        if (degrees == -360f || (degrees - mLastDegrees) % 360f > 6f || hasStateChanged()) {
-            // Generate a new bezel if the current one is more than 6 degrees (1 minute) out.
-            // Or, always generate a new bezel if it's -360f (the default).
-            generateBezels(mDrawPath, degrees);
-            mLastDegrees = degrees;
-        }
-
-        mTempMatrix2.reset();
-        mTempMatrix2.postRotate(degrees, mCenterX, mCenterY);
 
 //        int seconds = (int)(mWatchFaceState.getSecondsDecimal());
 //        seconds = seconds % 2;
 
+        if (!mWatchFaceState.isAmbient() && mWatchFaceState.getPaintBox().isDraft()) {
+            // Drafting: just the path, no bezels or shadows. We didn't generate bezels,
+            // so if "mDrawPath" changed, they're stale.
+            if (!drawPathCached) {
+                mBezelsValid = false;
+            }
+            paint.setStyle(Paint.Style.FILL);
+            mTempMatrix2.reset();
+            mTempMatrix2.postRotate(degrees, mCenterX, mCenterY);
+            mDrawPath.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, paint);
+        } else if (!mWatchFaceState.isAmbient()) {
+            paint.setStyle(Paint.Style.FILL);
+            if (degrees != -360f && useSprites()) {
+                // Draw the sprite for the nearest light direction, and rotate it the rest of
+                // the way. Filtered, since it's almost never at a right angle.
+                int bucket = getBezelBucket(degrees);
+                Sprite sprite = getSprite(bucket, paint);
+                canvas.save();
+                canvas.rotate(degrees - bucket * BEZEL_STEP_DEGREES, mCenterX, mCenterY);
+                canvas.drawBitmap(sprite.mBitmap, sprite.mLeft, sprite.mTop, mSpritePaint);
+                canvas.restore();
+            } else {
+                // Get our bezels, then draw it all as vectors.
+                Bezels bezels = getBezels(degrees, drawPathCached);
+                mTempMatrix2.reset();
+                mTempMatrix2.postRotate(degrees, mCenterX, mCenterY);
+                drawActivePath(canvas, paint, bezels);
+            }
+        } else {
+            // Ambient. We didn't generate bezels, so if "mDrawPath" changed, they're stale.
+            if (!drawPathCached) {
+                mBezelsValid = false;
+            }
+            // The path itself.
+            mTempMatrix2.reset();
+            mTempMatrix2.postRotate(degrees, mCenterX, mCenterY);
+            mDrawPath.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, getAmbientPaint());
+        }
+    }
+
+    /**
+     * Get the light direction bucket for rotating paths; see BEZEL_STEP_DEGREES.
+     *
+     * @param degrees Degrees clockwise our path is rotated
+     * @return The bucket, from 0 to 59
+     */
+    private static int getBezelBucket(float degrees) {
+        return Math.floorMod(
+                Math.round(degrees / BEZEL_STEP_DEGREES), Math.round(360f / BEZEL_STEP_DEGREES));
+    }
+
+    /**
+     * Get our bezels for "mDrawPath" rotated by "degrees", generating them if we need to.
+     *
+     * @param degrees        Degrees clockwise our path is rotated, or -360f for not at all
+     * @param drawPathCached Whether "mDrawPath" is the same as last time
+     * @return Our bezels
+     */
+    @NonNull
+    private Bezels getBezels(float degrees, boolean drawPathCached) {
+        Bezels bezels;
+        if (degrees == -360f) {
+            // Generate a new bezel if it's -360f (the default), unless it's cached.
+            bezels = mBezels;
+            if (!drawPathCached || !mBezelsValid) {
+                generateBezels(mDrawPath, degrees, bezels);
+                mBezelsValid = true;
+            }
+        } else {
+            // Get the bezel for the nearest light direction, or generate it if we need to.
+            int bucket = getBezelBucket(degrees);
+            bezels = mRotatedBezels.get(bucket);
+            if (bezels == null) {
+                bezels = new Bezels();
+                generateBezels(mDrawPath, bucket * BEZEL_STEP_DEGREES, bezels);
+                mRotatedBezels.put(bucket, bezels);
+            }
+        }
+        return bezels;
+    }
+
+    /**
+     * Get our sprite for "mDrawPath" at the given light direction bucket, rendering it if we
+     * need to.
+     *
+     * @param bucket The light direction bucket; see BEZEL_STEP_DEGREES
+     * @param paint  The paint to fill our path with
+     * @return Our sprite
+     */
+    @NonNull
+    private Sprite getSprite(int bucket, @NonNull Paint paint) {
+        Sprite sprite = mSprites.get(bucket);
+        if (sprite == null) {
+            float spriteDegrees = bucket * BEZEL_STEP_DEGREES;
+            Bezels bezels = getBezels(spriteDegrees, true);
+            mTempMatrix2.reset();
+            mTempMatrix2.postRotate(spriteDegrees, mCenterX, mCenterY);
+
+            // Work out how big our sprite is: the path, plus room for its shadow.
+            mDrawPath.transform(mTempMatrix2, mTempPath);
+            mTempPath.computeBounds(mSpriteBounds, true);
+            mSpriteBounds.inset(-SPRITE_OUTSET_PERCENT * pc, -SPRITE_OUTSET_PERCENT * pc);
+            mSpriteBounds.roundOut(mSpriteRect);
+
+            // Render it, in screen coordinates, so our materials line up.
+            Bitmap bitmap = Bitmap.createBitmap(Math.max(mSpriteRect.width(), 1),
+                    Math.max(mSpriteRect.height(), 1), Bitmap.Config.ARGB_8888);
+            Canvas spriteCanvas = new Canvas(bitmap);
+            spriteCanvas.translate(-mSpriteRect.left, -mSpriteRect.top);
+            drawActivePath(spriteCanvas, paint, bezels);
+
+            sprite = new Sprite(bitmap, mSpriteRect.left, mSpriteRect.top);
+            mSprites.put(bucket, sprite);
+        }
+        return sprite;
+    }
+
+    /**
+     * Draw "mDrawPath" and its bezels in active mode, rotated by "mTempMatrix2".
+     *
+     * @param canvas Canvas to draw to
+     * @param paint  The paint to fill our path with
+     * @param bezels The bezels for "mDrawPath" at this rotation
+     */
+    private void drawActivePath(
+            @NonNull Canvas canvas, @NonNull Paint paint, @NonNull Bezels bezels) {
         // 6 layers:
         // Shadow
         // The path itself
         // Primary bevel 2 and secondary bevel 2, which are light and dark highlights
         // Primary bevel and secondary bevel
 //        boolean altDrawing = mWatchFaceState.isDeveloperMode() && mWatchFaceState.isAltDrawing();
-        if (!mWatchFaceState.isAmbient()) {
-            // Shadow
-//            canvas.drawPath(p, mWatchFaceState.getPaintBox().getShadowPaint());
 
-            // The path itself.
-            paint.setStyle(Paint.Style.FILL);
-            mDrawPath.transform(mTempMatrix2, mTempPath);
-            // Shadow
-            if (enablePathShadows()) {
-                canvas.drawPath(mTempPath,
-                        mWatchFaceState.getPaintBox().getShadowPaint());
-            }
-            canvas.drawPath(mTempPath, paint);
+        // The path itself.
+        mDrawPath.transform(mTempMatrix2, mTempPath);
+        // Shadow
+        if (enablePathShadows()) {
+            canvas.drawPath(mTempPath,
+                    mWatchFaceState.getPaintBox().getShadowPaint());
+        }
+        canvas.drawPath(mTempPath, paint);
 
-//            // Draw NE and SW bezels as paths.
-//            // They're drawn first so they're overdrawn by NW and SE.
-//            if (!altDrawing) {
-            {
-                // Retrieve our paints and set them to fill.
-                Paint bezelPaint1 = mWatchFaceState.getPaintBox().getBezelPaint1();
-                Paint bezelPaint2 = mWatchFaceState.getPaintBox().getBezelPaint2();
-                bezelPaint1.setStyle(Paint.Style.FILL);
-                int alpha1 = bezelPaint1.getAlpha();
-                bezelPaint1.setAlpha(127); // Draw at half-intensity
-                bezelPaint2.setStyle(Paint.Style.FILL);
-                int alpha2 = bezelPaint2.getAlpha();
-                bezelPaint2.setAlpha(127);
-
-//                // Right, all done, draw them!
-                mNorthEastBezel.transform(mTempMatrix2, mTempPath);
-                canvas.drawPath(mTempPath, bezelPaint1);
-                mSouthWestBezel.transform(mTempMatrix2, mTempPath);
-                canvas.drawPath(mTempPath, bezelPaint2);
-
-                bezelPaint1.setAlpha(alpha1);
-                bezelPaint2.setAlpha(alpha2);
-            }
+//        // Draw NE and SW bezels as paths.
+//        // They're drawn first so they're overdrawn by NW and SE.
+//        if (!altDrawing) {
+        {
+            // Retrieve our paints and set them to fill.
+            Paint bezelPaint1 = mWatchFaceState.getPaintBox().getBezelPaint1();
+            Paint bezelPaint2 = mWatchFaceState.getPaintBox().getBezelPaint2();
+            bezelPaint1.setStyle(Paint.Style.FILL);
+            int alpha1 = bezelPaint1.getAlpha();
+            bezelPaint1.setAlpha(127); // Draw at half-intensity
+            bezelPaint2.setStyle(Paint.Style.FILL);
+            int alpha2 = bezelPaint2.getAlpha();
+            bezelPaint2.setAlpha(127);
+
+//            // Right, all done, draw them!
+            bezels.mNorthEast.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, bezelPaint1);
+            bezels.mSouthWest.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, bezelPaint2);
+
+            bezelPaint1.setAlpha(alpha1);
+            bezelPaint2.setAlpha(alpha2);
+        }
 
-            // Draw NW and SE bezels as paths.
-            {
-                // Retrieve our paints and set them to fill.
-                Paint bezelPaint1 = mWatchFaceState.getPaintBox().getBezelPaint1();
-                Paint bezelPaint2 = mWatchFaceState.getPaintBox().getBezelPaint2();
-                bezelPaint1.setStyle(Paint.Style.FILL);
-                bezelPaint2.setStyle(Paint.Style.FILL);
-
-                // Right, all done, draw them!
-                mNorthWestBezel.transform(mTempMatrix2, mTempPath);
-                canvas.drawPath(mTempPath, bezelPaint1);
-                mSouthEastBezel.transform(mTempMatrix2, mTempPath);
-                canvas.drawPath(mTempPath, bezelPaint2);
-            }
-        } else {
-            // Ambient.
-            // The path itself.
-            mDrawPath.transform(mTempMatrix2, mTempPath);
-            canvas.drawPath(mTempPath, getAmbientPaint());
+        // Draw NW and SE bezels as paths.
+        {
+            // Retrieve our paints and set them to fill.
+            Paint bezelPaint1 = mWatchFaceState.getPaintBox().getBezelPaint1();
+            Paint bezelPaint2 = mWatchFaceState.getPaintBox().getBezelPaint2();
+            bezelPaint1.setStyle(Paint.Style.FILL);
+            bezelPaint2.setStyle(Paint.Style.FILL);
+
+            // Right, all done, draw them!
+            bezels.mNorthWest.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, bezelPaint1);
+            bezels.mSouthEast.transform(mTempMatrix2, mTempPath);
+            canvas.drawPath(mTempPath, bezelPaint2);
         }
     }
 
@@ -420,36 +795,62 @@ abstract class WatchPartDrawable extends Drawable {
         // Check width and height.
         mWatchFaceState.getPaintBox().onWidthAndHeightChanged(width, height);
 
-        // Set up reset exclusion paths for ambient and active.
-
-        // For ambient...
-        // We can't draw here because Wear OS shifts our watchface +/- 6px in each direction
-        // and it gets cut off, so just don't try drawing there.
-
-        final int exclusion = 6;
-
-        p5.reset();
-        p6.reset();
-        p7.reset();
-        p8.reset();
-        p5.addCircle(mCenterX + exclusion, mCenterY + exclusion, pc * 50f, getDirection());
-        p6.addCircle(mCenterX + exclusion, mCenterY - exclusion, pc * 50f, getDirection());
-        p7.addCircle(mCenterX - exclusion, mCenterY + exclusion, pc * 50f, getDirection());
-        p8.addCircle(mCenterX - exclusion, mCenterY - exclusion, pc * 50f, getDirection());
-
-        p5.op(p6, Path.Op.INTERSECT);
-        p5.op(p7, Path.Op.INTERSECT);
-        p5.op(p8, Path.Op.INTERSECT);
-
-        mResetExclusionAmbientPath.reset();
-        mResetExclusionAmbientPath.addPath(p5);
-
-        // For active, set an exclusion path of just the entire watchface.
-        // Set it as a rect that's 1% bigger than the screen on all sides.
-        // This should cater for rectangular and circular screens alike.
+        // Our reset exclusion paths are about to change, so anything clipped to them is stale.
+        mResetExclusionPathVersion++;
+
+        // Set up reset exclusion paths for ambient and active, and the shape of our screen.
+        // These only depend on the size and shape of the surface, and every part on that
+        // surface has the same ones. So build them once and copy them out of GeometryCache.
+        boolean round = mWatchFaceState.isScreenRound();
+        List<Object> key = GeometryCache.key("ScreenMasks", width, height, round);
+        if (!GeometryCache.get(key,
+                mResetExclusionAmbientPath, mResetExclusionActivePath, mScreenShapePath)) {
+            // For ambient...
+            // We can't draw here because Wear OS shifts our watchface +/- 6px in each direction
+            // and it gets cut off, so just don't try drawing there.
+
+            final int exclusion = 6;
+
+            p5.reset();
+            p6.reset();
+            p7.reset();
+            p8.reset();
+            p5.addCircle(mCenterX + exclusion, mCenterY + exclusion, pc * 50f, getDirection());
+            p6.addCircle(mCenterX + exclusion, mCenterY - exclusion, pc * 50f, getDirection());
+            p7.addCircle(mCenterX - exclusion, mCenterY + exclusion, pc * 50f, getDirection());
+            p8.addCircle(mCenterX - exclusion, mCenterY - exclusion, pc * 50f, getDirection());
+
+            p5.op(p6, Path.Op.INTERSECT);
+            p5.op(p7, Path.Op.INTERSECT);
+            p5.op(p8, Path.Op.INTERSECT);
+
+            mResetExclusionAmbientPath.reset();
+            mResetExclusionAmbientPath.addPath(p5);
+
+            // For active, set an exclusion path of just the entire watchface.
+            // Set it as a rect that's 1% bigger than the screen on all sides.
+            // This should cater for rectangular and circular screens alike.
+
+            mResetExclusionActivePath.reset();
+            mResetExclusionActivePath.addRect(-pc, -pc, width + pc, height + pc, getDirection());
+
+            // And the shape of the screen, for clipping.
+            mScreenShapePath.reset();
+            final float r = Math.min(mCenterX, mCenterY);
+            if (round) {
+                // Round screen, make it a circle.
+                mScreenShapePath.addCircle(mCenterX, mCenterY, r, getDirection());
+                // Deal with cutouts here?
+            } else {
+                // Square screen, make it a rectangle.
+                mScreenShapePath.addRect(mCenterX - r, mCenterY - r,
+                        mCenterX + r, mCenterY + r, getDirection());
+                // Deal with rectangular screens here?
+            }
 
-        mResetExclusionActivePath.reset();
-        mResetExclusionActivePath.addRect(-pc, -pc, width + pc, height + pc, getDirection());
+            GeometryCache.put(key,
+                    mResetExclusionAmbientPath, mResetExclusionActivePath, mScreenShapePath);
+        }
 
         // Reset "mInnerGlowPath" to our bounds, outset by 10%.
         mInnerGlowPath.reset();
@@ -483,14 +884,17 @@ abstract class WatchPartDrawable extends Drawable {
 
     void addExclusionPath(@NonNull Path path, @NonNull Path.Op op) {
         mExclusionPath.op(path, op);
+        mExclusionPathKey = 0;
     }
 
     /**
      * Reset our exclusion path to default, which respects the device's borders.
      */
     void resetExclusionPath() {
-        mExclusionPath.set(mWatchFaceState.isAmbient() && mWatchFaceState.getBurnInProtection() ?
-                mResetExclusionAmbientPath : mResetExclusionActivePath);
+        boolean ambient = mWatchFaceState.isAmbient() && mWatchFaceState.getBurnInProtection();
+        mExclusionPath.set(ambient ? mResetExclusionAmbientPath : mResetExclusionActivePath);
+        // Now we know exactly what's in our exclusion path. Never 0.
+        mExclusionPathKey = mResetExclusionPathVersion * 2 + (ambient ? 2 : 1);
     }
 
     /**
@@ -499,6 +903,7 @@ abstract class WatchPartDrawable extends Drawable {
     void resetExclusionPathTotally() {
         mExclusionPath.reset();
         mExclusionPath.addCircle(mCenterX, mCenterY, mCenterX * 3f, getDirection());
+        mExclusionPathKey = 0;
     }
 
     /**
@@ -550,36 +955,10 @@ abstract class WatchPartDrawable extends Drawable {
      */
     void drawRect(@NonNull Path path, float left, float top, float right, float bottom,
                   float scale, float offsetTop, float offsetBottom) {
-        // Inset calculation:
-        //  xy = ((x - n)(y - n)) / scale
-        //   n = (x + y − √( x² + y² + (4 * scale - 2)xy)) / 2
-        // And then...
-        //   offset = n / 2
-        final float x = right - left;
-        final float y = bottom - top;
-        final float n =
-                (x + y - (float) Math.sqrt(x * x + y * y + (4f * scale - 2f) * x * y)) * 0.5f;
-        final float offset = n / 2f;
-
-        path.addRect(left + offset, top + offset,
-                right - offset, bottom - offset, getDirection());
-
-        // Top and bottom halves
-        if (offsetTop != 0f || offsetBottom != 0f) {
-            float t = top + offset; // Top of inner shape
-            float b = bottom - offset; // Bottom of inner shape
-            float h2 = b - t; // Height of inner shape
-
-            // Apply the offsets.
-            t += h2 * offsetTop;
-            b -= h2 * offsetBottom;
-
-            mShapeCutout.reset();
-            // Make "mShapeCutout" a bit wider than the shape, then intersect with "path".
-            mShapeCutout.addRect(
-                    left - 1f * pc, t, right + 1f * pc, b, getDirection());
-            path.op(mShapeCutout, Path.Op.INTERSECT);
-        }
+        mShape.reset();
+        Shapes.rect(mShape, left, top, right, bottom, scale, offsetTop, offsetBottom,
+                getDirection() == Path.Direction.CW);
+        AndroidPaths.addTo(mShape, path);
     }
 
     /**
@@ -633,37 +1012,11 @@ abstract class WatchPartDrawable extends Drawable {
      */
     void drawRoundRect(@NonNull Path path, float left, float top, float right, float bottom,
                        float cornerRadius, float scale, float offsetTop, float offsetBottom) {
-        // Inset calculation:
-        //  xy = ((x - n)(y - n)) / scale
-        //   n = (x + y − √( x² + y² + (4 * scale - 2)xy)) / 2
-        // And then...
-        //   offset = n / 2
-        final float x = right - left;
-        final float y = bottom - top;
-        final float n =
-                (x + y - (float) Math.sqrt(x * x + y * y + (4f * scale - 2f) * x * y)) * 0.5f;
-        final float offset = n / 2f;
-        final float v = cornerRadius * scale;
-
-        path.addRoundRect(left + offset, top + offset,
-                right - offset, bottom - offset, v, v, getDirection());
-
-        // Top and bottom halves
-        if (offsetTop != 0f || offsetBottom != 0f) {
-            float t = top + offset; // Top of inner shape
-            float b = bottom - offset; // Bottom of inner shape
-            float h2 = b - t; // Height of inner shape
-
-            // Apply the offsets.
-            t += h2 * offsetTop;
-            b -= h2 * offsetBottom;
-
-            mShapeCutout.reset();
-            // Make "mShapeCutout" a bit wider than the shape, then intersect with "path".
-            mShapeCutout.addRect(
-                    left - 1f * pc, t, right + 1f * pc, b, getDirection());
-            path.op(mShapeCutout, Path.Op.INTERSECT);
-        }
+        mShape.reset();
+        Shapes.roundRect(mShape, left, top, right, bottom, cornerRadius, scale,
+                offsetTop, offsetBottom, getDirection() == Path.Direction.CW,
+                FLATTEN_TOLERANCE_PERCENT * pc);
+        AndroidPaths.addTo(mShape, path);
     }
 
     /**
@@ -691,21 +1044,10 @@ abstract class WatchPartDrawable extends Drawable {
      */
     void drawEllipse(@NonNull Path path, float left, float top, float right, float bottom,
                      float scale) {
-        // Inset calculation:
-        //  xy = ((x - n)(y - n)) / scale
-        //   n = (x + y − √( x² + y² + (4 * scale - 2)xy)) / 2
-        // And then...
-        //   offset = n / 2
-        final float x = right - left;
-        final float y = bottom - top;
-        final float n =
-                (x + y - (float) Math.sqrt(x * x + y * y + (4f * scale - 2f) * x * y)) * 0.5f;
-        final float offset = n / 2f;
-
-        path.addOval(left + offset, top + offset,
-                right - offset, bottom - offset, getDirection());
-
-        path.close();
+        mShape.reset();
+        Shapes.ellipse(mShape, left, top, right, bottom, scale,
+                getDirection() == Path.Direction.CW);
+        AndroidPaths.addTo(mShape, path);
     }
 
     /**
@@ -764,49 +1106,10 @@ abstract class WatchPartDrawable extends Drawable {
      */
     void drawDiamond(@NonNull Path path, float left, float top, float right, float bottom,
                      float scale, float midpoint, float offsetTop, float offsetBottom) {
-        final float diamondMidpoint = (top * midpoint) + (bottom * (1f - midpoint));
-
-        // Scale factor. Ignored if scale == 1.0f
-        final float x0 = (right - left) * 0.5f * (1f - scale);
-        final float y1 = (diamondMidpoint - top) * (1f - scale);
-        final float y2 = (bottom - diamondMidpoint) * (1f - scale);
-
-        final float leftX = left + x0;
-        final float rightX = right - x0;
-        final float bottomY = bottom - y2;
-        final float topY = top + y1;
-
-
-        // Bottom: extend past the hub
-        if (getDirection() == Path.Direction.CW) {
-            path.moveTo(leftX, diamondMidpoint); // Left
-            path.lineTo(mCenterX, topY); // Top
-            path.lineTo(rightX, diamondMidpoint); // Right
-        } else {
-            path.moveTo(rightX, diamondMidpoint); // Right
-            path.lineTo(mCenterX, topY); // Top
-            path.lineTo(leftX, diamondMidpoint); // Left
-        }
-        path.lineTo(mCenterX, bottomY); // Bottom: extend past the hub
-        path.close();
-
-        // Top and bottom halves
-        if (offsetTop != 0f || offsetBottom != 0f) {
-            float t = Math.min(topY, bottomY); // Top of inner shape
-            float b = Math.max(topY, bottomY); // Bottom of inner shape
-            float h2 = b - t; // Height of inner shape
-
-            // Apply the offsets. Because this is a triangle, apply the square root
-            // so that we keep the proportions of the triangle
-            t += h2 * (float) Math.sqrt(offsetTop);
-            b -= h2 * (1f - (float) Math.sqrt(1f - offsetBottom));
-
-            mShapeCutout.reset();
-            // Make "mShapeCutout" a bit wider than the shape, then intersect with "path".
-            mShapeCutout.addRect(
-                    left - 1f * pc, t, right + 1f * pc, b, getDirection());
-            path.op(mShapeCutout, Path.Op.INTERSECT);
-        }
+        mShape.reset();
+        Shapes.diamond(mShape, left, top, right, bottom, mCenterX, scale, midpoint,
+                offsetTop, offsetBottom, getDirection() == Path.Direction.CW);
+        AndroidPaths.addTo(mShape, path);
     }
 
     /**
@@ -862,48 +1165,9 @@ abstract class WatchPartDrawable extends Drawable {
      */
     void drawTriangle(@NonNull Path path, float left, float top, float right, float bottom,
                       float scale, float offsetTop, float offsetBottom) {
-        // If bottom is above top, invert the triangle!
-        final boolean invert = bottom < top;
-        // Scale factor. Ignored if scale == 0f
-        final double h = invert ? top - bottom : bottom - top;
-        final double w = (double) (right - left) * 0.5d;
-        final double w1 = w - (w * Math.sqrt(scale));
-        final double z = Math.sin(Math.atan(h / w) / 2d) * w1;
-        final double z1 = h - (h * Math.sqrt(scale)) - z;
-
-        final float leftX = left + (float) w1;
-        final float rightX = right - (float) w1;
-        final float bottomY = invert ? bottom + (float) z : bottom - (float) z;
-        final float topX = mCenterX;
-        final float topY = invert ? top - (float) z1 : top + (float) z1;
-
-        if (getDirection() == Path.Direction.CW) {
-            path.moveTo(leftX, bottomY); // Left
-            path.lineTo(topX, topY); // Top
-            path.lineTo(rightX, bottomY); // Right
-        } else {
-            path.moveTo(rightX, bottomY); // Right
-            path.lineTo(topX, topY); // Top
-            path.lineTo(leftX, bottomY); // Left
-        }
-        path.close();
-
-        // Top and bottom halves
-        if (offsetTop != 0f || offsetBottom != 0f) {
-            float t = Math.min(topY, bottomY); // Top of inner shape
-            float b = Math.max(topY, bottomY); // Bottom of inner shape
-            float h2 = b - t; // Height of inner shape
-
-            // Apply the offsets. Because this is a triangle, apply the square root
-            // so that we keep the proportions of the triangle
-            t += h2 * (float) Math.sqrt(offsetTop);
-            b -= h2 * (1f - (float) Math.sqrt(1f - offsetBottom));
-
-            mShapeCutout.reset();
-            // Make "mShapeCutout" a bit wider than the shape, then intersect with "path".
-            mShapeCutout.addRect(
-                    left - 1f * pc, t, right + 1f * pc, b, getDirection());
-            path.op(mShapeCutout, Path.Op.INTERSECT);
-        }
+        mShape.reset();
+        Shapes.triangle(mShape, left, top, right, bottom, mCenterX, scale,
+                offsetTop, offsetBottom, getDirection() == Path.Direction.CW);
+        AndroidPaths.addTo(mShape, path);
     }
 }
@@ -34,6 +34,9 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -44,6 +47,7 @@ import pro.watchkit.wearable.watchface.model.BytePackable.HandShape;
 import pro.watchkit.wearable.watchface.model.BytePackable.HandStalk;
 import pro.watchkit.wearable.watchface.model.BytePackable.HandThickness;
 import pro.watchkit.wearable.watchface.model.BytePackable.Material;
+import pro.watchkit.wearable.watchface.model.PaintBox;
 import pro.watchkit.wearable.watchface.model.WatchFaceState;
 import pro.watchkit.wearable.watchface.util.SharedPref;
 
@@ -108,6 +112,12 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
         return mWatchFaceState.isDrawShadows();
     }
 
+    @Override
+    boolean useSprites() {
+        // Sprites, unless we've asked for vectors in developer mode.
+        return !(mWatchFaceState.isDeveloperMode() && mWatchFaceState.isVectorHands());
+    }
+
     /**
      * Does this hand have a cutout (two-tone or punched out)?
      * Only if if's not the hand material (in which case, there's no cutout).
@@ -208,10 +218,33 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
     private Canvas mDecompositionSourceCanvas;
 
     /**
-     * A private copy of our current ambient tint. Useful for caching.
+     * Our current ambient tint, quantized with PaintBox.getQuantizedTint. Useful for caching.
+     */
+    private long mCurrentQuantizedTint = -1L;
+
+    /**
+     * The maximum number of decomposition bitmaps we cache per hand.
+     */
+    private static final int DECOMPOSITION_TINT_CACHE_SIZE = 16;
+
+    /**
+     * Our decomposition bitmaps, keyed by quantized ambient tint. During dusk and dawn our
+     * ambient tint changes continuously, but there's only a handful of visibly distinct tints,
+     * so we only render each of those once. Emptied whenever the hand itself changes.
      */
-    @ColorInt
-    int mCurrentAmbientTint;
+    @NonNull
+    private final LinkedHashMap<Long, Bitmap> mDecompositionTintCache =
+            new LinkedHashMap<Long, Bitmap>(DECOMPOSITION_TINT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Bitmap> eldest) {
+                    if (size() > DECOMPOSITION_TINT_CACHE_SIZE) {
+                        // It's the least recently used, so it's not our current one.
+                        eldest.getValue().recycle();
+                        return true;
+                    }
+                    return false;
+                }
+            };
 
     /**
      * Build this watch face decomposition component into "builder".
@@ -228,11 +261,16 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
         // Regenerate the hand path if required.
         getHandPath();
 
-        // Regenerate the decomposition if our ambient tint color has changed.
-        // This happens regularly during dusk and dawn.
-        if (mCurrentAmbientTint != mWatchFaceState.getAmbientTint()) {
+        // Regenerate the decomposition if we've never drawn it before.
+        if (mDecompositionSourceBitmap == null) {
             regenerateDecomposition();
         }
+        // Re-tint the decomposition if our ambient tint color has visibly changed.
+        // This happens regularly during dusk and dawn.
+        if (mCurrentQuantizedTint != mWatchFaceState.getPaintBox().getQuantizedTint(
+                mWatchFaceState.getAmbientTint())) {
+            regenerateDecompositionTint();
+        }
 
         ImageComponent.Builder iBuilder = new ImageComponent.Builder();
         iBuilder.setComponentId(baseId).setZOrder(baseId);
@@ -263,8 +301,9 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
     }
 
     /**
-     * Regenerate the decomposition bitmap "mDecompositionDestBitmap" if anything has
-     * changed with the hands, such as its shape, size, or dusk/dawn tint.
+     * Regenerate the decomposition bitmap "mDecompositionSourceBitmap" if anything has
+     * changed with the hands, such as its shape or size, then tint it into
+     * "mDecompositionDestBitmap".
      */
     private void regenerateDecomposition() {
         // Compute the bounds for the path, make sure we don't render more than we need.
@@ -283,7 +322,6 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
         // Render into a new bitmap. Use a Canvas to draw the Path.
         if (mDecompositionSourceBitmap == null ||
                 mDecompositionSourceCanvas == null ||
-                mDecompositionDestBitmap == null ||
                 mDecompositionSourceBitmap.getWidth() != bitmapWidth ||
                 mDecompositionSourceBitmap.getHeight() != bitmapHeight) {
             // Initialise our bitmaps and canvas on first use.
@@ -294,27 +332,52 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
             mDecompositionSourceCanvas.translate(
                     -mHandAmbientPathBounds.left,
                     -mHandAmbientPathBounds.top);
-            mDecompositionDestBitmap =
-                    Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
         } else {
             // Re-use the canvas, but clear it first.
             mDecompositionSourceCanvas.drawColor(Color.BLACK);
         }
         assert mDecompositionSourceBitmap != null;
-        assert mDecompositionDestBitmap != null;
         assert mDecompositionSourceCanvas != null;
 
-        // Draw our hand!
-
+        // Draw our hand! Untinted, since we'll tint it when we map it.
+        PaintBox paintBox = mWatchFaceState.getPaintBox();
+        @ColorInt int currentAmbientPaintTint = paintBox.getAmbientPaintTint();
+        paintBox.setAmbientPaintTint(Color.WHITE);
         mDecompositionSourceCanvas.drawPath(mHandAmbientPath, getAmbientPaint());
+        paintBox.setAmbientPaintTint(currentAmbientPaintTint);
 
-        // Reduce our bit depth to 16 levels, which is what decomposable bitmaps require.
-        mWatchFaceState.getPaintBox().mapBitmapWith8LevelsFromTransparent(
-                mWatchFaceState.getAmbientTint(),
-                mDecompositionSourceBitmap, mDecompositionDestBitmap);
+        // Our hand has changed, so all our previously-tinted bitmaps are out of date.
+        mDecompositionTintCache.values().forEach(Bitmap::recycle);
+        mDecompositionTintCache.clear();
+        regenerateDecompositionTint();
+    }
+
+    /**
+     * Tint our decomposition bitmap "mDecompositionSourceBitmap" into
+     * "mDecompositionDestBitmap" with our current dusk/dawn tint, or fetch it from our
+     * cache if we've already done this tint before.
+     */
+    private void regenerateDecompositionTint() {
+        if (mDecompositionSourceBitmap == null) {
+            return;
+        }
+        long quantizedTint = mWatchFaceState.getPaintBox().getQuantizedTint(
+                mWatchFaceState.getAmbientTint());
+        Bitmap destBitmap = mDecompositionTintCache.get(quantizedTint);
+
+        if (destBitmap == null) {
+            // Cache miss. Reduce our bit depth to 16 levels,
+            // which is what decomposable bitmaps require.
+            destBitmap = Bitmap.createBitmap(mDecompositionSourceBitmap.getWidth(),
+                    mDecompositionSourceBitmap.getHeight(), Bitmap.Config.ARGB_8888);
+            mWatchFaceState.getPaintBox().mapBitmapWith8LevelsFromTransparent(
+                    mWatchFaceState.getAmbientTint(), mDecompositionSourceBitmap, destBitmap);
+            mDecompositionTintCache.put(quantizedTint, destBitmap);
+        }
 
-        // Save a copy of the ambient tint we used to draw this.
-        mCurrentAmbientTint = mWatchFaceState.getAmbientTint();
+        mDecompositionDestBitmap = destBitmap;
+        // Save a copy of the tint we used to draw this.
+        mCurrentQuantizedTint = quantizedTint;
     }
 
     /**
@@ -364,6 +427,14 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
         HandStalk handStalk = getHandStalk();
         HandCutoutShape handCutoutShape = getHandCutout();
 
+        // Other hands (in other engines, or in the config UI) may have made this one already.
+        List<Object> key = GeometryCache.key(isMinuteHand(), isSecondHand(), handShape,
+                handLength, handThickness, handStalk, handCutoutShape, isCutout(),
+                isTwoToneCutout(), pc, mCenterX, mCenterY);
+        if (GeometryCache.get(key, mHandActivePath, mHandTwoToneCutoutPath)) {
+            return;
+        }
+
         float thickness = WatchFaceState.getHandThickness(handShape, handThickness);
         float length = WatchFaceState.getHandLength(handLength);
         float top, bottom;
@@ -632,5 +703,7 @@ abstract class WatchPartHandsDrawable extends WatchPartDrawable
                 }
             }
         }
+
+        GeometryCache.put(key, mHandActivePath, mHandTwoToneCutoutPath);
     }
 }
@@ -123,4 +123,14 @@ final class WatchPartHandsSecondDrawable extends WatchPartHandsDrawable {
     boolean isSecondHand() {
         return true;
     }
+
+    /**
+     * Second hands go through every light direction bucket every minute, which is exactly when
+     * we don't want to be rendering their sprites again. So keep one for each bucket. They're
+     * thin, so their sprites are mostly small.
+     */
+    @Override
+    int getMaxSprites() {
+        return 60;
+    }
 }
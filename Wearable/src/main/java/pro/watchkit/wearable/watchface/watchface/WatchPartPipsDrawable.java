@@ -41,6 +41,9 @@ import android.graphics.Path;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import pro.watchkit.wearable.watchface.model.BytePackable.Material;
 import pro.watchkit.wearable.watchface.model.BytePackable.PipShape;
 import pro.watchkit.wearable.watchface.model.BytePackable.PipSize;
@@ -95,143 +98,244 @@ abstract class WatchPartPipsDrawable extends WatchPartDrawable {
         final float pipRadiusPositionDimen = pipBandStart + (pipBandHeight / 2f);
 
         if (hasStateChanged()) {
-            p.reset();
-            p2.reset();
-
-            int numPips = 60;
+            final int numPips = 60;
+            long visiblePips = 0L;
             for (int pipIndex = 0; pipIndex < numPips; pipIndex++) {
-                if (!isVisible(pipIndex)) {
-                    // Pip is not visible. Continue.
-                    continue;
+                if (isVisible(pipIndex)) {
+                    visiblePips |= 1L << pipIndex;
                 }
+            }
 
-                float mCenter = Math.min(mCenterX, mCenterY);
-
-                // Draw the pip.
-
-                float centerPipRadius = mCenter - pipRadiusPositionDimen;
-                float pipDegrees = ((float) pipIndex / (float) numPips) * 360f;
-
-                float x = mCenterX;
-                float y = mCenterY - centerPipRadius;
-
-                temp.reset();
-                cutout.reset();
-
-                final float left = x - pipWidth;
-                final float right = x + pipWidth;
-                final float top = y - pipSizeDimen;
-                final float bottom = y + pipSizeDimen;
-
-                // Draw the object at 12 o'clock, then rotate it to desired location.
-                switch (pipShape) {
-                    case SQUARE:
-                    case SQUARE_WIDE:
-                    case BAR_1_2:
-                    case BAR_1_4:
-                    case BAR_1_8: {
-                        // Draw a square.
-                        drawRect(temp, left, top, right, bottom, 1f);
-                        break;
-                    }
-                    case SQUARE_CUTOUT: {
-                        drawRect(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER);
-                        drawRect(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER);
-                        temp.op(cutout, Path.Op.DIFFERENCE);
-                        break;
-                    }
-                    case SECTOR: {
-                        // Draw a really large triangle, then crop it with two
-                        // circles to give us a wedge shape with arc top and bottom.
-                        // Height "2 * mCenterY", centered on (mCenterX, mCenterY)
-                        temp.moveTo(mCenterX, mCenterY);
-                        // Assume "pipWidth" is radians. Undo the multiplication by "pc".
-                        // Also undo the multiplication by "mod". Assume we don't mod that.
-                        double offsetRadians = pipWidth / (pc * mod);
-                        float offsetX = (float) Math.sin(offsetRadians) * 2 * mCenterY;
-                        if (getDirection() == Path.Direction.CW) {
-                            // Line to top left.
-                            temp.lineTo(x - offsetX, 0f - mCenterY);
-                            // Line to top right.
-                            temp.lineTo(x + offsetX, 0f - mCenterY);
-                        } else {
-                            // Line to top right.
-                            temp.lineTo(x + offsetX, 0f - mCenterY);
-                            // Line to top left.
-                            temp.lineTo(x - offsetX, 0f - mCenterY);
-                        }
-                        // And line back to origin.
-                        temp.close();
-
-                        // Crop it with our top circle and bottom circle.
-                        t2.reset();
-                        t2.addCircle(mCenterX, mCenterY,
-                                mCenterY - y + pipSizeDimen, getDirection());
-                        temp.op(t2, Path.Op.INTERSECT);
-                        t2.reset();
-                        t2.addCircle(mCenterX, mCenterY,
-                                mCenterY - y - pipSizeDimen, getDirection());
-                        temp.op(t2, Path.Op.DIFFERENCE);
-
-                        break;
-                    }
-                    case DOT:
-                    case DOT_THIN: {
-                        drawEllipse(temp, left, top, right, bottom, 1f);
-                        break;
-                    }
-                    case DOT_CUTOUT: {
-                        drawEllipse(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER);
-                        drawEllipse(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER);
-                        temp.op(cutout, Path.Op.DIFFERENCE);
-                        break;
-                    }
-                    case TRIANGLE:
-                    case TRIANGLE_THIN: {
-                        // Invert bottom and top to draw upside down!
-                        drawTriangle(temp, left, bottom, right, top, 1f);
-                        break;
-                    }
-                    case TRIANGLE_CUTOUT: {
-                        // Invert bottom and top to draw upside down!
-                        drawTriangle(temp, left, bottom, right, top, CUTOUT_SCALE_OUTER);
-                        drawTriangle(cutout, left, bottom, right, top, CUTOUT_SCALE_INNER);
-                        temp.op(cutout, Path.Op.DIFFERENCE);
-                        break;
-                    }
-                    case DIAMOND:
-                    case DIAMOND_THIN: {
-                        drawDiamond(temp, left, top, right, bottom, 1f, 0.5f);
-                        break;
-                    }
-                    case DIAMOND_CUTOUT: {
-                        drawDiamond(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER, 0.5f);
-                        drawDiamond(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER, 0.5f);
-                        temp.op(cutout, Path.Op.DIFFERENCE);
-                        break;
-                    }
-                    default: {
-                        break;
-                    }
-                }
+            // Other pips (in other engines, or in the config UI) may have made this one already.
+            List<Object> key = GeometryCache.key(visiblePips, pipShape, pipWidth, pipSizeDimen,
+                    pipRadiusPositionDimen, pc, mCenterX, mCenterY);
+            if (!GeometryCache.get(key, p, p2)) {
+                buildPips(numPips, visiblePips, pipShape, pipWidth, pipSizeDimen,
+                        pipRadiusPositionDimen, mod, true);
+                GeometryCache.put(key, p, p2);
+            }
+        }
 
-                mTempMatrix.reset();
-                mTempMatrix.setRotate(pipDegrees, mCenterX, mCenterY);
-                temp.transform(mTempMatrix);
+        drawPath(canvas, p, pipPaint);
+        drawPath(canvas, p2, pipPaint);
+    }
+
+    /**
+     * Our rotated copies of our pip, one per visible pip, even and odd pips separately.
+     * Re-used from build to build.
+     */
+    @NonNull
+    private final List<Path> mEvenPips = new ArrayList<>(), mOddPips = new ArrayList<>();
+
+    /**
+     * Build our pips into "p" and "p2".
+     * <p>
+     * Every pip is the same shape, just rotated, so we build it once at 12 o'clock (with all
+     * its cutouts and crops) and stamp out rotated copies. Then we union the copies pairwise,
+     * then pairs of pairs and so on, rather than folding each pip into one ever-growing path.
+     * Path.op costs in proportion to the size of both paths, so folding 60 pips one at a time
+     * is quadratic; this way each pip takes part in log(60) small unions instead.
+     *
+     * @param numPips                The number of pips around the dial
+     * @param visiblePips            Bitmask of which pips are visible
+     * @param pipShape               The shape of our pips
+     * @param pipWidth               Half the width of each pip
+     * @param pipSizeDimen           Half the height of each pip
+     * @param pipRadiusPositionDimen Distance of the center of each pip from the edge
+     * @param mod                    Size modifier for our pips
+     * @param balanced               Whether to union pairwise (true) or one at a time (false,
+     *                               the old way, which is only here for PipBenchmark)
+     */
+    void buildPips(int numPips, long visiblePips, @NonNull PipShape pipShape,
+                   float pipWidth, float pipSizeDimen, float pipRadiusPositionDimen,
+                   float mod, boolean balanced) {
+        buildPipTemplate(pipShape, pipWidth, pipSizeDimen, pipRadiusPositionDimen, mod);
 
-                if (pipIndex % 2 == 0) {
-                    // Draw every 2nd pip into p2. This makes it so the bezels don't "stick together"
-                    // if butted up close to each other.
-                    // Generally this only happens for minute pips, but since the output is cached
-                    // we don't mind making the other cases slower for code clarity.
-                    p.op(temp, Path.Op.UNION);
+        // Stamp out our rotated copies.
+        int evenPips = 0, oddPips = 0;
+        for (int pipIndex = 0; pipIndex < numPips; pipIndex++) {
+            if ((visiblePips & (1L << pipIndex)) == 0L) {
+                // Pip is not visible. Continue.
+                continue;
+            }
+
+            // Draw every 2nd pip into p2. This makes it so the bezels don't "stick together"
+            // if butted up close to each other.
+            // Generally this only happens for minute pips, but since the output is cached
+            // we don't mind making the other cases slower for code clarity.
+            List<Path> pips = pipIndex % 2 == 0 ? mEvenPips : mOddPips;
+            int i = pipIndex % 2 == 0 ? evenPips++ : oddPips++;
+            if (i == pips.size()) {
+                pips.add(new Path());
+            }
+
+            float pipDegrees = ((float) pipIndex / (float) numPips) * 360f;
+            mTempMatrix.reset();
+            mTempMatrix.setRotate(pipDegrees, mCenterX, mCenterY);
+            temp.transform(mTempMatrix, pips.get(i));
+        }
+
+        if (balanced) {
+            unionBalanced(mEvenPips, evenPips, p);
+            unionBalanced(mOddPips, oddPips, p2);
+        } else {
+            unionSequential(mEvenPips, evenPips, p);
+            unionSequential(mOddPips, oddPips, p2);
+        }
+    }
+
+    /**
+     * Union the first "count" paths in "paths" into "dest", pairwise. Destroys "paths".
+     *
+     * @param paths The paths to union
+     * @param count How many of "paths" to union
+     * @param dest  Path to put the result into
+     */
+    private static void unionBalanced(@NonNull List<Path> paths, int count, @NonNull Path dest) {
+        for (int step = 1; step < count; step *= 2) {
+            for (int i = 0; i + step < count; i += step * 2) {
+                paths.get(i).op(paths.get(i + step), Path.Op.UNION);
+            }
+        }
+        if (count > 0) {
+            dest.set(paths.get(0));
+        } else {
+            dest.reset();
+        }
+    }
+
+    /**
+     * Union the first "count" paths in "paths" into "dest", one at a time.
+     *
+     * @param paths The paths to union
+     * @param count How many of "paths" to union
+     * @param dest  Path to put the result into
+     */
+    private static void unionSequential(@NonNull List<Path> paths, int count, @NonNull Path dest) {
+        dest.reset();
+        for (int i = 0; i < count; i++) {
+            dest.op(paths.get(i), Path.Op.UNION);
+        }
+    }
+
+    /**
+     * Build a single pip at 12 o'clock into "temp".
+     *
+     * @param pipShape               The shape of our pip
+     * @param pipWidth               Half the width of the pip
+     * @param pipSizeDimen           Half the height of the pip
+     * @param pipRadiusPositionDimen Distance of the center of the pip from the edge
+     * @param mod                    Size modifier for our pip
+     */
+    private void buildPipTemplate(@NonNull PipShape pipShape, float pipWidth,
+                                  float pipSizeDimen, float pipRadiusPositionDimen, float mod) {
+        float mCenter = Math.min(mCenterX, mCenterY);
+
+        // Draw the pip.
+
+        float centerPipRadius = mCenter - pipRadiusPositionDimen;
+
+        float x = mCenterX;
+        float y = mCenterY - centerPipRadius;
+
+        temp.reset();
+        cutout.reset();
+
+        final float left = x - pipWidth;
+        final float right = x + pipWidth;
+        final float top = y - pipSizeDimen;
+        final float bottom = y + pipSizeDimen;
+
+        // Draw the object at 12 o'clock; we'll rotate it to desired location later.
+        switch (pipShape) {
+            case SQUARE:
+            case SQUARE_WIDE:
+            case BAR_1_2:
+            case BAR_1_4:
+            case BAR_1_8: {
+                // Draw a square.
+                drawRect(temp, left, top, right, bottom, 1f);
+                break;
+            }
+            case SQUARE_CUTOUT: {
+                drawRect(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER);
+                drawRect(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER);
+                temp.op(cutout, Path.Op.DIFFERENCE);
+                break;
+            }
+            case SECTOR: {
+                // Draw a really large triangle, then crop it with two
+                // circles to give us a wedge shape with arc top and bottom.
+                // Height "2 * mCenterY", centered on (mCenterX, mCenterY)
+                temp.moveTo(mCenterX, mCenterY);
+                // Assume "pipWidth" is radians. Undo the multiplication by "pc".
+                // Also undo the multiplication by "mod". Assume we don't mod that.
+                double offsetRadians = pipWidth / (pc * mod);
+                float offsetX = (float) Math.sin(offsetRadians) * 2 * mCenterY;
+                if (getDirection() == Path.Direction.CW) {
+                    // Line to top left.
+                    temp.lineTo(x - offsetX, 0f - mCenterY);
+                    // Line to top right.
+                    temp.lineTo(x + offsetX, 0f - mCenterY);
                 } else {
-                    p2.op(temp, Path.Op.UNION);
+                    // Line to top right.
+                    temp.lineTo(x + offsetX, 0f - mCenterY);
+                    // Line to top left.
+                    temp.lineTo(x - offsetX, 0f - mCenterY);
                 }
+                // And line back to origin.
+                temp.close();
+
+                // Crop it with our top circle and bottom circle.
+                t2.reset();
+                t2.addCircle(mCenterX, mCenterY,
+                        mCenterY - y + pipSizeDimen, getDirection());
+                temp.op(t2, Path.Op.INTERSECT);
+                t2.reset();
+                t2.addCircle(mCenterX, mCenterY,
+                        mCenterY - y - pipSizeDimen, getDirection());
+                temp.op(t2, Path.Op.DIFFERENCE);
+
+                break;
+            }
+            case DOT:
+            case DOT_THIN: {
+                drawEllipse(temp, left, top, right, bottom, 1f);
+                break;
+            }
+            case DOT_CUTOUT: {
+                drawEllipse(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER);
+                drawEllipse(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER);
+                temp.op(cutout, Path.Op.DIFFERENCE);
+                break;
+            }
+            case TRIANGLE:
+            case TRIANGLE_THIN: {
+                // Invert bottom and top to draw upside down!
+                drawTriangle(temp, left, bottom, right, top, 1f);
+                break;
+            }
+            case TRIANGLE_CUTOUT: {
+                // Invert bottom and top to draw upside down!
+                drawTriangle(temp, left, bottom, right, top, CUTOUT_SCALE_OUTER);
+                drawTriangle(cutout, left, bottom, right, top, CUTOUT_SCALE_INNER);
+                temp.op(cutout, Path.Op.DIFFERENCE);
+                break;
+            }
+            case DIAMOND:
+            case DIAMOND_THIN: {
+                drawDiamond(temp, left, top, right, bottom, 1f, 0.5f);
+                break;
+            }
+            case DIAMOND_CUTOUT: {
+                drawDiamond(temp, left, top, right, bottom, CUTOUT_SCALE_OUTER, 0.5f);
+                drawDiamond(cutout, left, top, right, bottom, CUTOUT_SCALE_INNER, 0.5f);
+                temp.op(cutout, Path.Op.DIFFERENCE);
+                break;
+            }
+            default: {
+                break;
             }
         }
-
-        drawPath(canvas, p, pipPaint);
-        drawPath(canvas, p2, pipPaint);
     }
 }
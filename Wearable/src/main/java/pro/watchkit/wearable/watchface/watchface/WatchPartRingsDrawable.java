@@ -25,20 +25,44 @@ import android.graphics.Rect;
 
 import androidx.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import pro.watchkit.wearable.watchface.model.ComplicationHolder;
 
 final class WatchPartRingsDrawable extends WatchPartDrawable {
-    @NonNull
-    private final Path mPath = new Path();
     @NonNull
     private final Path mRings = new Path();
     @NonNull
-    private final Path mHoles = new Path();
-    @NonNull
     private final Path mBackground = new Path();
 
+    @NonNull
+    private final Path mRingsWithHoles = new Path();
+    @NonNull
+    private final Path mGroup = new Path();
+    @NonNull
+    private final Path mGroupHoles = new Path();
+    @NonNull
+    private final Path mTempCircle = new Path();
+
+    private static final float RING_RADIUS = 1.05f;
+    private static final float HOLE_RADIUS = 0.95f;
+    private static final float BACKGROUND_RADIUS = (RING_RADIUS + HOLE_RADIUS) / 2f;
+
+    /**
+     * The bounds of the complications we're drawing rings for this frame. Reused each frame.
+     */
+    @NonNull
+    private final List<Rect> mBounds = new ArrayList<>();
+
+    /**
+     * Copies of the bounds of the complications we last drew rings for. (Copies, since
+     * ComplicationHolder updates its bounds in place.)
+     */
+    @NonNull
+    private final List<Rect> mPreviousBounds = new ArrayList<>();
+
     private boolean mDrawAllRings = false;
 
     WatchPartRingsDrawable() {
@@ -66,35 +90,80 @@ final class WatchPartRingsDrawable extends WatchPartDrawable {
             return;
         }
 
-        if (hasStateChanged()) {
+        // Our rings only depend on which complications we're drawing, and where.
+        final List<Rect> bounds = mBounds;
+        bounds.clear();
+        for (ComplicationHolder c : complications) {
+            if (c.isForeground && c.getBounds() != null && (c.isActive || mDrawAllRings)) {
+                bounds.add(c.getBounds());
+            }
+        }
+        if (!bounds.equals(mPreviousBounds)) {
+            // Remember what we drew, re-using our old copies where we can.
+            while (mPreviousBounds.size() > bounds.size()) {
+                mPreviousBounds.remove(mPreviousBounds.size() - 1);
+            }
+            for (int i = 0; i < bounds.size(); i++) {
+                if (i < mPreviousBounds.size()) {
+                    mPreviousBounds.get(i).set(bounds.get(i));
+                } else {
+                    mPreviousBounds.add(new Rect(bounds.get(i)));
+                }
+            }
             mRings.reset();
-            mHoles.reset();
             mBackground.reset();
+            mRingsWithHoles.reset();
+
+            // Which of our rings overlap? Put each group of overlapping rings together.
+            // Usually none of them do, and then every ring is in a group of its own.
+            final int n = bounds.size();
+            int[] group = new int[n];
+            for (int i = 0; i < n; i++) {
+                group[i] = i;
+                Rect a = bounds.get(i);
+                for (int j = 0; j < i; j++) {
+                    Rect b = bounds.get(j);
+                    float reach = RING_RADIUS * (a.width() + b.width()) / 2f;
+                    if (Math.hypot(a.exactCenterX() - b.exactCenterX(),
+                            a.exactCenterY() - b.exactCenterY()) < reach) {
+                        // Overlaps! Merge "i"'s group (and anything already in it) into "j"'s.
+                        int from = group[i], to = group[j];
+                        for (int k = 0; k <= i; k++) {
+                            if (group[k] == from) {
+                                group[k] = to;
+                            }
+                        }
+                    }
+                }
+            }
 
-            final float ringRadius = 1.05f;
-            final float holeRadius = 0.95f;
-            final float backgroundRadius = (ringRadius + holeRadius) / 2f;
-
-            // Calculate our mRings and mHoles!
-            complications.stream()
-                    .filter(c -> c.isForeground && c.getBounds() != null && (c.isActive || mDrawAllRings))
-                    .forEach(c -> {
-                        Rect r = c.getBounds();
-                        Path.Direction dir = getDirection();
-                        mPath.reset();
-                        mPath.addCircle(r.exactCenterX(), r.exactCenterY(),
-                                ringRadius * r.width() / 2f, dir);
-                        mRings.op(mPath, Path.Op.UNION);
-                        mPath.reset();
-                        mPath.addCircle(r.exactCenterX(), r.exactCenterY(),
-                                holeRadius * r.width() / 2f, dir);
-                        mHoles.op(mPath, Path.Op.UNION);
-                        mPath.reset();
-                        mPath.addCircle(r.exactCenterX(), r.exactCenterY(),
-                                backgroundRadius * r.width() / 2f, dir);
-                        mBackground.op(mPath, Path.Op.UNION);
-                    });
-            mPath.set(mRings);
+            // Calculate our mRings and mRingsWithHoles!
+            for (int g = 0; g < n; g++) {
+                int count = 0;
+                for (int i = 0; i < n; i++) {
+                    if (group[i] == g) {
+                        count++;
+                    }
+                }
+                if (count == 1) {
+                    // A ring on its own. Just add our circles; no need for unions.
+                    Rect r = bounds.get(g);
+                    addCircle(mRings, r, RING_RADIUS, Path.Direction.CW);
+                    addCircle(mBackground, r, BACKGROUND_RADIUS, Path.Direction.CW);
+                    // With the hole wound the other way, the winding fill punches it out.
+                    addCircle(mRingsWithHoles, r, RING_RADIUS, Path.Direction.CW);
+                    addCircle(mRingsWithHoles, r, HOLE_RADIUS, Path.Direction.CCW);
+                } else if (count > 1) {
+                    // Overlapping rings. Union them together, then add them.
+                    unionGroup(bounds, group, g, HOLE_RADIUS, mGroupHoles);
+                    unionGroup(bounds, group, g, BACKGROUND_RADIUS, mGroup);
+                    mBackground.addPath(mGroup);
+                    unionGroup(bounds, group, g, RING_RADIUS, mGroup);
+                    mRings.addPath(mGroup);
+                    mGroup.op(mGroupHoles, Path.Op.DIFFERENCE);
+                    mRingsWithHoles.addPath(mGroup);
+                }
+            }
         }
 
         // If not ambient, actually draw our complication mRings.
@@ -121,19 +190,52 @@ final class WatchPartRingsDrawable extends WatchPartDrawable {
                 // The complication background and ring paints are the same.
                 // Just draw the rings, but skip the holes.
                 if (!complicationBackgroundPaint.equals(backgroundPaint)) {
-                    drawPath(canvas, mPath, complicationRingPaint);
+                    drawPath(canvas, mRings, complicationRingPaint);
                 }
                 // If the complication background, complication ring, and watch face background
                 // paints are all the same then don't do anything!
             } else {
                 // The complication background and complication ring paints are different.
                 // Draw the rings and the holes.
-                mPath.op(mHoles, Path.Op.DIFFERENCE);
-                drawPath(canvas, mPath, complicationRingPaint);
+                drawPath(canvas, mRingsWithHoles, complicationRingPaint);
             }
         }
 
         // Add the mRings to our exclusion path.
         addExclusionPath(mRings, Path.Op.DIFFERENCE);
     }
+
+    /**
+     * Add a circle for the complication with bounds "r" to "path".
+     *
+     * @param path   Path to add to
+     * @param r      Bounds of the complication
+     * @param radius Radius of the circle, as a proportion of the complication's radius
+     * @param dir    Direction to wind the circle
+     */
+    private static void addCircle(@NonNull Path path, @NonNull Rect r, float radius,
+                                  @NonNull Path.Direction dir) {
+        path.addCircle(r.exactCenterX(), r.exactCenterY(), radius * r.width() / 2f, dir);
+    }
+
+    /**
+     * Union circles for every complication in group "g" together into "path".
+     *
+     * @param bounds Bounds of all our complications
+     * @param group  The group each complication is in
+     * @param g      The group to union
+     * @param radius Radius of the circles, as a proportion of each complication's radius
+     * @param path   Path to union into (which we reset first)
+     */
+    private void unionGroup(@NonNull List<Rect> bounds, @NonNull int[] group, int g,
+                            float radius, @NonNull Path path) {
+        path.reset();
+        for (int i = 0; i < bounds.size(); i++) {
+            if (group[i] == g) {
+                mTempCircle.reset();
+                addCircle(mTempCircle, bounds.get(i), radius, Path.Direction.CW);
+                path.op(mTempCircle, Path.Op.UNION);
+            }
+        }
+    }
 }
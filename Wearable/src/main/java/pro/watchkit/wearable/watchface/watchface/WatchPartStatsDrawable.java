@@ -43,6 +43,13 @@ final class WatchPartStatsDrawable extends WatchPartDrawable {
     static final String INVALID_WTF = "WTF?";
     static long total;
     static int invalid = 0;
+    /**
+     * How much memory our cache is using, and whether it's bitmaps ("bmp") or display
+     * lists ("rn").
+     */
+    static long cacheBytes = 0L;
+    @NonNull
+    static String cacheMode = "";
     Drawable[] mWatchPartDrawables, mWatchPartDrawables2;
     @NonNull
     static String mInvalidTrigger = "";
@@ -96,6 +103,17 @@ final class WatchPartStatsDrawable extends WatchPartDrawable {
                     }
                 }
             }
+
+            // And how our shared geometry and glyphs are doing.
+            mStringBuilder.append("Geom: ").append(GeometryCache.getHits()).append("/")
+                    .append(GeometryCache.getHits() + GeometryCache.getMisses()).append(" (")
+                    .append(GeometryCache.size()).append(") - ");
+            mStringBuilder.append("Glyph: ").append(GlyphCache.getHits()).append("/")
+                    .append(GlyphCache.getHits() + GlyphCache.getMisses()).append(" (")
+                    .append(GlyphCache.size()).append(") - ");
+            mStringBuilder.append("Cache: ").append(cacheMode).append(" ");
+            mFormatter.format("%.1f", (double) cacheBytes / 1048576d);
+            mStringBuilder.append("MB - ");
         }
 
 //        mStringBuilder.setLength(0);
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pro.watchkit.wearable.watchface.geometry.VectorPathTest.bounds;
+import static pro.watchkit.wearable.watchface.geometry.VectorPathTest.signedArea;
+
+import org.junit.Test;
+
+/**
+ * Tests for Shapes: that each shape fills its bounds at scale 1.0f, that scaling changes its
+ * area by "scale", that offsets cut it down to the right slice, and that it winds the way
+ * we ask.
+ */
+public class ShapesTest {
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void rectFillsItsBounds() {
+        VectorPath path = new VectorPath();
+        Shapes.rect(path, 0f, 0f, 10f, 20f, 1f, 0f, 0f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 20f}, bounds(path), DELTA);
+        assertEquals(200f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void rectScalesItsAreaAboutItsCentre() {
+        VectorPath path = new VectorPath();
+        Shapes.rect(path, 0f, 0f, 10f, 20f, 0.5f, 0f, 0f, true);
+
+        assertEquals(100f, signedArea(path.flatten(0.1f)), DELTA);
+        float[] bounds = bounds(path);
+        assertEquals(10f, bounds[0] + bounds[2], DELTA);
+        assertEquals(20f, bounds[1] + bounds[3], DELTA);
+        // Each edge is inset by the same distance.
+        assertEquals(bounds[0], bounds[1], DELTA);
+    }
+
+    @Test
+    public void rectOffsetsCutItDown() {
+        VectorPath path = new VectorPath();
+        Shapes.rect(path, 0f, 0f, 10f, 20f, 1f, 0.25f, 0.25f, true);
+
+        assertArrayEquals(new float[]{0f, 5f, 10f, 15f}, bounds(path), DELTA);
+        assertEquals(100f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void rectWindsTheWayWeAsk() {
+        VectorPath path = new VectorPath();
+        Shapes.rect(path, 0f, 0f, 10f, 20f, 1f, 0.25f, 0f, false);
+
+        assertEquals(-150f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void roundRectFillsItsBounds() {
+        VectorPath path = new VectorPath();
+        Shapes.roundRect(path, 0f, 0f, 10f, 20f, 2f, 1f, 0f, 0f, true, 0.01f);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 20f}, bounds(path), DELTA);
+        float area = 200f - (4f - (float) Math.PI) * 4f;
+        assertEquals(area, signedArea(path.flatten(0.01f)), 0.05f);
+    }
+
+    @Test
+    public void roundRectOffsetsCutItDown() {
+        VectorPath path = new VectorPath();
+        Shapes.roundRect(path, 0f, 0f, 10f, 20f, 2f, 1f, 0.5f, 0f, true, 0.01f);
+
+        // The bottom half: a rect on top, two rounded corners underneath.
+        assertArrayEquals(new float[]{0f, 10f, 10f, 20f}, bounds(path), 0.01f);
+        float area = 100f - (4f - (float) Math.PI) * 2f;
+        assertEquals(area, signedArea(path.flatten(0.01f)), 0.05f);
+    }
+
+    @Test
+    public void circleScalesItsArea() {
+        VectorPath path = new VectorPath();
+        Shapes.ellipse(path, 0f, 0f, 100f, 100f, 1f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 100f, 100f}, bounds(path), DELTA);
+        float area = (float) Math.PI * 50f * 50f;
+        assertEquals(area, signedArea(path.flatten(0.01f)), 5f);
+
+        path.reset();
+        Shapes.ellipse(path, 0f, 0f, 100f, 100f, 0.5f, false);
+        assertEquals(-area / 2f, signedArea(path.flatten(0.01f)), 5f);
+    }
+
+    @Test
+    public void diamondFillsItsBounds() {
+        VectorPath path = new VectorPath();
+        Shapes.diamond(path, 0f, 0f, 10f, 10f, 5f, 1f, 0.5f, 0f, 0f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 10f}, bounds(path), DELTA);
+        assertEquals(50f, signedArea(path.flatten(0.1f)), DELTA);
+
+        path.reset();
+        Shapes.diamond(path, 0f, 0f, 10f, 10f, 5f, 1f, 0.5f, 0f, 0f, false);
+        assertEquals(-50f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void triangleFillsItsBounds() {
+        VectorPath path = new VectorPath();
+        Shapes.triangle(path, 0f, 0f, 10f, 10f, 5f, 1f, 0f, 0f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 10f}, bounds(path), DELTA);
+        assertEquals(50f, signedArea(path.flatten(0.1f)), DELTA);
+        // Pointing up: the point's at the top.
+        assertEquals(5f, path.getPoints()[2], DELTA);
+        assertEquals(0f, path.getPoints()[3], DELTA);
+
+        path.reset();
+        Shapes.triangle(path, 0f, 0f, 10f, 10f, 5f, 1f, 0f, 0f, false);
+        assertEquals(-50f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void triangleInvertsIfBottomIsAboveTop() {
+        VectorPath path = new VectorPath();
+        Shapes.triangle(path, 0f, 10f, 10f, 0f, 5f, 1f, 0f, 0f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 10f}, bounds(path), DELTA);
+        // Pointing down: the point's at the bottom.
+        assertEquals(5f, path.getPoints()[2], DELTA);
+        assertEquals(10f, path.getPoints()[3], DELTA);
+    }
+
+    @Test
+    public void triangleOffsetsKeepItsProportions() {
+        VectorPath path = new VectorPath();
+        // Cut the top quarter of its area off; that's the top half of its height.
+        Shapes.triangle(path, 0f, 0f, 10f, 10f, 5f, 1f, 0.25f, 0f, true);
+
+        float[] bounds = bounds(path);
+        assertEquals(5f, bounds[1], DELTA);
+        assertEquals(10f, bounds[3], DELTA);
+        assertEquals(37.5f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void triangleScalesInsideItself() {
+        VectorPath path = new VectorPath();
+        Shapes.triangle(path, 0f, 0f, 10f, 10f, 5f, 0.5f, 0f, 0f, true);
+
+        float[] bounds = bounds(path);
+        assertTrue(bounds[0] > 0f && bounds[1] > 0f && bounds[2] < 10f && bounds[3] < 10f);
+        assertEquals(10f, bounds[0] + bounds[2], DELTA);
+        float area = signedArea(path.flatten(0.1f));
+        assertTrue(area > 0f && area < 50f);
+    }
+}
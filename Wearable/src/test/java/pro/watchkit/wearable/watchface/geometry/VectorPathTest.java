@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for VectorPath. Plain JVM, no Android needed: that's the point of VectorPath.
+ */
+public class VectorPathTest {
+    private static final float DELTA = 0.0001f;
+
+    /**
+     * The signed area of "polygons" (as from "flatten"). On screen, where y points down,
+     * clockwise is positive.
+     */
+    static float signedArea(@NonNull List<float[]> polygons) {
+        double area = 0d;
+        for (float[] polygon : polygons) {
+            for (int i = 0; i < polygon.length; i += 2) {
+                int j = (i + 2) % polygon.length;
+                area += (double) polygon[i] * polygon[j + 1] - (double) polygon[j] * polygon[i + 1];
+            }
+        }
+        return (float) (area / 2d);
+    }
+
+    @NonNull
+    static float[] bounds(@NonNull VectorPath path) {
+        float[] bounds = new float[4];
+        path.computeBounds(bounds);
+        return bounds;
+    }
+
+    @Test
+    public void buildsVerbsAndPoints() {
+        VectorPath path = new VectorPath();
+        path.moveTo(1f, 2f);
+        path.lineTo(3f, 4f);
+        path.cubicTo(5f, 6f, 7f, 8f, 9f, 10f);
+        path.close();
+
+        assertEquals(4, path.getVerbCount());
+        assertEquals(VectorPath.VERB_MOVE, path.getVerb(0));
+        assertEquals(VectorPath.VERB_LINE, path.getVerb(1));
+        assertEquals(VectorPath.VERB_CUBIC, path.getVerb(2));
+        assertEquals(VectorPath.VERB_CLOSE, path.getVerb(3));
+        assertEquals(10, path.getPointCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1f, path.getPoints()[i], DELTA);
+        }
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        VectorPath path = new VectorPath();
+        path.moveTo(0f, 0f);
+        for (int i = 1; i <= 100; i++) {
+            path.lineTo(i, -i);
+        }
+
+        assertEquals(101, path.getVerbCount());
+        assertEquals(202, path.getPointCount());
+        assertEquals(100f, path.getPoints()[200], DELTA);
+        assertEquals(-100f, path.getPoints()[201], DELTA);
+    }
+
+    @Test
+    public void resetEmptiesThePath() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 10f, true);
+        path.reset();
+
+        assertTrue(path.isEmpty());
+        assertEquals(0, path.getPointCount());
+        assertArrayEquals(new float[]{0f, 0f, 0f, 0f}, bounds(path), DELTA);
+    }
+
+    @Test
+    public void copyIsIndependentOfItsSource() {
+        VectorPath source = new VectorPath();
+        source.addRect(0f, 0f, 10f, 10f, true);
+        VectorPath copy = new VectorPath(source);
+        source.lineTo(20f, 20f);
+
+        assertEquals(5, copy.getVerbCount());
+        assertEquals(8, copy.getPointCount());
+    }
+
+    @Test
+    public void addRectWindsLikeAndroid() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 20f, true);
+
+        // Clockwise starts at the top left and heads right.
+        assertArrayEquals(new float[]{0f, 0f, 10f, 0f, 10f, 20f, 0f, 20f},
+                Arrays.copyOf(path.getPoints(), path.getPointCount()), DELTA);
+        assertEquals(200f, signedArea(path.flatten(0.1f)), DELTA);
+
+        path.reset();
+        path.addRect(0f, 0f, 10f, 20f, false);
+        assertEquals(-200f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void addRoundRectClampsItsRadius() {
+        VectorPath path = new VectorPath();
+        // A radius of 100 is clamped to 5, half the width: a stadium.
+        path.addRoundRect(0f, 0f, 10f, 20f, 100f, true);
+
+        assertArrayEquals(new float[]{0f, 0f, 10f, 20f}, bounds(path), DELTA);
+        float stadium = 200f - (4f - (float) Math.PI) * 25f;
+        assertEquals(stadium, signedArea(path.flatten(0.001f)), 0.1f);
+
+        path.reset();
+        path.addRoundRect(0f, 0f, 10f, 20f, 100f, false);
+        assertEquals(-stadium, signedArea(path.flatten(0.001f)), 0.1f);
+    }
+
+    @Test
+    public void addRoundRectWithNoRadiusIsARect() {
+        VectorPath path = new VectorPath();
+        path.addRoundRect(0f, 0f, 10f, 20f, 0f, true);
+
+        // Move, three lines and a close.
+        assertEquals(5, path.getVerbCount());
+        assertEquals(200f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void circleFlattensToWithinTolerance() {
+        VectorPath path = new VectorPath();
+        path.addCircle(50f, 50f, 40f, true);
+
+        assertArrayEquals(new float[]{10f, 10f, 90f, 90f}, bounds(path), DELTA);
+
+        List<float[]> polygons = path.flatten(0.1f);
+        assertEquals(1, polygons.size());
+        float[] polygon = polygons.get(0);
+        for (int i = 0; i < polygon.length; i += 2) {
+            double d = Math.hypot(polygon[i] - 50f, polygon[i + 1] - 50f);
+            // Our points are on the curves, which are within 0.03% of the circle.
+            assertEquals(40d, d, 0.05d);
+        }
+        // Our chords cut corners by at most the tolerance, all the way round.
+        float area = (float) Math.PI * 40f * 40f;
+        assertEquals(area, signedArea(polygons), 2f * (float) Math.PI * 40f * 0.1f);
+
+        path.reset();
+        path.addCircle(50f, 50f, 40f, false);
+        assertTrue(signedArea(path.flatten(0.1f)) < 0f);
+    }
+
+    @Test
+    public void flattenMakesOnePolygonPerContour() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 10f, true);
+        path.addRect(20f, 0f, 30f, 10f, true);
+
+        List<float[]> polygons = path.flatten(0.1f);
+        assertEquals(2, polygons.size());
+        assertEquals(200f, signedArea(polygons), DELTA);
+    }
+
+    @Test
+    public void intersectBandClipsToTheBand() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 20f, true);
+        path.intersectBand(5f, 15f, 1f);
+
+        assertArrayEquals(new float[]{0f, 5f, 10f, 15f}, bounds(path), DELTA);
+        assertEquals(100f, signedArea(path.flatten(0.1f)), DELTA);
+        assertEquals(VectorPath.VERB_MOVE, path.getVerb(0));
+        assertEquals(VectorPath.VERB_CLOSE, path.getVerb(path.getVerbCount() - 1));
+    }
+
+    @Test
+    public void intersectBandKeepsWinding() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 20f, false);
+        path.intersectBand(5f, 15f, 1f);
+
+        assertEquals(-100f, signedArea(path.flatten(0.1f)), DELTA);
+    }
+
+    @Test
+    public void intersectBandDropsContoursOutsideTheBand() {
+        VectorPath path = new VectorPath();
+        path.addRect(0f, 0f, 10f, 10f, true);
+        path.addRect(0f, 30f, 10f, 40f, true);
+        path.intersectBand(0f, 20f, 1f);
+
+        assertEquals(1, path.flatten(0.1f).size());
+        assertArrayEquals(new float[]{0f, 0f, 10f, 10f}, bounds(path), DELTA);
+    }
+
+    @Test
+    public void intersectBandFlattensCurves() {
+        VectorPath path = new VectorPath();
+        path.addCircle(0f, 0f, 10f, true);
+        path.intersectBand(0f, 20f, 0.01f);
+
+        // The bottom half of the circle, and no curves left.
+        for (int i = 0; i < path.getVerbCount(); i++) {
+            assertTrue(path.getVerb(i) != VectorPath.VERB_CUBIC);
+        }
+        float[] bounds = bounds(path);
+        assertEquals(0f, bounds[1], DELTA);
+        assertEquals(10f, bounds[3], 0.01f);
+        assertEquals((float) Math.PI * 50f, signedArea(path.flatten(0.01f)), 0.5f);
+    }
+
+    @Test
+    public void writeThenReadIsTheSamePath() throws IOException {
+        VectorPath path = new VectorPath();
+        path.addRoundRect(0f, 0f, 10f, 20f, 3f, true);
+        path.addCircle(50f, 50f, 40f, false);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        path.writeTo(new DataOutputStream(bytes));
+        VectorPath read = VectorPath.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(path.getVerbCount(), read.getVerbCount());
+        for (int i = 0; i < path.getVerbCount(); i++) {
+            assertEquals(path.getVerb(i), read.getVerb(i));
+        }
+        assertEquals(path.getPointCount(), read.getPointCount());
+        for (int i = 0; i < path.getPointCount(); i++) {
+            assertEquals(path.getPoints()[i], read.getPoints()[i], 0f);
+        }
+    }
+}
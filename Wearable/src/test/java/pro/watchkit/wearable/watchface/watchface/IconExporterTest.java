@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023 Terence Tan
+ *
+ *  This file is free software: you may copy, redistribute and/or modify it
+ *  under the terms of the GNU General Public License as published by the
+ *  Free Software Foundation, either version 3 of the License, or (at your
+ *  option) any later version.
+ *
+ *  This file is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package pro.watchkit.wearable.watchface.watchface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pro.watchkit.wearable.watchface.model.WatchFaceState;
+
+/**
+ * Runs IconExporter off-device, under Robolectric, writing to a plain directory.
+ * <p>
+ * To export the whole gallery to a directory of your choosing, rather than just checking a
+ * few icons, run: ./gradlew testDebugUnitTest --tests '*IconExporterTest' -PiconDir=/some/dir
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@GraphicsMode(GraphicsMode.Mode.NATIVE) // Otherwise our Canvas draws nothing.
+public class IconExporterTest {
+    /**
+     * Where to export the whole gallery to, from "-PiconDir"; empty if we're not.
+     */
+    private static final String ICON_DIR = System.getProperty("iconExporter.dir", "");
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    /**
+     * Take the first "n" entries of "map".
+     */
+    @NonNull
+    private static <V> Map<String, V> firstEntries(@NonNull Map<String, V> map, int n) {
+        Map<String, V> result = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, V>> i = map.entrySet().iterator();
+        while (result.size() < n && i.hasNext()) {
+            Map.Entry<String, V> e = i.next();
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Does the PNG in "file" have any pixels that aren't the (transparent) background?
+     */
+    private static boolean hasForeground(@NonNull File file) {
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        assertNotNull(file.getName(), bitmap);
+        int width = bitmap.getWidth(), height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        for (int pixel : pixels) {
+            if (Color.alpha(pixel) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the gallery entries of "state", once its gallery index is built. (It's built on
+     * its own thread, and "getGalleryEntries" never waits for it.)
+     */
+    @NonNull
+    private static Map<String, String> awaitGalleryEntries(@NonNull WatchFaceState state)
+            throws InterruptedException {
+        Map<String, String> gallery;
+        while ((gallery = state.getGalleryEntries()) == null) {
+            Thread.sleep(10L);
+        }
+        return gallery;
+    }
+
+    /**
+     * Every icon is written, and they're not blank. With one renderer there are only two
+     * bitmaps in the pool, so if an icon didn't give its bitmap back, we'd hang on the third;
+     * hence the timeout.
+     */
+    @Test(timeout = 120000L)
+    public void exportsEveryIcon() throws InterruptedException {
+        Context context = RuntimeEnvironment.getApplication();
+        WatchFaceState state = new WatchFaceState(context);
+        Map<String, String> gallery = firstEntries(awaitGalleryEntries(state), 2);
+        Map<String, Integer> colorways =
+                firstEntries(state.getPaintBox().getOriginalColorways(), 2);
+        File directory = mFolder.getRoot();
+
+        IconExporter.Report report = new IconExporter(context, 1)
+                .export(gallery, colorways, IconExporter.toDirectory(directory));
+
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(gallery.size() * colorways.size(), report.getIcons());
+        assertEquals(0, report.getFailures());
+        assertEquals(report.getIcons(), files.length);
+        boolean drawn = false;
+        for (File file : files) {
+            drawn |= hasForeground(file);
+        }
+        assertTrue("Every icon is blank", drawn);
+    }
+
+    /**
+     * Export the whole gallery, in every colorway, to "-PiconDir". Skipped without it.
+     */
+    @Test
+    public void exportsTheGalleryToIconDir() throws InterruptedException {
+        Assume.assumeFalse(ICON_DIR.isEmpty());
+        File directory = new File(ICON_DIR);
+        Assume.assumeTrue(directory.isDirectory() || directory.mkdirs());
+
+        Context context = RuntimeEnvironment.getApplication();
+        WatchFaceState state = new WatchFaceState(context);
+        IconExporter.Report report = new IconExporter(context,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2))
+                .export(awaitGalleryEntries(state), state.getPaintBox().getOriginalColorways(),
+                        IconExporter.toDirectory(directory));
+
+        assertEquals(0, report.getFailures());
+    }
+}